@@ -0,0 +1,82 @@
+package com.olexijko.paymentgw.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.service.AuditSender;
+import com.olexijko.paymentgw.service.audit.AuditOverflowPolicy;
+import com.olexijko.paymentgw.service.audit.AuditRecordFormat;
+import com.olexijko.paymentgw.service.audit.AuditSenderProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sustained audit throughput of request threads handing payments to the {@link AuditSender}. The queue blocks once
+ * it is full, so the score converges to the rate at which the writer thread encodes and appends records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class AuditSenderBenchmark {
+    @Param({"JSON", "BINARY"})
+    public AuditRecordFormat format;
+
+    @Param({"false"})
+    public boolean fsync;
+
+    private final AtomicLong invoices = new AtomicLong();
+    private Path directory;
+    private AuditSender auditSender;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("audit-benchmark");
+        final AuditSenderProperties properties = new AuditSenderProperties();
+        properties.setDirectory(directory.toString());
+        properties.setFormat(format);
+        properties.getFlush().setFsync(fsync);
+        properties.getQueue().setCapacity(8192);
+        properties.getQueue().setOverflowPolicy(AuditOverflowPolicy.BLOCK);
+        properties.getQueue().setBlockTimeout(Duration.ofMinutes(1));
+        auditSender = new AuditSender(new ObjectMapper(), new SimpleMeterRegistry(), properties);
+        auditSender.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException, IOException {
+        auditSender.stop();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void sendPayment() {
+        final PaymentDto paymentDto = BenchmarkPayloads.paymentDto(invoices.incrementAndGet());
+        auditSender.sendPayment(paymentDto);
+    }
+}
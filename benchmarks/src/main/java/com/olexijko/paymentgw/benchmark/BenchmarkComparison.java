@@ -0,0 +1,85 @@
+package com.olexijko.paymentgw.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares two JMH JSON result files and fails when any benchmark present in both got slower than the allowed
+ * percentage:
+ * <pre>
+ * java -cp benchmarks.jar com.olexijko.paymentgw.benchmark.BenchmarkComparison baseline.json jmh-result.json [10]
+ * </pre>
+ * Throughput scores regress when they go down, all other modes when they go up. Exits with {@code 1} if there is a
+ * regression, so it can gate a CI build.
+ */
+public final class BenchmarkComparison {
+    private static final double DEFAULT_MAX_REGRESSION_PERCENT = 10;
+    private static final String THROUGHPUT_MODE = "thrpt";
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: BenchmarkComparison <baseline result> <current result> [max regression percent]");
+            System.exit(2);
+        }
+        final double maxRegressionPercent = args.length == 3 ? Double.parseDouble(args[2]) : DEFAULT_MAX_REGRESSION_PERCENT;
+        final Map<String, JsonNode> baseline = readResults(Path.of(args[0]));
+        final Map<String, JsonNode> current = readResults(Path.of(args[1]));
+        int regressionsCount = 0;
+        for (Map.Entry<String, JsonNode> currentResult : current.entrySet()) {
+            final JsonNode baselineResult = baseline.get(currentResult.getKey());
+            if (baselineResult == null) {
+                System.out.printf("NEW         %s%n", currentResult.getKey());
+                continue;
+            }
+            final double changePercent = slowdownPercent(baselineResult, currentResult.getValue());
+            final boolean regressed = changePercent > maxRegressionPercent;
+            if (regressed) {
+                regressionsCount++;
+            }
+            System.out.printf("%-11s %s %+.1f%% (%.3f -> %.3f %s)%n", regressed ? "REGRESSION" : "OK",
+                    currentResult.getKey(), changePercent, score(baselineResult), score(currentResult.getValue()),
+                    currentResult.getValue().path("primaryMetric").path("scoreUnit").asText());
+        }
+        System.out.printf("%d regressions above %.1f%%%n", regressionsCount, maxRegressionPercent);
+        if (regressionsCount > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return how much slower the current result is in percent, negative if it got faster.
+     */
+    static double slowdownPercent(JsonNode baselineResult, JsonNode currentResult) {
+        final double baselineScore = score(baselineResult);
+        final double currentScore = score(currentResult);
+        final double changePercent = (currentScore - baselineScore) / baselineScore * 100;
+        return THROUGHPUT_MODE.equals(currentResult.path("mode").asText()) ? -changePercent : changePercent;
+    }
+
+    private static double score(JsonNode result) {
+        return result.path("primaryMetric").path("score").asDouble();
+    }
+
+    private static Map<String, JsonNode> readResults(Path resultFile) throws IOException {
+        final Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(resultFile.toFile())) {
+            results.put(resultKey(result), result);
+        }
+        return results;
+    }
+
+    private static String resultKey(JsonNode result) {
+        final Map<String, String> params = new TreeMap<>();
+        result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+        return params.isEmpty() ? result.path("benchmark").asText() : result.path("benchmark").asText() + params;
+    }
+}
@@ -0,0 +1,30 @@
+package com.olexijko.paymentgw.benchmark;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import com.olexijko.paymentgw.dto.CardDto;
+import com.olexijko.paymentgw.dto.CardholderDto;
+import com.olexijko.paymentgw.dto.PaymentDto;
+
+/**
+ * Payloads shaped like the ones received by the API.
+ */
+final class BenchmarkPayloads {
+    static final String CARD_PAN = "4532011283777270";
+    static final String VALID_EXPIRY = LocalDate.now().plusYears(2).format(DateTimeFormatter.ofPattern("MMyy"));
+    static final String EXPIRED_EXPIRY = LocalDate.now().minusYears(2).format(DateTimeFormatter.ofPattern("MMyy"));
+
+    private BenchmarkPayloads() {
+    }
+
+    static PaymentDto paymentDto(long invoice) {
+        return PaymentDto.builder()
+                .invoice(String.valueOf(invoice))
+                .amount("1299")
+                .currency("EUR")
+                .cardholder(CardholderDto.builder().name("First Last").email("email@domain.com").build())
+                .card(CardDto.builder().pan(CARD_PAN).expiry(VALID_EXPIRY).cvv("123").build())
+                .build();
+    }
+}
@@ -0,0 +1,30 @@
+package com.olexijko.paymentgw.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * Entry point of the benchmarks jar. Accepts the regular JMH command line and writes the results as JSON to
+ * {@value #DEFAULT_RESULT_FILE} unless another result format or file is requested, so every run leaves a result that
+ * {@link BenchmarkComparison} can compare against a baseline.
+ */
+public final class BenchmarkRunner {
+    static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-rf")) {
+            jmhArgs.addAll(List.of("-rf", "json"));
+            if (!jmhArgs.contains("-rff")) {
+                jmhArgs.addAll(List.of("-rff", DEFAULT_RESULT_FILE));
+            }
+        }
+        Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,58 @@
+package com.olexijko.paymentgw.benchmark;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import com.olexijko.paymentgw.service.AesGcmEncryptor;
+import com.olexijko.paymentgw.service.Base64Encryptor;
+import com.olexijko.paymentgw.service.Encryptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of protecting a single card field, {@code PaymentMapper} calls it three times per written and three times per
+ * read payment. Run with {@code -prof gc} to compare the allocation rates as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptorBenchmark {
+    @Param({"BASE64", "AES_GCM"})
+    public String encryptorType;
+
+    @Param({"4532011283777270", "First Last"})
+    public String value;
+
+    private Encryptor encryptor;
+    private String encryptedValue;
+
+    @Setup
+    public void setUp() {
+        encryptor = "AES_GCM".equals(encryptorType)
+                ? new AesGcmEncryptor(Base64.getEncoder().encodeToString(new byte[32]))
+                : new Base64Encryptor();
+        encryptedValue = encryptor.encrypt(value);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return encryptor.encrypt(value);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return encryptor.decrypt(encryptedValue);
+    }
+}
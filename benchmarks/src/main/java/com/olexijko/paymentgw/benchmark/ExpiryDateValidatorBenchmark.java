@@ -0,0 +1,66 @@
+package com.olexijko.paymentgw.benchmark;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import com.olexijko.paymentgw.validator.ExpiryDateIsNotExpired;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Expiry validation run for every submitted payment, for valid, expired and malformed input. {@code formatterPerCall}
+ * is the former implementation kept as a baseline, run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpiryDateValidatorBenchmark {
+    @Param({"VALID", "EXPIRED", "MALFORMED"})
+    public String expiryType;
+
+    private final ExpiryDateIsNotExpired validator = new ExpiryDateIsNotExpired();
+    private String expiry;
+
+    @Setup
+    public void setUp() {
+        switch (expiryType) {
+            case "EXPIRED":
+                expiry = BenchmarkPayloads.EXPIRED_EXPIRY;
+                break;
+            case "MALFORMED":
+                expiry = "13/2x";
+                break;
+            default:
+                expiry = BenchmarkPayloads.VALID_EXPIRY;
+        }
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return validator.isValid(expiry, null);
+    }
+
+    @Benchmark
+    public boolean formatterPerCall() {
+        try {
+            final LocalDate expiryDate = YearMonth.parse(expiry, DateTimeFormatter.ofPattern(ExpiryDateIsNotExpired.EXPIRY_DATE_FORMAT)).atEndOfMonth();
+            return !expiryDate.isBefore(LocalDate.now());
+        } catch (Exception e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.olexijko.paymentgw.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * (De)serialization of {@link PaymentDto} with an object mapper configured the way Spring MVC configures its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JacksonBenchmark {
+    private ObjectWriter paymentWriter;
+    private ObjectReader paymentReader;
+    private PaymentDto paymentDto;
+    private byte[] paymentJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        paymentWriter = objectMapper.writerFor(PaymentDto.class);
+        paymentReader = objectMapper.readerFor(PaymentDto.class);
+        paymentDto = BenchmarkPayloads.paymentDto(1);
+        paymentJson = paymentWriter.writeValueAsBytes(paymentDto);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return paymentWriter.writeValueAsBytes(paymentDto);
+    }
+
+    @Benchmark
+    public PaymentDto deserialize() throws IOException {
+        return paymentReader.readValue(paymentJson);
+    }
+}
@@ -0,0 +1,69 @@
+package com.olexijko.paymentgw.benchmark;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.entity.Payment;
+import com.olexijko.paymentgw.mapper.PaymentMapper;
+import com.olexijko.paymentgw.repository.PaymentView;
+import com.olexijko.paymentgw.service.AesGcmEncryptor;
+import com.olexijko.paymentgw.service.Base64Encryptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mapping done for every written ({@code toEntityFromDto}) and every read ({@code toDtoFromView}) payment, including
+ * the encryption of the card fields. {@code toDtoFromEntity} is the mapping of written payments.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentMapperBenchmark {
+    @Param({"BASE64", "AES_GCM"})
+    public String encryptorType;
+
+    private PaymentMapper paymentMapper;
+    private PaymentDto paymentDto;
+    private Payment payment;
+    private PaymentView paymentView;
+
+    @Setup
+    public void setUp() {
+        paymentMapper = new PaymentMapper("AES_GCM".equals(encryptorType)
+                ? new AesGcmEncryptor(Base64.getEncoder().encodeToString(new byte[32]))
+                : new Base64Encryptor());
+        paymentDto = BenchmarkPayloads.paymentDto(1);
+        payment = paymentMapper.toEntityFromDto(paymentDto);
+        paymentView = new PaymentView(payment.getInvoice(), payment.getAmount(), payment.getCurrency(),
+                payment.getCardholder().getName(), payment.getCardholder().getEmail(),
+                payment.getCard().getPan(), payment.getCard().getExpiryDate());
+    }
+
+    @Benchmark
+    public Payment toEntityFromDto() {
+        return paymentMapper.toEntityFromDto(paymentDto);
+    }
+
+    @Benchmark
+    public PaymentDto toDtoFromEntity() {
+        return paymentMapper.toDtoFromEntity(payment);
+    }
+
+    @Benchmark
+    public PaymentDto toDtoFromView() {
+        return paymentMapper.toDtoFromView(paymentView);
+    }
+}
@@ -0,0 +1,68 @@
+package com.olexijko.paymentgw.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.validator.PaymentDtoValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+/**
+ * Validation of a valid request body by Bean Validation, as done by default, and by the fast path validator.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentValidationBenchmark {
+    private ValidatorFactory validatorFactory;
+    private Validator beanValidator;
+    private Validator fastPathValidator;
+    private PaymentDto paymentDto;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        beanValidator = new SpringValidatorAdapter(validatorFactory.getValidator());
+        fastPathValidator = new PaymentDtoValidator(validatorFactory.getValidator());
+        paymentDto = BenchmarkPayloads.paymentDto(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Errors beanValidation() {
+        return validate(beanValidator);
+    }
+
+    @Benchmark
+    public Errors fastPath() {
+        return validate(fastPathValidator);
+    }
+
+    private Errors validate(Validator validator) {
+        final Errors errors = new BeanPropertyBindingResult(paymentDto, "paymentDto");
+        validator.validate(paymentDto, errors);
+        return errors;
+    }
+}
@@ -0,0 +1,71 @@
+package com.olexijko.paymentgw.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Summary of a measured run: a table printed to the console and the full percentile distribution of every request
+ * type written as {@code <type>.hgrm} files, which can be plotted with the HdrHistogram plotter.
+ */
+final class LatencyReport {
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final String ALL_REQUESTS = "ALL";
+
+    private final Map<RequestType, RequestStats> stats;
+    private final Duration duration;
+
+    LatencyReport(Map<RequestType, RequestStats> stats, Duration duration) {
+        this.stats = stats;
+        this.duration = duration;
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-10s %9s %9s %10s %7s %8s %9s %9s %9s %9s %9s %9s%n", "type", "count", "expected", "unexpected",
+                "errors", "skipped", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        final Histogram allLatencies = new Histogram(3);
+        long expectedCount = 0;
+        long unexpectedCount = 0;
+        long errorsCount = 0;
+        long skippedCount = 0;
+        for (Map.Entry<RequestType, RequestStats> typeStats : stats.entrySet()) {
+            final RequestStats requestStats = typeStats.getValue();
+            printRow(out, typeStats.getKey().name(), requestStats.getLatencies(), requestStats.getExpectedCount(),
+                    requestStats.getUnexpectedCount(), requestStats.getErrorsCount(), requestStats.getSkippedCount());
+            allLatencies.add(requestStats.getLatencies());
+            expectedCount += requestStats.getExpectedCount();
+            unexpectedCount += requestStats.getUnexpectedCount();
+            errorsCount += requestStats.getErrorsCount();
+            skippedCount += requestStats.getSkippedCount();
+        }
+        printRow(out, ALL_REQUESTS, allLatencies, expectedCount, unexpectedCount, errorsCount, skippedCount);
+    }
+
+    void write(Path outputDirectory) throws IOException {
+        Files.createDirectories(outputDirectory);
+        for (Map.Entry<RequestType, RequestStats> typeStats : stats.entrySet()) {
+            final Path reportFile = outputDirectory.resolve(typeStats.getKey().name().toLowerCase() + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(reportFile))) {
+                typeStats.getValue().getLatencies().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+    }
+
+    private void printRow(PrintStream out, String type, Histogram latencies, long expectedCount, long unexpectedCount,
+                          long errorsCount, long skippedCount) {
+        final long count = latencies.getTotalCount();
+        out.printf("%-10s %9d %9d %10d %7d %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", type, count, expectedCount,
+                unexpectedCount, errorsCount, skippedCount, count * 1000.0 / duration.toMillis(),
+                millis(latencies, 50), millis(latencies, 90), millis(latencies, 99), millis(latencies, 99.9),
+                latencies.getMaxValue() / MICROS_PER_MILLI);
+    }
+
+    private static double millis(Histogram latencies, double percentile) {
+        return latencies.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+}
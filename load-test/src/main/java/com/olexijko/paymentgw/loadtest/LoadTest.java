@@ -0,0 +1,58 @@
+package com.olexijko.paymentgw.loadtest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import com.olexijko.paymentgw.PaymentGatewayApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Load test of {@code POST /api/v1/payments} and {@code GET /api/v1/payments/{invoice}}. Unless a target url is given
+ * the service is started in the same JVM with the {@code loadtest} profile, which replaces PostgreSQL with H2 in
+ * PostgreSQL mode. See {@link LoadTestOptions} for the options:
+ * <pre>
+ * mvn -f load-test exec:exec -Dloadtest.args="--rate=500 --duration=PT2M --mix=new:50,duplicate:10,lookup:40"
+ * </pre>
+ */
+public final class LoadTest {
+    private static final String LOAD_TEST_PROFILE = "loadtest";
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final LoadTestOptions options = LoadTestOptions.parse(args);
+        ConfigurableApplicationContext embeddedService = null;
+        String baseUrl = options.getTargetUrl();
+        if (baseUrl == null) {
+            embeddedService = startEmbeddedService();
+            baseUrl = "http://localhost:" + embeddedService.getEnvironment().getProperty("local.server.port");
+        }
+        try (OpenLoopLoadGenerator loadGenerator = new OpenLoopLoadGenerator(baseUrl, options)) {
+            System.out.printf("Warming up %s for %s at %d req/s%n", baseUrl, options.getWarmup(), options.getRate());
+            loadGenerator.run(options.getWarmup());
+            System.out.printf("Measuring for %s at %d req/s%n", options.getDuration(), options.getRate());
+            final Map<RequestType, RequestStats> stats = loadGenerator.run(options.getDuration());
+            final LatencyReport report = new LatencyReport(stats, options.getDuration());
+            report.print(System.out);
+            report.write(options.getOutputDirectory());
+            System.out.printf("Latency distributions are written to '%s'%n", options.getOutputDirectory().toAbsolutePath());
+        } finally {
+            if (embeddedService != null) {
+                embeddedService.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startEmbeddedService() throws Exception {
+        final Path auditDirectory = Files.createTempDirectory("load-test-audit");
+        final SpringApplication application = new SpringApplication(PaymentGatewayApplication.class);
+        application.setAdditionalProfiles(LOAD_TEST_PROFILE);
+        return application.run(
+                "--server.port=0",
+                "--audit.sender.directory=" + auditDirectory.resolve("audit"),
+                "--audit.sender.overflow-directory=" + auditDirectory.resolve("audit-overflow"));
+    }
+}
@@ -0,0 +1,101 @@
+package com.olexijko.paymentgw.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line options of the load test, all given as {@code --name=value}:
+ * <ul>
+ *     <li>{@code rate} - requests per second sent regardless of how fast the service answers, default 200;</li>
+ *     <li>{@code duration} - measured run length as ISO-8601 duration, default PT60S;</li>
+ *     <li>{@code warmup} - run length before the measurement whose results are discarded, default PT15S;</li>
+ *     <li>{@code mix} - weights of request types, default {@code new:60,duplicate:10,lookup:30};</li>
+ *     <li>{@code target-url} - base url of an already running service, an embedded one is started if absent;</li>
+ *     <li>{@code output-dir} - directory for the HdrHistogram reports, default {@code target/load-test};</li>
+ *     <li>{@code max-in-flight} - requests waiting for an answer after which new ones are skipped, default 10000;</li>
+ *     <li>{@code seed} - seed of the request mix, default 42.</li>
+ * </ul>
+ */
+final class LoadTestOptions {
+    private final int rate;
+    private final Duration duration;
+    private final Duration warmup;
+    private final Map<RequestType, Integer> mix;
+    private final String targetUrl;
+    private final Path outputDirectory;
+    private final int maxInFlight;
+    private final long seed;
+
+    private LoadTestOptions(Map<String, String> options) {
+        this.rate = Integer.parseInt(options.getOrDefault("rate", "200"));
+        this.duration = Duration.parse(options.getOrDefault("duration", "PT60S"));
+        this.warmup = Duration.parse(options.getOrDefault("warmup", "PT15S"));
+        this.mix = parseMix(options.getOrDefault("mix", "new:60,duplicate:10,lookup:30"));
+        this.targetUrl = options.get("target-url");
+        this.outputDirectory = Path.of(options.getOrDefault("output-dir", "target/load-test"));
+        this.maxInFlight = Integer.parseInt(options.getOrDefault("max-in-flight", "10000"));
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        if (rate <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("rate and max-in-flight must be positive");
+        }
+    }
+
+    static LoadTestOptions parse(String[] args) {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            final int separatorIndex = arg.indexOf('=');
+            if (!arg.startsWith("--") || separatorIndex < 0) {
+                throw new IllegalArgumentException(String.format("Option '%s' is not in --name=value form", arg));
+            }
+            options.put(arg.substring(2, separatorIndex), arg.substring(separatorIndex + 1));
+        }
+        return new LoadTestOptions(options);
+    }
+
+    int getRate() {
+        return rate;
+    }
+
+    Duration getDuration() {
+        return duration;
+    }
+
+    Duration getWarmup() {
+        return warmup;
+    }
+
+    Map<RequestType, Integer> getMix() {
+        return mix;
+    }
+
+    String getTargetUrl() {
+        return targetUrl;
+    }
+
+    Path getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    private static Map<RequestType, Integer> parseMix(String mix) {
+        final Map<RequestType, Integer> weights = new EnumMap<>(RequestType.class);
+        for (String entry : mix.split(",")) {
+            final String[] typeAndWeight = entry.split(":");
+            weights.put(RequestType.valueOf(typeAndWeight[0].trim().toUpperCase()), Integer.parseInt(typeAndWeight[1].trim()));
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("mix must have at least one positive weight");
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,159 @@
+package com.olexijko.paymentgw.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a fixed rate no matter how fast the service answers, so a slow service is not hidden by a client
+ * that waits for it. Latency is measured from the moment a request was scheduled to be sent, not from when it was
+ * actually sent, which keeps queueing delays in the numbers (no coordinated omission).
+ * <p>
+ * Duplicate and lookup requests use invoices of new payments the service already approved. Until there are any,
+ * new payments are sent instead.
+ */
+final class OpenLoopLoadGenerator implements AutoCloseable {
+    private static final String PAYMENTS_PATH = "/api/v1/payments";
+    private static final String PAYMENT_TEMPLATE = "{\"invoice\":\"%s\",\"amount\":\"%d\",\"currency\":\"EUR\","
+            + "\"cardholder\":{\"name\":\"First Last\",\"email\":\"email@domain.com\"},"
+            + "\"card\":{\"pan\":\"4532011283777270\",\"expiry\":\"%s\",\"cvv\":\"123\"}}";
+    private static final int PROCESSED_INVOICES_CAPACITY = 1 << 16;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(60);
+
+    private final String paymentsUrl;
+    private final LoadTestOptions options;
+    private final ExecutorService responseExecutor;
+    private final HttpClient httpClient;
+    private final RequestType[] mixTable;
+    private final Random random;
+    private final Semaphore inFlightPermits;
+    private final String invoicePrefix = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX) + "-";
+    private final String expiry = LocalDate.now().plusYears(2).format(DateTimeFormatter.ofPattern("MMyy"));
+    private final AtomicLong nextInvoice = new AtomicLong();
+    private final AtomicLongArray processedInvoices = new AtomicLongArray(PROCESSED_INVOICES_CAPACITY);
+    private final AtomicLong processedInvoicesCount = new AtomicLong();
+
+    OpenLoopLoadGenerator(String baseUrl, LoadTestOptions options) {
+        this.paymentsUrl = baseUrl + PAYMENTS_PATH;
+        this.options = options;
+        this.responseExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(responseExecutor)
+                .build();
+        this.mixTable = buildMixTable(options.getMix());
+        this.random = new Random(options.getSeed());
+        this.inFlightPermits = new Semaphore(options.getMaxInFlight());
+    }
+
+    /**
+     * Sends requests for the given duration and waits until all of them are answered.
+     */
+    Map<RequestType, RequestStats> run(Duration duration) throws InterruptedException {
+        final Map<RequestType, RequestStats> stats = new EnumMap<>(RequestType.class);
+        for (RequestType requestType : RequestType.values()) {
+            stats.put(requestType, new RequestStats());
+        }
+        final long startNanos = System.nanoTime();
+        final long durationNanos = duration.toNanos();
+        for (long i = 0; ; i++) {
+            final long scheduledNanos = startNanos + i * TimeUnit.SECONDS.toNanos(1) / options.getRate();
+            if (scheduledNanos - startNanos >= durationNanos) {
+                break;
+            }
+            long waitNanos;
+            while ((waitNanos = scheduledNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            send(mixTable[random.nextInt(mixTable.length)], scheduledNanos, stats);
+        }
+        if (!inFlightPermits.tryAcquire(options.getMaxInFlight(), DRAIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Requests were not answered within " + DRAIN_TIMEOUT);
+        }
+        inFlightPermits.release(options.getMaxInFlight());
+        stats.values().forEach(RequestStats::finish);
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        responseExecutor.shutdownNow();
+    }
+
+    private void send(RequestType plannedType, long scheduledNanos, Map<RequestType, RequestStats> stats) {
+        final long knownInvoicesCount = Math.min(processedInvoicesCount.get(), PROCESSED_INVOICES_CAPACITY);
+        final RequestType requestType = knownInvoicesCount == 0 ? RequestType.NEW : plannedType;
+        final RequestStats requestStats = stats.get(requestType);
+        if (!inFlightPermits.tryAcquire()) {
+            requestStats.recordSkipped();
+            return;
+        }
+        final long invoice = requestType == RequestType.NEW
+                ? nextInvoice.incrementAndGet()
+                : processedInvoices.get(random.nextInt((int) knownInvoicesCount));
+        httpClient.sendAsync(buildRequest(requestType, invoice), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    final long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledNanos);
+                    if (error != null) {
+                        requestStats.recordError(latencyMicros);
+                    } else {
+                        recordResponse(requestType, invoice, response.statusCode(), latencyMicros, requestStats);
+                    }
+                    inFlightPermits.release();
+                });
+    }
+
+    private void recordResponse(RequestType requestType, long invoice, int statusCode, long latencyMicros,
+                                RequestStats requestStats) {
+        final boolean expected = statusCode == requestType.getExpectedStatus();
+        requestStats.recordResponse(latencyMicros, expected);
+        if (requestType == RequestType.NEW && expected) {
+            final long index = processedInvoicesCount.getAndIncrement() % PROCESSED_INVOICES_CAPACITY;
+            processedInvoices.set((int) index, invoice);
+        }
+    }
+
+    private HttpRequest buildRequest(RequestType requestType, long invoice) {
+        final String invoiceNumber = invoicePrefix + invoice;
+        if (requestType == RequestType.LOOKUP) {
+            return HttpRequest.newBuilder(URI.create(paymentsUrl + "/" + invoiceNumber))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+        }
+        // the amount must not end with a zero to pass validation
+        final String body = String.format(PAYMENT_TEMPLATE, invoiceNumber, (10 + invoice % 900) * 10 + 9, expiry);
+        return HttpRequest.newBuilder(URI.create(paymentsUrl))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static RequestType[] buildMixTable(Map<RequestType, Integer> mix) {
+        final RequestType[] table = new RequestType[mix.values().stream().mapToInt(Integer::intValue).sum()];
+        int position = 0;
+        for (Map.Entry<RequestType, Integer> weight : mix.entrySet()) {
+            for (int i = 0; i < weight.getValue(); i++) {
+                table[position++] = weight.getKey();
+            }
+        }
+        return table;
+    }
+}
@@ -0,0 +1,64 @@
+package com.olexijko.paymentgw.loadtest;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Outcomes and latencies of one request type, recorded concurrently by the response callbacks.
+ */
+final class RequestStats {
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder latencyRecorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final LongAdder expectedCount = new LongAdder();
+    private final LongAdder unexpectedCount = new LongAdder();
+    private final LongAdder errorsCount = new LongAdder();
+    private final LongAdder skippedCount = new LongAdder();
+    private Histogram latencies;
+
+    void recordResponse(long latencyMicros, boolean expected) {
+        latencyRecorder.recordValue(latencyMicros);
+        (expected ? expectedCount : unexpectedCount).increment();
+    }
+
+    void recordError(long latencyMicros) {
+        latencyRecorder.recordValue(latencyMicros);
+        errorsCount.increment();
+    }
+
+    void recordSkipped() {
+        skippedCount.increment();
+    }
+
+    /**
+     * Freezes the latencies recorded so far, must be called once after all requests of the run completed.
+     */
+    void finish() {
+        latencies = latencyRecorder.getIntervalHistogram();
+    }
+
+    /**
+     * @return latencies in microseconds measured from the moment the request was scheduled to be sent.
+     */
+    Histogram getLatencies() {
+        return latencies;
+    }
+
+    long getExpectedCount() {
+        return expectedCount.sum();
+    }
+
+    long getUnexpectedCount() {
+        return unexpectedCount.sum();
+    }
+
+    long getErrorsCount() {
+        return errorsCount.sum();
+    }
+
+    long getSkippedCount() {
+        return skippedCount.sum();
+    }
+}
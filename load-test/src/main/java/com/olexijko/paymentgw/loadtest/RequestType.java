@@ -0,0 +1,29 @@
+package com.olexijko.paymentgw.loadtest;
+
+/**
+ * Kinds of requests sent by the load test, together with the status a healthy service answers with.
+ */
+enum RequestType {
+    /**
+     * {@code POST} of a payment with an invoice that was never used.
+     */
+    NEW(200),
+    /**
+     * {@code POST} of a payment with an invoice that was already processed.
+     */
+    DUPLICATE(409),
+    /**
+     * {@code GET} of an already processed payment.
+     */
+    LOOKUP(200);
+
+    private final int expectedStatus;
+
+    RequestType(int expectedStatus) {
+        this.expectedStatus = expectedStatus;
+    }
+
+    int getExpectedStatus() {
+        return expectedStatus;
+    }
+}
@@ -0,0 +1,28 @@
+package com.olexijko.paymentgw.reactive;
+
+import com.olexijko.paymentgw.controller.PaymentControllerAdvice;
+import com.olexijko.paymentgw.mapper.PaymentMapper;
+import com.olexijko.paymentgw.service.AesGcmEncryptor;
+import com.olexijko.paymentgw.service.AuditSender;
+import com.olexijko.paymentgw.service.Base64Encryptor;
+import com.olexijko.paymentgw.service.PaymentCache;
+import com.olexijko.paymentgw.service.PaymentMetrics;
+import com.olexijko.paymentgw.service.audit.AuditSenderProperties;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+
+/**
+ * WebFlux and R2DBC variant of the payment API. Only the components of the shared jar which never block on the
+ * database are imported, the JPA based ones stay with {@link com.olexijko.paymentgw.PaymentGatewayApplication}.
+ */
+@SpringBootApplication
+@Import({PaymentMapper.class, Base64Encryptor.class, AesGcmEncryptor.class, PaymentCache.class, PaymentMetrics.class,
+        AuditSender.class, AuditSenderProperties.class, PaymentControllerAdvice.class})
+public class ReactivePaymentGatewayApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ReactivePaymentGatewayApplication.class, args);
+    }
+
+}
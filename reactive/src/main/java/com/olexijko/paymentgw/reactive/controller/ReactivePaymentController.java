@@ -0,0 +1,51 @@
+package com.olexijko.paymentgw.reactive.controller;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.dto.PaymentLookupRequestDto;
+import com.olexijko.paymentgw.dto.PaymentLookupResultDto;
+import com.olexijko.paymentgw.dto.PaymentProcessingResultDto;
+import com.olexijko.paymentgw.reactive.service.ReactivePaymentService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import static com.olexijko.paymentgw.reactive.controller.ReactivePaymentController.BASE_PATH;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * Same API as {@link com.olexijko.paymentgw.controller.PaymentController}, answered without blocking the event loop.
+ * Validation and error responses come from the shared {@link com.olexijko.paymentgw.controller.PaymentControllerAdvice}.
+ */
+@RestController
+@RequestMapping(BASE_PATH)
+public class ReactivePaymentController {
+    static final String BASE_PATH = "/api/v1/payments";
+
+    private final ReactivePaymentService paymentService;
+
+    public ReactivePaymentController(ReactivePaymentService paymentService) {
+        this.paymentService = paymentService;
+    }
+
+    @PostMapping(consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public Mono<PaymentProcessingResultDto> processNewPayment(@RequestBody @Valid Mono<PaymentDto> paymentDto) {
+        return paymentDto.flatMap(paymentService::processPayment);
+    }
+
+    @GetMapping(value = "/{invoiceNumber}", produces = APPLICATION_JSON_VALUE)
+    public Mono<PaymentDto> getPaymentByInvoiceNumber(@PathVariable @NotBlank String invoiceNumber) {
+        return paymentService.findPaymentByInvoice(invoiceNumber);
+    }
+
+    @PostMapping(value = "/lookup", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public Mono<PaymentLookupResultDto> lookupPayments(@RequestBody @Valid Mono<PaymentLookupRequestDto> paymentLookupRequestDto) {
+        return paymentLookupRequestDto.flatMap(request -> paymentService.findPaymentsByInvoices(request.getInvoices()));
+    }
+}
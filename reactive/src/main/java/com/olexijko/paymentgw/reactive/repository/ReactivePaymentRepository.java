@@ -0,0 +1,83 @@
+package com.olexijko.paymentgw.reactive.repository;
+
+import java.util.Collection;
+
+import com.olexijko.paymentgw.entity.Card;
+import com.olexijko.paymentgw.entity.Cardholder;
+import com.olexijko.paymentgw.entity.Payment;
+import com.olexijko.paymentgw.repository.PaymentView;
+import io.r2dbc.spi.Row;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Payments on the tables and sequences of the JPA stack, so both variants can share a database. Ids are taken with
+ * {@code nextval} one at a time, which stays clear of the blocks Hibernate reserves from the same sequences.
+ */
+@Repository
+public class ReactivePaymentRepository {
+    private static final String INSERT_CARDHOLDER = "insert into cardholder (id, name, email) "
+            + "values (nextval('cardholder_id_seq'), :name, :email)";
+    private static final String INSERT_CARD = "insert into card (id, pan, expiry_date) "
+            + "values (nextval('card_id_seq'), :pan, :expiryDate)";
+    // currval is bound to the connection, which the transaction keeps for all three inserts
+    private static final String INSERT_PAYMENT = "insert into payment (id, invoice, amount, currency, cardholder_id, card_id) "
+            + "values (nextval('payment_id_seq'), :invoice, :amount, :currency, currval('cardholder_id_seq'), currval('card_id_seq'))";
+    private static final String SELECT_VIEW = "select p.invoice, p.amount, p.currency, ch.name, ch.email, c.pan, c.expiry_date "
+            + "from payment p left join cardholder ch on ch.id = p.cardholder_id left join card c on c.id = p.card_id ";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+
+    public ReactivePaymentRepository(DatabaseClient databaseClient, TransactionalOperator transactionalOperator) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+    }
+
+    /**
+     * Inserts the payment with its cardholder and card in one transaction, a duplicate invoice fails with
+     * {@link org.springframework.dao.DataIntegrityViolationException} and leaves nothing behind.
+     */
+    public Mono<Payment> insert(Payment payment) {
+        final Cardholder cardholder = payment.getCardholder();
+        final Card card = payment.getCard();
+        return databaseClient.sql(INSERT_CARDHOLDER)
+                .bind("name", cardholder.getName())
+                .bind("email", cardholder.getEmail())
+                .fetch().rowsUpdated()
+                .then(databaseClient.sql(INSERT_CARD)
+                        .bind("pan", card.getPan())
+                        .bind("expiryDate", card.getExpiryDate())
+                        .fetch().rowsUpdated())
+                .then(databaseClient.sql(INSERT_PAYMENT)
+                        .bind("invoice", payment.getInvoice())
+                        .bind("amount", payment.getAmount())
+                        .bind("currency", payment.getCurrency())
+                        .fetch().rowsUpdated())
+                .as(transactionalOperator::transactional)
+                .thenReturn(payment);
+    }
+
+    public Mono<PaymentView> findViewByInvoice(String invoice) {
+        return databaseClient.sql(SELECT_VIEW + "where p.invoice = :invoice")
+                .bind("invoice", invoice)
+                .map((row, metadata) -> toView(row))
+                .one();
+    }
+
+    public Flux<PaymentView> findViewsByInvoiceIn(Collection<String> invoices) {
+        return databaseClient.sql(SELECT_VIEW + "where p.invoice in (:invoices)")
+                .bind("invoices", invoices)
+                .map((row, metadata) -> toView(row))
+                .all();
+    }
+
+    private static PaymentView toView(Row row) {
+        return new PaymentView(row.get("invoice", String.class), row.get("amount", Integer.class),
+                row.get("currency", String.class), row.get("name", String.class), row.get("email", String.class),
+                row.get("pan", String.class), row.get("expiry_date", String.class));
+    }
+}
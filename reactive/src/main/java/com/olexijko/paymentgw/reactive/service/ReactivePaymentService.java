@@ -0,0 +1,170 @@
+package com.olexijko.paymentgw.reactive.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.dto.PaymentLookupResultDto;
+import com.olexijko.paymentgw.dto.PaymentProcessingResultDto;
+import com.olexijko.paymentgw.entity.Payment;
+import com.olexijko.paymentgw.exception.DuplicatePaymentException;
+import com.olexijko.paymentgw.exception.PaymentNotFoundException;
+import com.olexijko.paymentgw.mapper.PaymentMapper;
+import com.olexijko.paymentgw.reactive.repository.ReactivePaymentRepository;
+import com.olexijko.paymentgw.repository.PaymentView;
+import com.olexijko.paymentgw.service.AuditSender;
+import com.olexijko.paymentgw.service.PaymentCache;
+import com.olexijko.paymentgw.service.PaymentMetrics;
+import com.olexijko.paymentgw.service.PaymentMetrics.LookupResult;
+import com.olexijko.paymentgw.service.PaymentMetrics.Outcome;
+import com.olexijko.paymentgw.service.PaymentMetrics.Stage;
+import com.olexijko.paymentgw.util.InvoiceChunks;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking counterpart of {@link com.olexijko.paymentgw.service.PaymentService} in insert-first mode. Mapping,
+ * encryption and cache access are short CPU work and stay on the event loop, database calls are R2DBC and the audit
+ * queue is only offered to. Once the audit queue is full the overflow policy may block, so the payment is handed to
+ * the bounded elastic scheduler instead.
+ * <p>
+ * There is no invoice filter, it is warmed up from JPA and only pays off for lookups of unknown invoices.
+ */
+@Service
+public class ReactivePaymentService {
+    private final ReactivePaymentRepository paymentRepository;
+    private final PaymentMapper paymentMapper;
+    private final PaymentCache paymentCache;
+    private final AuditSender auditSender;
+    private final PaymentMetrics paymentMetrics;
+
+    public ReactivePaymentService(ReactivePaymentRepository paymentRepository, PaymentMapper paymentMapper,
+                                  PaymentCache paymentCache, AuditSender auditSender, PaymentMetrics paymentMetrics) {
+        this.paymentRepository = paymentRepository;
+        this.paymentMapper = paymentMapper;
+        this.paymentCache = paymentCache;
+        this.auditSender = auditSender;
+        this.paymentMetrics = paymentMetrics;
+    }
+
+    public Mono<PaymentProcessingResultDto> processPayment(PaymentDto paymentDto) {
+        return Mono.defer(() -> {
+            final Payment payment = paymentMetrics.time(Stage.TO_ENTITY, () -> paymentMapper.toEntityFromDto(paymentDto));
+            return timed(Stage.SAVE, paymentRepository.insert(payment))
+                    .onErrorMap(DataIntegrityViolationException.class, e -> {
+                        if (!isInvoiceUniqueConstraintViolation(e)) {
+                            return e;
+                        }
+                        paymentMetrics.recordOutcome(Outcome.DUPLICATE, payment.getCurrency());
+                        return DuplicatePaymentException.forInvoice(payment.getInvoice());
+                    })
+                    .flatMap(this::approve);
+        });
+    }
+
+    public Mono<PaymentDto> findPaymentByInvoice(String invoice) {
+        return Mono.defer(() -> {
+            final PaymentDto cachedPaymentDto = paymentMetrics.time(Stage.CACHE, () -> paymentCache.get(invoice)).orElse(null);
+            if (cachedPaymentDto != null) {
+                paymentMetrics.recordLookup(LookupResult.CACHE_HIT);
+                return Mono.just(cachedPaymentDto);
+            }
+            return timed(Stage.REPOSITORY, paymentRepository.findViewByInvoice(invoice))
+                    .map(this::found)
+                    .switchIfEmpty(Mono.defer(() -> {
+                        paymentMetrics.recordLookup(LookupResult.NOT_FOUND);
+                        return Mono.error(PaymentNotFoundException.forInvoice(invoice));
+                    }));
+        });
+    }
+
+    /**
+     * Resolves the invoices from the cache first, the rest is queried in chunks of {@value InvoiceChunks#CHUNK_SIZE}
+     * invoices one after another, so a single lookup holds at most one connection.
+     */
+    public Mono<PaymentLookupResultDto> findPaymentsByInvoices(Collection<String> invoices) {
+        return Mono.defer(() -> {
+            final Map<String, PaymentDto> foundPayments = new LinkedHashMap<>();
+            final List<String> invoicesToLoad = new ArrayList<>();
+            for (String invoice : new LinkedHashSet<>(invoices)) {
+                final PaymentDto cachedPaymentDto = paymentCache.get(invoice).orElse(null);
+                if (cachedPaymentDto != null) {
+                    paymentMetrics.recordLookup(LookupResult.CACHE_HIT);
+                    foundPayments.put(invoice, cachedPaymentDto);
+                } else {
+                    invoicesToLoad.add(invoice);
+                }
+            }
+            return Flux.fromIterable(InvoiceChunks.of(invoicesToLoad))
+                    .concatMap(chunk -> timed(Stage.REPOSITORY_CHUNK,
+                            paymentRepository.findViewsByInvoiceIn(chunk).collectMap(PaymentView::getInvoice, Function.identity()))
+                            .map(loadedPayments -> {
+                                final List<String> missingInvoices = new ArrayList<>();
+                                for (String invoice : chunk) {
+                                    final PaymentView payment = loadedPayments.get(invoice);
+                                    if (payment == null) {
+                                        paymentMetrics.recordLookup(LookupResult.NOT_FOUND);
+                                        missingInvoices.add(invoice);
+                                    } else {
+                                        foundPayments.put(invoice, found(payment));
+                                    }
+                                }
+                                return missingInvoices;
+                            }))
+                    .collectList()
+                    .map(missingInvoicesByChunk -> {
+                        final List<String> missingInvoices = new ArrayList<>();
+                        missingInvoicesByChunk.forEach(missingInvoices::addAll);
+                        return new PaymentLookupResultDto(foundPayments, missingInvoices);
+                    });
+        });
+    }
+
+    private PaymentDto found(PaymentView payment) {
+        paymentMetrics.recordLookup(LookupResult.FOUND);
+        final PaymentDto paymentDto = paymentMetrics.time(Stage.LOOKUP_TO_DTO, () -> paymentMapper.toDtoFromView(payment));
+        paymentCache.put(paymentDto);
+        return paymentDto;
+    }
+
+    private Mono<PaymentProcessingResultDto> approve(Payment savedPayment) {
+        final PaymentDto savedPaymentDto = paymentMetrics.time(Stage.TO_DTO, () -> paymentMapper.toDtoFromEntity(savedPayment));
+        paymentCache.put(savedPaymentDto);
+        final boolean enqueued = paymentMetrics.time(Stage.AUDIT_ENQUEUE, () -> auditSender.trySendPayment(savedPaymentDto));
+        final Mono<Void> audit = enqueued ? Mono.empty()
+                : Mono.fromRunnable(() -> auditSender.sendPayment(savedPaymentDto)).subscribeOn(Schedulers.boundedElastic()).then();
+        return audit.then(Mono.fromSupplier(() -> {
+            paymentMetrics.recordOutcome(Outcome.APPROVED, savedPayment.getCurrency());
+            return PaymentProcessingResultDto.success();
+        }));
+    }
+
+    private <T> Mono<T> timed(Stage stage, Mono<T> action) {
+        return Mono.defer(() -> {
+            final long startNanos = System.nanoTime();
+            return action.doFinally(signal -> paymentMetrics.record(stage, System.nanoTime() - startNanos));
+        });
+    }
+
+    /**
+     * R2DBC drivers carry the violated constraint only in the message, PostgreSQL as the bare name and H2 as the name
+     * of the backing index.
+     */
+    private static boolean isInvoiceUniqueConstraintViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (StringUtils.containsIgnoreCase(cause.getMessage(), Payment.INVOICE_UNIQUE_CONSTRAINT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
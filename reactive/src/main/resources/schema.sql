@@ -0,0 +1,28 @@
+create sequence if not exists cardholder_id_seq start with 1 increment by 50;
+create sequence if not exists card_id_seq start with 1 increment by 50;
+create sequence if not exists payment_id_seq start with 1 increment by 50;
+
+create table if not exists cardholder (
+    id bigint not null,
+    email varchar(255),
+    name varchar(255),
+    primary key (id)
+);
+
+create table if not exists card (
+    id bigint not null,
+    expiry_date varchar(255),
+    pan varchar(255),
+    primary key (id)
+);
+
+create table if not exists payment (
+    id bigint not null,
+    amount integer,
+    currency varchar(255),
+    invoice varchar(255),
+    card_id bigint references card (id),
+    cardholder_id bigint references cardholder (id),
+    primary key (id),
+    constraint uk_payment_invoice unique (invoice)
+);
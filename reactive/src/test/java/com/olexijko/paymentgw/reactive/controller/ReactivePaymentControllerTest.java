@@ -0,0 +1,145 @@
+package com.olexijko.paymentgw.reactive.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.service.AuditSender;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///payment_gateway;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "audit.sender.flush.fsync=false"})
+class ReactivePaymentControllerTest {
+    private static final String PAYMENT_CONTROLLER_BASE_PATH = "/api/v1/payments";
+    private static final String VALID_CARD_EXPIRY_DATE = LocalDate.now().plusYears(1).format(DateTimeFormatter.ofPattern("MMyy"));
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @SpyBean
+    private AuditSender auditSender;
+
+    @DynamicPropertySource
+    static void auditDirectories(DynamicPropertyRegistry registry) {
+        final Path auditDirectory = createTempDirectory();
+        registry.add("audit.sender.directory", () -> auditDirectory.resolve("audit").toString());
+        registry.add("audit.sender.overflow-directory", () -> auditDirectory.resolve("audit-overflow").toString());
+    }
+
+    @Test
+    void processNewPayment_ReturnsApprovedAndAuditsPayment_WhenValidDataIsSent() {
+        postPayment(buildPayment("reactive-approved"))
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$.approved").isEqualTo(true);
+
+        verify(auditSender).trySendPayment(argThat(payment -> "reactive-approved".equals(payment.getInvoice())));
+    }
+
+    @Test
+    void processNewPayment_ReturnsConflict_WhenInvoiceWasPreviouslyProcessed() {
+        postPayment(buildPayment("reactive-duplicate")).expectStatus().isOk();
+
+        postPayment(buildPayment("reactive-duplicate"))
+                .expectStatus().isEqualTo(409)
+                .expectBody()
+                .jsonPath("$.approved").isEqualTo(false)
+                .jsonPath("$.errors.error").isEqualTo("Payment with invoice 'reactive-duplicate' was previously processed");
+    }
+
+    @Test
+    void processNewPayment_ReturnsBadRequest_WhenMandatoryPaymentFieldsAreEmpty() {
+        postPayment(Map.of())
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.approved").isEqualTo(false)
+                .jsonPath("$.errors.invoice").isEqualTo("Invoice is required.")
+                .jsonPath("$.errors.amount").isEqualTo("Amount is required.")
+                .jsonPath("$.errors.currency").isEqualTo("Currency is required.")
+                .jsonPath("$.errors.card").isEqualTo("Card info is required.")
+                .jsonPath("$.errors.cardholder").isEqualTo("Cardholder info is required.");
+    }
+
+    @Test
+    void getPaymentByInvoiceNumber_ReturnsMaskedPayment_WhenPaymentIsStored() {
+        postPayment(buildPayment("reactive-masked")).expectStatus().isOk();
+
+        webTestClient.get().uri(PAYMENT_CONTROLLER_BASE_PATH + "/reactive-masked").exchange()
+                .expectStatus().isOk()
+                .expectBody(PaymentDto.class)
+                .value(payment -> {
+                    assertEquals("************7270", payment.getCard().getPan());
+                    assertEquals("****", payment.getCard().getExpiry());
+                    assertEquals("**********", payment.getCardholder().getName());
+                    assertEquals("email@domain.com", payment.getCardholder().getEmail());
+                });
+    }
+
+    @Test
+    void getPaymentByInvoiceNumber_ReturnsNotFound_WhenPaymentIsNotStored() {
+        webTestClient.get().uri(PAYMENT_CONTROLLER_BASE_PATH + "/reactive-unknown").exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.errorMessage").isEqualTo("There is no processed payment with invoice 'reactive-unknown'");
+    }
+
+    @Test
+    void lookupPayments_ReturnsFoundAndMissingPayments_WhenInvoicesAreSent() {
+        postPayment(buildPayment("reactive-lookup")).expectStatus().isOk();
+
+        webTestClient.post().uri(PAYMENT_CONTROLLER_BASE_PATH + "/lookup").contentType(APPLICATION_JSON)
+                .bodyValue(Map.of("invoices", List.of("reactive-lookup", "reactive-lookup-missing"))).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.payments.reactive-lookup.card.pan").isEqualTo("************7270")
+                .jsonPath("$.missing[0]").isEqualTo("reactive-lookup-missing");
+    }
+
+    private WebTestClient.ResponseSpec postPayment(Map<String, Object> payment) {
+        return webTestClient.post().uri(PAYMENT_CONTROLLER_BASE_PATH).contentType(APPLICATION_JSON)
+                .bodyValue(payment).exchange();
+    }
+
+    private static Map<String, Object> buildPayment(String invoice) {
+        return Map.of(
+                "invoice", invoice,
+                "amount", "123",
+                "currency", "USD",
+                "cardholder", Map.of(
+                        "name", "First Last",
+                        "email", "email@domain.com"),
+                "card", Map.of(
+                        "pan", "4532011283777270",
+                        "expiry", VALID_CARD_EXPIRY_DATE,
+                        "cvv", "123"));
+    }
+
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("reactive-audit");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.olexijko.paymentgw.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Bounds the number of connections borrowed from the pool at the same time. Every borrowed connection holds a permit
+ * until it is closed, callers wait for a permit up to the acquire timeout and fail with
+ * {@link SQLTransientConnectionException} afterwards.
+ * <p>
+ * With a thread per request the Tomcat pool bounds the number of callers, on virtual threads every request could
+ * queue up in the connection pool and be cut off only by its connection timeout.
+ */
+public class ConcurrencyLimitingDataSource extends DelegatingDataSource implements MeterBinder {
+    private final int maxConcurrency;
+    private final long acquireTimeoutNanos;
+    private final Semaphore permits;
+    private volatile Counter rejectedCounter;
+
+    public ConcurrencyLimitingDataSource(DataSource targetDataSource, int maxConcurrency, Duration acquireTimeout) {
+        super(targetDataSource);
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be positive, but was " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquirePermit();
+        return guarded(() -> getTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquirePermit();
+        return guarded(() -> getTargetDataSource().getConnection(username, password));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        Gauge.builder("payment.datasource.permits.used", permits, semaphore -> maxConcurrency - semaphore.availablePermits())
+                .description("Connections borrowed through the concurrency guard")
+                .register(meterRegistry);
+        Gauge.builder("payment.datasource.permits.waiting", permits, Semaphore::getQueueLength)
+                .description("Callers waiting for a permit to borrow a connection")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("payment.datasource.permits.rejected")
+                .description("Callers failed because no permit was released within the acquire timeout")
+                .register(meterRegistry);
+    }
+
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private void acquirePermit() throws SQLException {
+        try {
+            if (permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection permit", e);
+        }
+        final Counter counter = rejectedCounter;
+        if (counter != null) {
+            counter.increment();
+        }
+        throw new SQLTransientConnectionException("No database connection permit was released within "
+                + Duration.ofNanos(acquireTimeoutNanos) + ", " + maxConcurrency + " connections are in use");
+    }
+
+    private Connection guarded(ConnectionSupplier connectionSupplier) throws SQLException {
+        final Connection connection;
+        try {
+            connection = connectionSupplier.get();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[] {ConnectionProxy.class}, new PermitReleasingHandler(connection));
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+
+    /**
+     * Releases the permit on the first close of the connection, so closing it twice does not free a permit of
+     * somebody else.
+     */
+    private final class PermitReleasingHandler implements InvocationHandler {
+        private final Connection target;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private PermitReleasingHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getTargetConnection":
+                    return target;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Guarded connection [" + target + "]";
+                case "close":
+                    try {
+                        target.close();
+                    } finally {
+                        if (released.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                    return null;
+                default:
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+            }
+        }
+    }
+}
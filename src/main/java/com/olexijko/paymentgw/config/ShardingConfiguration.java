@@ -0,0 +1,153 @@
+package com.olexijko.paymentgw.config;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import com.olexijko.paymentgw.entity.Payment;
+import com.olexijko.paymentgw.repository.PaymentRepository;
+import com.olexijko.paymentgw.repository.PaymentStore;
+import com.olexijko.paymentgw.repository.sharding.PaymentShard;
+import com.olexijko.paymentgw.repository.sharding.PaymentShardRebalancer;
+import com.olexijko.paymentgw.repository.sharding.PaymentShardingProperties;
+import com.olexijko.paymentgw.repository.sharding.ShardedPaymentRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.support.PersistenceExceptionTranslationInterceptor;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Partitioned mode: invoices are spread over {@code spring.datasource} and the shards listed in
+ * {@code payment.sharding.shards}. Every additional shard gets its own pool, persistence unit and transaction manager,
+ * so its schema and id sequences are managed exactly like the ones of the primary database.
+ * <p>
+ * The services reach the shards through the {@link PaymentStore} below, while the {@link PaymentRepository} bean keeps
+ * covering the primary database alone. Audit outbox entries are always written to the primary database, so only
+ * payments of its shard are saved atomically with them: a payment saved on another shard is committed before its
+ * outbox entry and may remain without one if the primary transaction fails afterwards.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "payment.sharding.enabled", havingValue = "true")
+@EnableConfigurationProperties(PaymentShardingProperties.class)
+public class ShardingConfiguration {
+
+    @Bean
+    public PaymentShards paymentShards(PaymentShardingProperties properties,
+                                       @Qualifier("paymentRepository") PaymentRepository primaryRepository,
+                                       EntityManagerFactory primaryEntityManagerFactory,
+                                       PlatformTransactionManager primaryTransactionManager,
+                                       EntityManagerFactoryBuilder entityManagerFactoryBuilder,
+                                       JpaProperties jpaProperties, HibernateProperties hibernateProperties) {
+        final Map<String, Object> vendorProperties = new LinkedHashMap<>(
+                hibernateProperties.determineHibernateProperties(jpaProperties.getProperties(), new HibernateSettings()));
+        final PaymentShards shards = new PaymentShards();
+        shards.add(new PaymentShard(PaymentShardingProperties.PRIMARY_SHARD_NAME, primaryRepository,
+                SharedEntityManagerCreator.createSharedEntityManager(primaryEntityManagerFactory), primaryTransactionManager));
+        for (PaymentShardingProperties.Shard shard : properties.getShards()) {
+            shards.add(shards.create(shard, entityManagerFactoryBuilder, vendorProperties));
+        }
+        return shards;
+    }
+
+    /**
+     * Preferred over the {@link PaymentRepository} of the primary database wherever a {@link PaymentStore} is injected.
+     */
+    @Bean
+    @Primary
+    public ShardedPaymentRepository shardedPaymentRepository(PaymentShards paymentShards, PaymentShardingProperties properties) {
+        final List<PaymentShard> previousShards = new ArrayList<>();
+        for (String name : properties.getPreviousShards()) {
+            previousShards.add(paymentShards.get(name));
+        }
+        return new ShardedPaymentRepository(paymentShards.getShards(), previousShards, properties.getPointsPerShard());
+    }
+
+    @Bean
+    public PaymentShardRebalancer paymentShardRebalancer(ShardedPaymentRepository shardedPaymentRepository,
+                                                         MeterRegistry meterRegistry, PaymentShardingProperties properties) {
+        return new PaymentShardRebalancer(shardedPaymentRepository, meterRegistry, properties.getRebalance().getBatchSize());
+    }
+
+    /**
+     * Owns the pools and persistence units of the additional shards and closes them on shutdown.
+     */
+    public static class PaymentShards implements DisposableBean {
+        private final List<PaymentShard> shards = new ArrayList<>();
+        private final List<LocalContainerEntityManagerFactoryBean> entityManagerFactories = new ArrayList<>();
+        private final List<HikariDataSource> dataSources = new ArrayList<>();
+
+        private void add(PaymentShard shard) {
+            if (shards.stream().anyMatch(existing -> existing.getName().equals(shard.getName()))) {
+                throw new IllegalStateException("Shard name '" + shard.getName() + "' is used more than once");
+            }
+            shards.add(shard);
+        }
+
+        public List<PaymentShard> getShards() {
+            return List.copyOf(shards);
+        }
+
+        public PaymentShard get(String name) {
+            return shards.stream()
+                    .filter(shard -> shard.getName().equals(name))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException(
+                            "Previous shard '" + name + "' is not configured, shards can only be added"));
+        }
+
+        private PaymentShard create(PaymentShardingProperties.Shard properties,
+                                    EntityManagerFactoryBuilder entityManagerFactoryBuilder,
+                                    Map<String, Object> vendorProperties) {
+            final HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(properties.getUrl())
+                    .username(properties.getUsername())
+                    .password(properties.getPassword())
+                    .build();
+            dataSource.setPoolName(properties.getName());
+            dataSource.setMaximumPoolSize(properties.getMaximumPoolSize());
+            dataSources.add(dataSource);
+            final LocalContainerEntityManagerFactoryBean entityManagerFactoryBean = entityManagerFactoryBuilder
+                    .dataSource(dataSource)
+                    .packages(Payment.class)
+                    .persistenceUnit(properties.getName())
+                    .properties(vendorProperties)
+                    .build();
+            entityManagerFactoryBean.afterPropertiesSet();
+            entityManagerFactories.add(entityManagerFactoryBean);
+            final EntityManagerFactory entityManagerFactory = entityManagerFactoryBean.getObject();
+            final EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+            final JpaRepositoryFactory repositoryFactory = new JpaRepositoryFactory(entityManager);
+            // Spring Data beans get exception translation from their factory bean, repositories created here need it too
+            repositoryFactory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                    proxyFactory.addAdvice(new PersistenceExceptionTranslationInterceptor(entityManagerFactoryBean)));
+            return new PaymentShard(properties.getName(), repositoryFactory.getRepository(PaymentRepository.class),
+                    entityManager, new JpaTransactionManager(entityManagerFactory));
+        }
+
+        @Override
+        public void destroy() {
+            entityManagerFactories.forEach(LocalContainerEntityManagerFactoryBean::destroy);
+            dataSources.forEach(HikariDataSource::close);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.olexijko.paymentgw.config;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs requests on a virtual thread each instead of the Tomcat worker pool. Blocked JDBC calls no longer hold a
+ * platform thread, so the database becomes the limit, which is why every connection is borrowed through a
+ * {@link ConcurrencyLimitingDataSource}. Only {@link DataSource} beans are wrapped, the shard databases created by
+ * {@link ShardingConfiguration} are bounded by their own pool size alone. The audit writer stays a platform thread.
+ * <p>
+ * Virtual threads need Java 21 at runtime, the service is still compiled for Java 11.
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "payment.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfiguration {
+    private static final String REQUEST_THREAD_PREFIX = "http-virtual-";
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadRequestExecutor() {
+        final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor(REQUEST_THREAD_PREFIX);
+        LOGGER.info("Requests are handled on virtual threads");
+        return executor;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(
+            ExecutorService virtualThreadRequestExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadRequestExecutor);
+    }
+
+    @Bean
+    public static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(
+            @Value("${payment.virtual-threads.db.max-concurrency:10}") int maxConcurrency,
+            @Value("${payment.virtual-threads.db.acquire-timeout:2s}") Duration acquireTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof ConcurrencyLimitingDataSource)) {
+                    return new ConcurrencyLimitingDataSource((DataSource) bean, maxConcurrency, acquireTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder concurrencyLimitingDataSourceMetrics(DataSource dataSource) throws SQLException {
+        return dataSource.unwrap(ConcurrencyLimitingDataSource.class);
+    }
+}
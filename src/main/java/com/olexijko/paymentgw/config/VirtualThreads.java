@@ -0,0 +1,80 @@
+package com.olexijko.paymentgw.config;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads of Java 21 while the service is still compiled for Java 11. The builder methods are looked
+ * up once, {@link #isSupported()} tells whether the running JVM has them.
+ */
+public final class VirtualThreads {
+    private static final int VIRTUAL_THREADS_VERSION = 21;
+    private static final MethodHandle OF_VIRTUAL;
+    private static final MethodHandle NAME_WITH_COUNTER;
+    private static final MethodHandle FACTORY;
+
+    static {
+        MethodHandle ofVirtual = null;
+        MethodHandle nameWithCounter = null;
+        MethodHandle factory = null;
+        if (Runtime.version().feature() >= VIRTUAL_THREADS_VERSION) {
+            try {
+                final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                final Class<?> virtualBuilderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+                ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(virtualBuilderClass));
+                nameWithCounter = lookup.findVirtual(virtualBuilderClass, "name",
+                        MethodType.methodType(virtualBuilderClass, String.class, long.class));
+                factory = lookup.findVirtual(builderClass, "factory", MethodType.methodType(ThreadFactory.class));
+            } catch (ReflectiveOperationException e) {
+                ofVirtual = null;
+            }
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME_WITH_COUNTER = nameWithCounter;
+        FACTORY = factory;
+    }
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * @return factory of virtual threads named {@code <namePrefix>0}, {@code <namePrefix>1} and so on.
+     * @throws IllegalStateException if the JVM has no virtual threads.
+     */
+    public static ThreadFactory threadFactory(String namePrefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads require Java " + VIRTUAL_THREADS_VERSION
+                    + " or later, the service runs on Java " + Runtime.version().feature());
+        }
+        try {
+            return (ThreadFactory) FACTORY.invoke(NAME_WITH_COUNTER.invoke(OF_VIRTUAL.invoke(), namePrefix, 0L));
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to create virtual thread factory", e);
+        }
+    }
+
+    /**
+     * @return executor starting a new virtual thread per task.
+     * @throws IllegalStateException if the JVM has no virtual threads.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        final ThreadFactory threadFactory = threadFactory(namePrefix);
+        try {
+            return (ExecutorService) MethodHandles.publicLookup()
+                    .findStatic(Executors.class, "newThreadPerTaskExecutor",
+                            MethodType.methodType(ExecutorService.class, ThreadFactory.class))
+                    .invoke(threadFactory);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to create virtual thread executor", e);
+        }
+    }
+}
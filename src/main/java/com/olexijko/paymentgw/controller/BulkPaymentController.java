@@ -0,0 +1,39 @@
+package com.olexijko.paymentgw.controller;
+
+import java.io.IOException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.olexijko.paymentgw.controller.documentation.DocPaymentController;
+import com.olexijko.paymentgw.controller.documentation.DocProcessPaymentsInBulk;
+import com.olexijko.paymentgw.service.BulkPaymentProcessor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.olexijko.paymentgw.controller.BulkPaymentController.BASE_PATH;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+
+@RestController
+@RequestMapping(BASE_PATH)
+@DocPaymentController
+public class BulkPaymentController {
+    static final String BASE_PATH = PaymentController.BASE_PATH + "/bulk";
+
+    private final BulkPaymentProcessor bulkPaymentProcessor;
+
+    public BulkPaymentController(BulkPaymentProcessor bulkPaymentProcessor) {
+        this.bulkPaymentProcessor = bulkPaymentProcessor;
+    }
+
+    /**
+     * Writes to the response directly, so results reach the client while the rest of the submission is still read.
+     */
+    @DocProcessPaymentsInBulk
+    @PostMapping(consumes = {APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE}, produces = APPLICATION_NDJSON_VALUE)
+    public void processPaymentsInBulk(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        bulkPaymentProcessor.process(request.getInputStream(), response.getOutputStream());
+    }
+}
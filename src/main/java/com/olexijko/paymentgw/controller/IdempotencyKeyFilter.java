@@ -0,0 +1,302 @@
+package com.olexijko.paymentgw.controller;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.olexijko.paymentgw.dto.PaymentProcessingResultDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import static org.springframework.http.HttpHeaders.LOCATION;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * Makes synchronous and asynchronous payment submissions carrying an {@value #IDEMPOTENCY_KEY_HEADER} header safe to
+ * retry. The first request with a key is processed, concurrent requests with the same key wait for its response
+ * instead of being processed again, and the response is kept for the configured TTL to answer later retries without
+ * validation or database access.
+ * <p>
+ * Only responses carrying a {@link PaymentProcessingResultDto} or an accepted submission are kept, so a retry after a
+ * server error is processed again. Validation failures are kept only for requests sending
+ * {@value #KEEP_VALIDATION_FAILURES_HEADER}{@code : true}, otherwise a retry with a corrected body under the same key
+ * is processed instead of being answered with the old error. Keys are scoped to the endpoint, a key reused for a
+ * different request body is rejected.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyKeyFilter extends OncePerRequestFilter {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final String KEEP_VALIDATION_FAILURES_HEADER = "Idempotency-Keep-Validation-Failures";
+    static final int MAX_KEY_LENGTH = 255;
+    static final String CACHE_NAME = "idempotent-responses";
+
+    private static final Set<String> PATHS = Set.of(PaymentController.BASE_PATH, PaymentSubmissionController.BASE_PATH);
+    private static final Set<Integer> STORED_STATUSES = Set.of(HttpStatus.OK.value(), HttpStatus.ACCEPTED.value(),
+            HttpStatus.CONFLICT.value());
+
+    private final ObjectMapper objectMapper;
+    private final Cache<String, StoredResponse> responses;
+    private final ConcurrentMap<String, CompletableFuture<StoredResponse>> inFlightResponses = new ConcurrentHashMap<>();
+    private final long inFlightTimeoutNanos;
+    private final Map<Result, Counter> resultCounters = new EnumMap<>(Result.class);
+
+    public IdempotencyKeyFilter(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                @Value("${payment.idempotency.max-size:100000}") long maxSize,
+                                @Value("${payment.idempotency.ttl:PT24H}") Duration ttl,
+                                @Value("${payment.idempotency.in-flight-timeout:10s}") Duration inFlightTimeout) {
+        this.objectMapper = objectMapper;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.inFlightTimeoutNanos = inFlightTimeout.toNanos();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, CACHE_NAME);
+        for (Result result : Result.values()) {
+            resultCounters.put(result, Counter.builder("payment.idempotency")
+                    .description("Payment submissions with an idempotency key by the way they were answered")
+                    .tag("result", result.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || !PATHS.contains(path(request))
+                || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        final String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST,
+                    String.format("%s must be 1 to %d characters long", IDEMPOTENCY_KEY_HEADER, MAX_KEY_LENGTH));
+            return;
+        }
+        final String key = path(request) + ' ' + idempotencyKey;
+        final CachedBodyRequest cachedBodyRequest = new CachedBodyRequest(request);
+        final byte[] fingerprint = fingerprint(cachedBodyRequest.body);
+        while (true) {
+            final StoredResponse storedResponse = responses.getIfPresent(key);
+            if (storedResponse != null) {
+                replay(idempotencyKey, storedResponse, fingerprint, response, Result.REPLAYED);
+                return;
+            }
+            final CompletableFuture<StoredResponse> ownResponse = new CompletableFuture<>();
+            final CompletableFuture<StoredResponse> inFlightResponse = inFlightResponses.putIfAbsent(key, ownResponse);
+            if (inFlightResponse == null) {
+                process(key, idempotencyKey, cachedBodyRequest, fingerprint, response, filterChain, ownResponse);
+                return;
+            }
+            final StoredResponse coalescedResponse;
+            try {
+                coalescedResponse = inFlightResponse.get(inFlightTimeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                resultCounters.get(Result.IN_FLIGHT_TIMEOUT).increment();
+                writeError(response, HttpStatus.CONFLICT,
+                        String.format("Request with %s '%s' is still being processed", IDEMPOTENCY_KEY_HEADER, idempotencyKey));
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException("Interrupted while waiting for request with the same idempotency key", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("In-flight responses are never completed exceptionally", e);
+            }
+            if (coalescedResponse != null) {
+                replay(idempotencyKey, coalescedResponse, fingerprint, response, Result.COALESCED);
+                return;
+            }
+            // the first request ended without a response worth keeping, so this one takes its place
+        }
+    }
+
+    private void process(String key, String idempotencyKey, CachedBodyRequest request, byte[] fingerprint, HttpServletResponse response,
+                         FilterChain filterChain, CompletableFuture<StoredResponse> ownResponse)
+            throws ServletException, IOException {
+        // the response may have been stored and its in-flight entry removed since the first look into the cache
+        final StoredResponse storedResponse = responses.getIfPresent(key);
+        if (storedResponse != null) {
+            inFlightResponses.remove(key, ownResponse);
+            ownResponse.complete(storedResponse);
+            replay(idempotencyKey, storedResponse, fingerprint, response, Result.REPLAYED);
+            return;
+        }
+        resultCounters.get(Result.PROCESSED).increment();
+        final ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        StoredResponse processedResponse = null;
+        try {
+            filterChain.doFilter(request, responseWrapper);
+            if (isStored(responseWrapper.getStatus(), request)) {
+                processedResponse = new StoredResponse(fingerprint, responseWrapper.getStatus(), responseWrapper.getContentType(),
+                        responseWrapper.getHeader(LOCATION), responseWrapper.getContentAsByteArray());
+                responses.put(key, processedResponse);
+            }
+        } finally {
+            // stored before the in-flight entry is removed, so a request arriving in between finds one of them
+            inFlightResponses.remove(key, ownResponse);
+            ownResponse.complete(processedResponse);
+            responseWrapper.copyBodyToResponse();
+        }
+    }
+
+    private static boolean isStored(int status, HttpServletRequest request) {
+        return STORED_STATUSES.contains(status)
+                || status == HttpStatus.BAD_REQUEST.value()
+                && Boolean.parseBoolean(request.getHeader(KEEP_VALIDATION_FAILURES_HEADER));
+    }
+
+    private void replay(String idempotencyKey, StoredResponse storedResponse, byte[] fingerprint, HttpServletResponse response,
+                        Result result) throws IOException {
+        if (!MessageDigest.isEqual(storedResponse.fingerprint, fingerprint)) {
+            resultCounters.get(Result.MISMATCH).increment();
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    String.format("%s '%s' was already used for a different payment", IDEMPOTENCY_KEY_HEADER, idempotencyKey));
+            return;
+        }
+        resultCounters.get(result).increment();
+        response.setStatus(storedResponse.status);
+        response.setContentType(storedResponse.contentType);
+        response.setHeader(IDEMPOTENT_REPLAYED_HEADER, Boolean.TRUE.toString());
+        if (storedResponse.location != null) {
+            response.setHeader(LOCATION, storedResponse.location);
+        }
+        response.setContentLength(storedResponse.body.length);
+        response.getOutputStream().write(storedResponse.body);
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), PaymentProcessingResultDto.failed(message));
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static byte[] fingerprint(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is supported by every Java platform", e);
+        }
+    }
+
+    private enum Result {
+        PROCESSED,
+        /**
+         * Answered from the kept response of a completed request.
+         */
+        REPLAYED,
+        /**
+         * Answered with the response of a request with the same key which was being processed concurrently.
+         */
+        COALESCED,
+        MISMATCH,
+        IN_FLIGHT_TIMEOUT
+    }
+
+    private static final class StoredResponse {
+        private final byte[] fingerprint;
+        private final int status;
+        private final String contentType;
+        private final String location;
+        private final byte[] body;
+
+        private StoredResponse(byte[] fingerprint, int status, String contentType, String location, byte[] body) {
+            this.fingerprint = fingerprint;
+            this.status = status;
+            this.contentType = contentType;
+            this.location = location;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Reads the body up front, it is needed to fingerprint the request before the request is processed.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = StreamUtils.copyToByteArray(request.getInputStream());
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            final ByteArrayInputStream inputStream = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return inputStream.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException("The body is already read");
+                }
+
+                @Override
+                public int read() {
+                    return inputStream.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return inputStream.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws UnsupportedEncodingException {
+            final String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), encoding));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.olexijko.paymentgw.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.olexijko.paymentgw.dto.ApiErrorResponseDto;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.dto.PaymentProcessingResultDto;
+import com.olexijko.paymentgw.exception.DuplicatePaymentException;
+import com.olexijko.paymentgw.exception.PaymentNotFoundException;
+import com.olexijko.paymentgw.service.PaymentMetrics;
+import com.olexijko.paymentgw.validator.PaymentDtoValidator;
+import com.olexijko.paymentgw.validator.TimedValidator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.Validator;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.WebDataBinder;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.InitBinder;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+/**
+ * Validation and error responses of the payment API, shared by every controller accepting or returning payments so
+ * payments submitted synchronously and asynchronously are validated and rejected the same way. The reactive variant
+ * imports it too, which is why binding failures of both web stacks are handled.
+ */
+@RestControllerAdvice
+public class PaymentControllerAdvice {
+    private final PaymentMetrics paymentMetrics;
+    private final boolean fastPathValidation;
+    private volatile PaymentDtoValidator paymentDtoValidator;
+
+    public PaymentControllerAdvice(PaymentMetrics paymentMetrics,
+                                   @Value("${payment.validation.fast-path.enabled:false}") boolean fastPathValidation) {
+        this.paymentMetrics = paymentMetrics;
+        this.fastPathValidation = fastPathValidation;
+    }
+
+    @InitBinder("paymentDto")
+    public void initPaymentDtoBinder(WebDataBinder binder) {
+        Validator validator = binder.getValidator();
+        if (fastPathValidation && validator instanceof javax.validation.Validator) {
+            validator = paymentDtoValidator((javax.validation.Validator) validator);
+        }
+        if (validator != null) {
+            binder.setValidator(new TimedValidator(validator, paymentMetrics));
+        }
+    }
+
+    /**
+     * Binders are initialized per request, while the fast path validator holds state worth keeping between them.
+     */
+    private PaymentDtoValidator paymentDtoValidator(javax.validation.Validator referenceValidator) {
+        PaymentDtoValidator validator = paymentDtoValidator;
+        if (validator == null) {
+            validator = new PaymentDtoValidator(referenceValidator);
+            paymentDtoValidator = validator;
+        }
+        return validator;
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public PaymentProcessingResultDto handleValidationExceptions(
+            MethodArgumentNotValidException e) {
+        return validationFailed(e.getBindingResult());
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(WebExchangeBindException.class)
+    public PaymentProcessingResultDto handleValidationExceptions(WebExchangeBindException e) {
+        return validationFailed(e.getBindingResult());
+    }
+
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ExceptionHandler(PaymentNotFoundException.class)
+    public ApiErrorResponseDto handlePaymentNotFoundException(PaymentNotFoundException e) {
+        return new ApiErrorResponseDto(e.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(DuplicatePaymentException.class)
+    public PaymentProcessingResultDto handleDuplicatePaymentException(DuplicatePaymentException e) {
+        return PaymentProcessingResultDto.failed(e.getMessage());
+    }
+
+    private PaymentProcessingResultDto validationFailed(BindingResult bindingResult) {
+        final Object target = bindingResult.getTarget();
+        if (target instanceof PaymentDto) {
+            paymentMetrics.recordOutcome(PaymentMetrics.Outcome.VALIDATION_FAILED, ((PaymentDto) target).getCurrency());
+        }
+        Map<String, String> errors = new LinkedHashMap<>();
+        bindingResult.getAllErrors().forEach((error) -> {
+            String fieldName = ((FieldError) error).getField();
+            String errorMessage = error.getDefaultMessage();
+            errors.put(fieldName, errorMessage);
+        });
+        return PaymentProcessingResultDto.failed(errors);
+    }
+}
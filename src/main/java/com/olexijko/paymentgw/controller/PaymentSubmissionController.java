@@ -0,0 +1,59 @@
+package com.olexijko.paymentgw.controller;
+
+import java.net.URI;
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+
+import com.olexijko.paymentgw.controller.documentation.DocGetPaymentSubmission;
+import com.olexijko.paymentgw.controller.documentation.DocPaymentController;
+import com.olexijko.paymentgw.controller.documentation.DocSubmitPayment;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.dto.PaymentSubmissionDto;
+import com.olexijko.paymentgw.service.PaymentSubmissionService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import static com.olexijko.paymentgw.controller.PaymentSubmissionController.BASE_PATH;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * Asynchronous variant of payment submission, payments are validated exactly like the ones submitted to
+ * {@link PaymentController} through {@link PaymentControllerAdvice}.
+ */
+@RestController
+@RequestMapping(BASE_PATH)
+@DocPaymentController
+@ConditionalOnProperty(name = "payment.async.enabled", havingValue = "true")
+public class PaymentSubmissionController {
+    static final String BASE_PATH = PaymentController.BASE_PATH + "/submissions";
+
+    private final PaymentSubmissionService paymentSubmissionService;
+
+    public PaymentSubmissionController(PaymentSubmissionService paymentSubmissionService) {
+        this.paymentSubmissionService = paymentSubmissionService;
+    }
+
+    @DocSubmitPayment
+    @PostMapping(consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity<PaymentSubmissionDto> submitPayment(@RequestBody @Valid PaymentDto paymentDto) {
+        final PaymentSubmissionDto submission = paymentSubmissionService.submit(paymentDto);
+        final URI statusUri = ServletUriComponentsBuilder.fromCurrentRequestUri()
+                .path("/{id}")
+                .buildAndExpand(submission.getId())
+                .toUri();
+        return ResponseEntity.accepted().location(statusUri).body(submission);
+    }
+
+    @DocGetPaymentSubmission
+    @GetMapping(value = "/{id}", produces = APPLICATION_JSON_VALUE)
+    public PaymentSubmissionDto getPaymentSubmission(@PathVariable @NotBlank String id) {
+        return paymentSubmissionService.findSubmission(id);
+    }
+}
@@ -0,0 +1,39 @@
+package com.olexijko.paymentgw.controller.documentation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.olexijko.paymentgw.dto.ApiErrorResponseDto;
+import com.olexijko.paymentgw.dto.PaymentSubmissionDto;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+
+@Operation(summary = "Retrieve the status and result of an asynchronously processed payment")
+@ApiResponses({
+        @ApiResponse(
+                responseCode = "200",
+                description = "Payment submission is found, the result is present once it is COMPLETED.",
+                content = {
+                        @Content(
+                                mediaType = "application/json",
+                                schema = @Schema(implementation = PaymentSubmissionDto.class))
+                }),
+        @ApiResponse(
+                responseCode = "404",
+                description = "There is no payment submission with given id, results are kept for a limited time.",
+                content = {
+                        @Content(
+                                mediaType = "application/json",
+                                schema = @Schema(implementation = ApiErrorResponseDto.class))
+                })
+})
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DocGetPaymentSubmission {
+}
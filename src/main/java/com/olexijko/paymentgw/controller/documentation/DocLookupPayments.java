@@ -0,0 +1,42 @@
+package com.olexijko.paymentgw.controller.documentation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.olexijko.paymentgw.dto.PaymentLookupRequestDto;
+import com.olexijko.paymentgw.dto.PaymentLookupResultDto;
+import com.olexijko.paymentgw.dto.PaymentProcessingResultDto;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+
+@Operation(summary = "Retrieve processed payment transactions by a list of invoice numbers")
+@RequestBody(content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaymentLookupRequestDto.class)))
+@ApiResponses({
+        @ApiResponse(
+                responseCode = "200",
+                description = "Found payment transactions by invoice number and invoice numbers without a payment transaction.",
+                content = {
+                        @Content(
+                                mediaType = "application/json",
+                                schema = @Schema(implementation = PaymentLookupResultDto.class))
+                }),
+        @ApiResponse(
+                responseCode = "400",
+                description = "Cannot process the given request because it is invalid.",
+                content = {
+                        @Content(
+                                mediaType = "application/json",
+                                schema = @Schema(implementation = PaymentProcessingResultDto.class))
+                })
+})
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DocLookupPayments {
+}
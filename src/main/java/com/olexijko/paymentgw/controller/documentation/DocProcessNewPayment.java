@@ -9,6 +9,8 @@ import com.olexijko.paymentgw.dto.PaymentDto;
 import com.olexijko.paymentgw.dto.PaymentProcessingResultDto;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
@@ -16,6 +18,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 
 @Operation(summary = "Submit a payment for processing")
+@Parameter(in = ParameterIn.HEADER, name = "Idempotency-Key", required = false,
+        description = "Key making retries of the submission safe, retries with the same key get the response of the first submission.")
 @RequestBody(content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaymentDto.class)))
 @ApiResponses({
         @ApiResponse(
@@ -37,6 +41,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
         @ApiResponse(
                 responseCode = "400",
                 description = "Cannot process the given request because it is invalid.",
+                content = {
+                        @Content(
+                                mediaType = "application/json",
+                                schema = @Schema(implementation = PaymentProcessingResultDto.class))
+                }),
+        @ApiResponse(
+                responseCode = "422",
+                description = "Payment processing rejected because given 'Idempotency-Key' was used for a different payment.",
                 content = {
                         @Content(
                                 mediaType = "application/json",
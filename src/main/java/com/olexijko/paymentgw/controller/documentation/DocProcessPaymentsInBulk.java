@@ -0,0 +1,37 @@
+package com.olexijko.paymentgw.controller.documentation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.olexijko.paymentgw.dto.BulkPaymentResultDto;
+import com.olexijko.paymentgw.dto.PaymentDto;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+
+@Operation(summary = "Submit payments for processing in bulk, as a JSON array or newline delimited JSON objects")
+@RequestBody(content = {
+        @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = PaymentDto.class))),
+        @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = PaymentDto.class))
+})
+@ApiResponses({
+        @ApiResponse(
+                responseCode = "200",
+                description = "Newline delimited result per submitted payment, streamed as payments are processed.",
+                content = {
+                        @Content(
+                                mediaType = "application/x-ndjson",
+                                schema = @Schema(implementation = BulkPaymentResultDto.class))
+                })
+})
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DocProcessPaymentsInBulk {
+}
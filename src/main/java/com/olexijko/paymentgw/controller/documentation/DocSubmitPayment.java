@@ -0,0 +1,44 @@
+package com.olexijko.paymentgw.controller.documentation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.dto.PaymentProcessingResultDto;
+import com.olexijko.paymentgw.dto.PaymentSubmissionDto;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.headers.Header;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+
+@Operation(summary = "Submit a payment for asynchronous processing")
+@RequestBody(content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaymentDto.class)))
+@ApiResponses({
+        @ApiResponse(
+                responseCode = "202",
+                description = "Payment is accepted for processing, its result is available at the 'Location' URL.",
+                headers = @Header(name = "Location", description = "URL of the payment submission status."),
+                content = {
+                        @Content(
+                                mediaType = "application/json",
+                                schema = @Schema(implementation = PaymentSubmissionDto.class))
+                }),
+        @ApiResponse(
+                responseCode = "400",
+                description = "Cannot process the given request because it is invalid.",
+                content = {
+                        @Content(
+                                mediaType = "application/json",
+                                schema = @Schema(implementation = PaymentProcessingResultDto.class))
+                })
+})
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DocSubmitPayment {
+}
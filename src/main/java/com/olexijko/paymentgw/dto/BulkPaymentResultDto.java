@@ -0,0 +1,21 @@
+package com.olexijko.paymentgw.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+/**
+ * Result of a single payment of a bulk submission, {@code index} is the position of the payment in the submission.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(NON_NULL)
+public class BulkPaymentResultDto {
+    private final int index;
+    private final String invoice;
+    @JsonUnwrapped
+    private final PaymentProcessingResultDto result;
+}
@@ -0,0 +1,25 @@
+package com.olexijko.paymentgw.dto;
+
+import java.util.List;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentLookupRequestDto {
+    public static final int MAX_INVOICES = 1000;
+
+    @NotEmpty(message = "Invoices are required.")
+    @Size(max = MAX_INVOICES, message = "At most " + MAX_INVOICES + " invoices can be looked up at once.")
+    private List<@NotBlank(message = "Invoice is required.") String> invoices;
+}
@@ -0,0 +1,17 @@
+package com.olexijko.paymentgw.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Processed payments found by invoice, together with the requested invoices no payment was processed with.
+ */
+@Getter
+@AllArgsConstructor
+public class PaymentLookupResultDto {
+    private final Map<String, PaymentDto> payments;
+    private final List<String> missing;
+}
@@ -0,0 +1,20 @@
+package com.olexijko.paymentgw.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.olexijko.paymentgw.entity.PaymentSubmission;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+/**
+ * State of an asynchronously processed payment, the result is the one a synchronous submission would be answered with.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(NON_NULL)
+public class PaymentSubmissionDto {
+    private final String id;
+    private final PaymentSubmission.Status status;
+    private final PaymentProcessingResultDto result;
+}
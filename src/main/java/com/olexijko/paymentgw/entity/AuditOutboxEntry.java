@@ -0,0 +1,47 @@
+package com.olexijko.paymentgw.entity;
+
+import java.time.Instant;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Audit record of a saved payment waiting to be relayed to the audit log. It is inserted in the transaction of the
+ * payment and holds the same columns as {@link com.olexijko.paymentgw.repository.PaymentView}, card data is as stored.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditOutboxEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_outbox_entry_id_seq")
+    @SequenceGenerator(name = "audit_outbox_entry_id_seq", sequenceName = "audit_outbox_entry_id_seq", allocationSize = 50)
+    private Long id;
+
+    private String invoice;
+
+    private Integer amount;
+
+    private String currency;
+
+    private String cardholderName;
+
+    private String cardholderEmail;
+
+    private String cardPan;
+
+    private String cardExpiryDate;
+
+    private Instant createdAt;
+}
@@ -2,7 +2,9 @@ package com.olexijko.paymentgw.entity;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,7 +20,8 @@ import lombok.Setter;
 @AllArgsConstructor
 public class Cardholder {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cardholder_id_seq")
+    @SequenceGenerator(name = "cardholder_id_seq", sequenceName = "cardholder_id_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -0,0 +1,80 @@
+package com.olexijko.paymentgw.entity;
+
+import java.time.Instant;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Payment accepted for asynchronous processing. Until it is processed the submission holds the encrypted request
+ * without the CVV and becomes available to workers at {@code availableAt}, afterwards it holds the processing result.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = @Index(name = "ix_payment_submission_available", columnList = "status, availableAt"))
+public class PaymentSubmission implements Persistable<String> {
+    public static final int PAYLOAD_MAX_LENGTH = 4096;
+
+    @Id
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @Column(length = PAYLOAD_MAX_LENGTH)
+    private String payload;
+
+    private Boolean approved;
+
+    @Column(length = PAYLOAD_MAX_LENGTH)
+    private String errors;
+
+    private int attempts;
+
+    private Instant createdAt;
+
+    private Instant availableAt;
+
+    private Instant completedAt;
+
+    /**
+     * Ids are generated up front, this saves the select Spring Data would otherwise run to tell an insert from an update.
+     */
+    @Transient
+    @Builder.Default
+    private boolean newSubmission = true;
+
+    @Override
+    public boolean isNew() {
+        return newSubmission;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        newSubmission = false;
+    }
+
+    public enum Status {
+        PENDING,
+        COMPLETED
+    }
+}
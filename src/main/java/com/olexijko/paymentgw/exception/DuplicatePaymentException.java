@@ -4,4 +4,8 @@ public class DuplicatePaymentException extends RuntimeException {
     public DuplicatePaymentException(String message) {
         super(message);
     }
+
+    public static DuplicatePaymentException forInvoice(String invoice) {
+        return new DuplicatePaymentException(String.format("Payment with invoice '%s' was previously processed", invoice));
+    }
 }
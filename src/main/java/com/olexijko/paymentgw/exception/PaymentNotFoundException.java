@@ -4,4 +4,8 @@ public class PaymentNotFoundException extends RuntimeException {
     public PaymentNotFoundException(String message) {
         super(message);
     }
+
+    public static PaymentNotFoundException forInvoice(String invoice) {
+        return new PaymentNotFoundException(String.format("There is no processed payment with invoice '%s'", invoice));
+    }
 }
@@ -6,6 +6,7 @@ import com.olexijko.paymentgw.dto.PaymentDto;
 import com.olexijko.paymentgw.entity.Card;
 import com.olexijko.paymentgw.entity.Cardholder;
 import com.olexijko.paymentgw.entity.Payment;
+import com.olexijko.paymentgw.repository.PaymentView;
 import com.olexijko.paymentgw.service.Encryptor;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Component;
@@ -41,6 +42,31 @@ public class PaymentMapper {
                 .build();
     }
 
+    /**
+     * Same result as {@link #toDtoFromEntity} for the payment the view was selected from. A view of a payment without
+     * cardholder or card has all of their columns null.
+     */
+    public PaymentDto toDtoFromView(PaymentView view) {
+        if (view == null) {
+            return null;
+        }
+        final boolean hasCardholder = view.getCardholderName() != null || view.getCardholderEmail() != null;
+        final boolean hasCard = view.getCardPan() != null || view.getCardExpiryDate() != null;
+        return PaymentDto.builder()
+                .invoice(view.getInvoice())
+                .amount(view.getAmount() == null ? null : String.valueOf(view.getAmount()))
+                .currency(view.getCurrency())
+                .card(hasCard ? CardDto.builder()
+                        .pan(sanitizePan(encryptor.decrypt(view.getCardPan())))
+                        .expiry(sanitizeEntireValue(encryptor.decrypt(view.getCardExpiryDate())))
+                        .build() : null)
+                .cardholder(hasCardholder ? CardholderDto.builder()
+                        .email(view.getCardholderEmail())
+                        .name(sanitizeEntireValue(encryptor.decrypt(view.getCardholderName())))
+                        .build() : null)
+                .build();
+    }
+
     private CardholderDto toCardholderDtoFromEntity(Cardholder entity) {
         return entity == null ? null : CardholderDto.builder()
                 .email(entity.getEmail())
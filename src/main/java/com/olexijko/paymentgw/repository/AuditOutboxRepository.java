@@ -0,0 +1,29 @@
+package com.olexijko.paymentgw.repository;
+
+import java.util.List;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import com.olexijko.paymentgw.entity.AuditOutboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+public interface AuditOutboxRepository extends CrudRepository<AuditOutboxEntry, Long> {
+    /**
+     * Locks the oldest entries, skipping the ones locked by relays of other instances. Must be called in a transaction,
+     * the rows stay locked until it ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = PaymentSubmissionRepository.SKIP_LOCKED))
+    @Query("select e from AuditOutboxEntry e order by e.id")
+    List<AuditOutboxEntry> findOldestForUpdate(Pageable pageable);
+
+    @Modifying
+    @Query("delete from AuditOutboxEntry e where e.id in :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
+}
@@ -0,0 +1,22 @@
+package com.olexijko.paymentgw.repository;
+
+import com.olexijko.paymentgw.entity.Payment;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+/**
+ * Recognizes violations of {@link Payment#INVOICE_UNIQUE_CONSTRAINT}, the duplicate check of every payment write.
+ */
+public final class InvoiceUniqueConstraint {
+
+    private InvoiceUniqueConstraint() {
+    }
+
+    public static boolean isViolatedBy(DataIntegrityViolationException e) {
+        final ConstraintViolationException violation = ExceptionUtils.throwableOfType(e, ConstraintViolationException.class);
+        // PostgreSQL reports the bare constraint name, H2 wraps it into the name of the backing index
+        return violation != null && StringUtils.containsIgnoreCase(violation.getConstraintName(), Payment.INVOICE_UNIQUE_CONSTRAINT);
+    }
+}
@@ -1,11 +1,47 @@
 package com.olexijko.paymentgw.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 
 import com.olexijko.paymentgw.entity.Payment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
-public interface PaymentRepository extends CrudRepository<Payment, Long> {
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
+public interface PaymentRepository extends CrudRepository<Payment, Long>, PaymentStore {
+
+    @Override
+    <S extends Payment> S save(S payment);
+
+    @Override
+    <S extends Payment> Iterable<S> saveAll(Iterable<S> payments);
+
+    @Override
     Optional<Payment> findByInvoice(String invoice);
+
+    @Override
+    @Query(PaymentView.SELECT + "where p.invoice = :invoice")
+    Optional<PaymentView> findViewByInvoice(@Param("invoice") String invoice);
+
+    @Override
+    @Query(PaymentView.SELECT + "where p.invoice in :invoices")
+    List<PaymentView> findViewsByInvoiceIn(@Param("invoices") Collection<String> invoices);
+
+    @Override
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.invoice from Payment p")
+    Stream<String> streamAllInvoices();
+
+    /**
+     * Pages through the invoices in their natural order, the last invoice of a page is the start of the next one.
+     */
+    @Query("select p.invoice from Payment p where p.invoice > :invoice order by p.invoice")
+    List<String> findInvoicesAfter(@Param("invoice") String invoice, Pageable pageable);
 }
@@ -0,0 +1,31 @@
+package com.olexijko.paymentgw.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import com.olexijko.paymentgw.entity.Payment;
+
+/**
+ * Invoice keyed operations the services need, implemented by {@link PaymentRepository} and, in the partitioned mode,
+ * by the sharded repository spreading payments over several databases. Payment ids are not part of it, since they are
+ * only unique within a database.
+ */
+public interface PaymentStore {
+
+    <S extends Payment> S save(S payment);
+
+    <S extends Payment> Iterable<S> saveAll(Iterable<S> payments);
+
+    Optional<Payment> findByInvoice(String invoice);
+
+    Optional<PaymentView> findViewByInvoice(String invoice);
+
+    List<PaymentView> findViewsByInvoiceIn(Collection<String> invoices);
+
+    /**
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    Stream<String> streamAllInvoices();
+}
@@ -0,0 +1,54 @@
+package com.olexijko.paymentgw.repository;
+
+import java.time.Instant;
+import java.util.List;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import com.olexijko.paymentgw.entity.PaymentSubmission;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+public interface PaymentSubmissionRepository extends CrudRepository<PaymentSubmission, String> {
+    /**
+     * Lock timeout hint value Hibernate renders as {@code for update skip locked} on databases supporting it.
+     */
+    String SKIP_LOCKED = "-2";
+
+    /**
+     * Locks pending submissions available at {@code now}, skipping the ones locked by other workers. Must be called in
+     * a transaction, the rows stay locked until it ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = SKIP_LOCKED))
+    @Query("select s from PaymentSubmission s where s.status = 'PENDING' and s.availableAt <= :now order by s.availableAt")
+    List<PaymentSubmission> findAvailableForUpdate(@Param("now") Instant now, Pageable pageable);
+
+    @Modifying
+    @Query("update PaymentSubmission s set s.availableAt = :availableAt, s.attempts = s.attempts + 1 where s.id in :ids")
+    int lease(@Param("ids") List<String> ids, @Param("availableAt") Instant availableAt);
+
+    @Modifying
+    @Query("update PaymentSubmission s set s.availableAt = :availableAt where s.id = :id and s.status = 'PENDING'")
+    int retryAt(@Param("id") String id, @Param("availableAt") Instant availableAt);
+
+    /**
+     * Stores the result and drops the card data of a submission which is still pending.
+     *
+     * @return 0 when the submission was already completed by a worker holding an expired lease.
+     */
+    @Modifying
+    @Query("update PaymentSubmission s set s.status = 'COMPLETED', s.approved = :approved, s.errors = :errors, "
+            + "s.payload = null, s.completedAt = :completedAt where s.id = :id and s.status = 'PENDING'")
+    int complete(@Param("id") String id, @Param("approved") boolean approved, @Param("errors") String errors,
+                 @Param("completedAt") Instant completedAt);
+
+    @Modifying
+    @Query("delete from PaymentSubmission s where s.status = 'COMPLETED' and s.completedAt < :completedBefore")
+    int deleteCompletedBefore(@Param("completedBefore") Instant completedBefore);
+}
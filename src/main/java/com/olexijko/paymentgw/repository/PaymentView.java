@@ -0,0 +1,24 @@
+package com.olexijko.paymentgw.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Flat read-only row of a payment joined with its cardholder and card, card data is as stored. Instances are created
+ * by JPQL constructor expressions, so they are never managed by the persistence context.
+ */
+@Getter
+@AllArgsConstructor
+public class PaymentView {
+    static final String SELECT = "select new com.olexijko.paymentgw.repository.PaymentView("
+            + "p.invoice, p.amount, p.currency, ch.name, ch.email, c.pan, c.expiryDate) "
+            + "from Payment p left join p.cardholder ch left join p.card c ";
+
+    private final String invoice;
+    private final Integer amount;
+    private final String currency;
+    private final String cardholderName;
+    private final String cardholderEmail;
+    private final String cardPan;
+    private final String cardExpiryDate;
+}
@@ -0,0 +1,84 @@
+package com.olexijko.paymentgw.repository.sharding;
+
+import java.util.function.Supplier;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+
+import com.olexijko.paymentgw.repository.PaymentRepository;
+import org.springframework.dao.DataAccessException;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * One database holding a part of the payments, with the repository, entity manager and transaction manager bound to
+ * it. Every call to the repository has to run in {@link #inTransaction}, since the repositories of additional shards
+ * are not wrapped into transactional proxies.
+ */
+public class PaymentShard {
+    private static final HibernateJpaDialect JPA_DIALECT = new HibernateJpaDialect();
+
+    private final String name;
+    private final PaymentRepository repository;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public PaymentShard(String name, PaymentRepository repository, EntityManager entityManager,
+                        PlatformTransactionManager transactionManager) {
+        this.name = name;
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.transactionManager = transactionManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public PaymentRepository getRepository() {
+        return repository;
+    }
+
+    /**
+     * Runs the action in a transaction of this shard, joining one already running on it.
+     */
+    public <T> T inTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> action.get());
+    }
+
+    /**
+     * Starts a read-only transaction which the caller has to finish with {@link #commit}, for results like streams
+     * which are consumed after the call returns.
+     */
+    TransactionStatus beginReadOnly() {
+        final DefaultTransactionDefinition definition = new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRED);
+        definition.setReadOnly(true);
+        return transactionManager.getTransaction(definition);
+    }
+
+    void commit(TransactionStatus status) {
+        transactionManager.commit(status);
+    }
+
+    /**
+     * Sends pending inserts of the current transaction, so constraint violations surface before other shards commit.
+     */
+    void flush() {
+        try {
+            entityManager.flush();
+        } catch (PersistenceException e) {
+            final DataAccessException translated = JPA_DIALECT.translateExceptionIfPossible(e);
+            throw translated != null ? translated : e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
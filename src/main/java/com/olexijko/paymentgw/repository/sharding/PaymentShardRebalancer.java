@@ -0,0 +1,126 @@
+package com.olexijko.paymentgw.repository.sharding;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.olexijko.paymentgw.entity.Card;
+import com.olexijko.paymentgw.entity.Cardholder;
+import com.olexijko.paymentgw.entity.Payment;
+import com.olexijko.paymentgw.repository.InvoiceUniqueConstraint;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Moves payments to the shard owning their invoice after shards were added. Every shard is paged through by invoice
+ * and each misplaced payment is copied to its owner before it is deleted from its previous shard, so an invoice is
+ * always found on at least one of them. A copy failing on the unique invoice constraint was made by an interrupted
+ * run, which makes rebalancing safe to repeat.
+ */
+@Slf4j
+public class PaymentShardRebalancer {
+    private static final String THREAD_NAME = "payment-shard-rebalancer";
+
+    private final ShardedPaymentRepository shardedPaymentRepository;
+    private final int batchSize;
+    private final AtomicLong movedPaymentsCount = new AtomicLong();
+
+    public PaymentShardRebalancer(ShardedPaymentRepository shardedPaymentRepository, MeterRegistry meterRegistry, int batchSize) {
+        this.shardedPaymentRepository = shardedPaymentRepository;
+        this.batchSize = batchSize;
+        Gauge.builder("payment.sharding.rebalance.moved", movedPaymentsCount, AtomicLong::get)
+                .description("Payments moved to the shard owning their invoice")
+                .register(meterRegistry);
+        Gauge.builder("payment.sharding.rebalancing", shardedPaymentRepository, repository -> repository.isRebalancing() ? 1 : 0)
+                .description("Whether payments are being moved to added shards")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRebalancing() {
+        if (shardedPaymentRepository.isRebalancing()) {
+            final Thread rebalancerThread = new Thread(this::rebalance, THREAD_NAME);
+            rebalancerThread.setDaemon(true);
+            rebalancerThread.start();
+        }
+    }
+
+    /**
+     * Moves every misplaced payment and ends the fallback to the previous shards, a failure leaves the fallback on.
+     */
+    public void rebalance() {
+        LOGGER.info("Rebalancing payments to shards {}", shardedPaymentRepository.getShards());
+        try {
+            for (PaymentShard shard : shardedPaymentRepository.getShards()) {
+                rebalance(shard);
+            }
+            shardedPaymentRepository.finishRebalancing();
+            LOGGER.info("Rebalancing is finished, {} payments were moved, payment.sharding.previous-shards can be removed",
+                    movedPaymentsCount.get());
+        } catch (RuntimeException e) {
+            LOGGER.error("Rebalancing failed after {} payments were moved, it is repeated on the next start", movedPaymentsCount.get(), e);
+        }
+    }
+
+    private void rebalance(PaymentShard shard) {
+        String lastInvoice = StringUtils.EMPTY;
+        List<String> invoices;
+        do {
+            final String after = lastInvoice;
+            invoices = shard.inTransaction(() -> shard.getRepository().findInvoicesAfter(after, PageRequest.of(0, batchSize)));
+            for (String invoice : invoices) {
+                final PaymentShard owner = shardedPaymentRepository.shardFor(invoice);
+                if (owner != shard) {
+                    move(invoice, shard, owner);
+                }
+            }
+            if (!invoices.isEmpty()) {
+                lastInvoice = invoices.get(invoices.size() - 1);
+            }
+        } while (invoices.size() == batchSize);
+    }
+
+    private void move(String invoice, PaymentShard source, PaymentShard target) {
+        final Payment payment = source.inTransaction(() -> source.getRepository().findByInvoice(invoice)).orElse(null);
+        if (payment == null) {
+            return;
+        }
+        try {
+            target.inTransaction(() -> target.getRepository().save(copy(payment)));
+        } catch (DataIntegrityViolationException e) {
+            if (!InvoiceUniqueConstraint.isViolatedBy(e)) {
+                throw e;
+            }
+            LOGGER.debug("Payment with invoice '{}' was already copied to shard '{}'", invoice, target.getName());
+        }
+        source.inTransaction(() -> {
+            source.getRepository().findByInvoice(invoice).ifPresent(source.getRepository()::delete);
+            return null;
+        });
+        movedPaymentsCount.incrementAndGet();
+    }
+
+    /**
+     * Card data is copied as stored, ids are generated by the sequences of the target shard.
+     */
+    private static Payment copy(Payment payment) {
+        return Payment.builder()
+                .invoice(payment.getInvoice())
+                .amount(payment.getAmount())
+                .currency(payment.getCurrency())
+                .cardholder(payment.getCardholder() == null ? null : Cardholder.builder()
+                        .name(payment.getCardholder().getName())
+                        .email(payment.getCardholder().getEmail())
+                        .build())
+                .card(payment.getCard() == null ? null : Card.builder()
+                        .pan(payment.getCard().getPan())
+                        .expiryDate(payment.getCard().getExpiryDate())
+                        .build())
+                .build();
+    }
+}
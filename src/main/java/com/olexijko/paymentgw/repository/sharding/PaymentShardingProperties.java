@@ -0,0 +1,44 @@
+package com.olexijko.paymentgw.repository.sharding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Shards of the partitioned mode. The database of {@code spring.datasource} is always {@value #PRIMARY_SHARD_NAME},
+ * further shards are listed with their own connection. Shard names place the shards on the hash ring, so a shard must
+ * keep its name for as long as it holds payments.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "payment.sharding")
+public class PaymentShardingProperties {
+    public static final String PRIMARY_SHARD_NAME = "shard-0";
+
+    private int pointsPerShard = 128;
+    private final List<Shard> shards = new ArrayList<>();
+    /**
+     * Names of the shards before shards were added, set until the rebalancing to the current shards is finished.
+     */
+    private final List<String> previousShards = new ArrayList<>();
+    private final Rebalance rebalance = new Rebalance();
+
+    @Getter
+    @Setter
+    public static class Shard {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+
+    @Getter
+    @Setter
+    public static class Rebalance {
+        private int batchSize = 500;
+    }
+}
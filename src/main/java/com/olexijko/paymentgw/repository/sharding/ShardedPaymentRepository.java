@@ -0,0 +1,178 @@
+package com.olexijko.paymentgw.repository.sharding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.olexijko.paymentgw.entity.Payment;
+import com.olexijko.paymentgw.repository.PaymentRepository;
+import com.olexijko.paymentgw.repository.PaymentStore;
+import com.olexijko.paymentgw.repository.PaymentView;
+import com.olexijko.paymentgw.util.ConsistentHashRing;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.TransactionStatus;
+
+/**
+ * {@link PaymentStore} of the partitioned mode. Every invoice is owned by the shard the consistent hash ring
+ * maps it to, so the unique invoice constraint of that shard alone detects duplicates and a payment is written and
+ * read on exactly one shard.
+ * <p>
+ * While payments are rebalanced after shards were added, an invoice may still be on the shard which owned it before.
+ * Until {@link #finishRebalancing()} reads fall back to that shard and writes check it for duplicates first.
+ * <p>
+ * Payment ids come from the sequences of each shard and are only unique within it, so only the invoice keyed operations
+ * of {@link PaymentStore} are offered. The {@link PaymentRepository} bean still covers the primary shard alone.
+ */
+public class ShardedPaymentRepository implements PaymentStore {
+    private final ConsistentHashRing<PaymentShard> ring;
+    private final ConsistentHashRing<PaymentShard> previousRing;
+    private volatile boolean rebalancing;
+
+    public ShardedPaymentRepository(List<PaymentShard> shards, List<PaymentShard> previousShards, int pointsPerShard) {
+        this.ring = new ConsistentHashRing<>(shards, PaymentShard::getName, pointsPerShard);
+        this.previousRing = previousShards.isEmpty() ? null
+                : new ConsistentHashRing<>(previousShards, PaymentShard::getName, pointsPerShard);
+        this.rebalancing = previousRing != null;
+    }
+
+    public PaymentShard shardFor(String invoice) {
+        return ring.nodeFor(invoice);
+    }
+
+    public List<PaymentShard> getShards() {
+        return ring.getNodes();
+    }
+
+    public boolean isRebalancing() {
+        return rebalancing;
+    }
+
+    /**
+     * @return shard the invoice was owned by before shards were added, the current owner once rebalancing is finished.
+     */
+    public PaymentShard previousShardFor(String invoice) {
+        return rebalancing ? previousRing.nodeFor(invoice) : shardFor(invoice);
+    }
+
+    void finishRebalancing() {
+        rebalancing = false;
+    }
+
+    @Override
+    public <S extends Payment> S save(S payment) {
+        final PaymentShard shard = shardFor(payment.getInvoice());
+        checkNotOnPreviousShard(payment.getInvoice(), shard);
+        return shard.inTransaction(() -> shard.getRepository().save(payment));
+    }
+
+    /**
+     * Saves the payments of every shard in a transaction of its own. The transactions are nested and flushed before
+     * the next one starts, so a constraint violation on any shard rolls back the payments of all of them.
+     */
+    @Override
+    public <S extends Payment> Iterable<S> saveAll(Iterable<S> payments) {
+        final Map<PaymentShard, List<S>> paymentsByShard = new LinkedHashMap<>();
+        final List<S> savedPayments = new ArrayList<>();
+        for (S payment : payments) {
+            final PaymentShard shard = shardFor(payment.getInvoice());
+            checkNotOnPreviousShard(payment.getInvoice(), shard);
+            paymentsByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(payment);
+            savedPayments.add(payment);
+        }
+        saveAllNested(new ArrayList<>(paymentsByShard.entrySet()), 0);
+        return savedPayments;
+    }
+
+    private <S extends Payment> void saveAllNested(List<Map.Entry<PaymentShard, List<S>>> paymentsByShard, int index) {
+        if (index == paymentsByShard.size()) {
+            return;
+        }
+        final PaymentShard shard = paymentsByShard.get(index).getKey();
+        shard.inTransaction(() -> {
+            shard.getRepository().saveAll(paymentsByShard.get(index).getValue());
+            shard.flush();
+            saveAllNested(paymentsByShard, index + 1);
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<Payment> findByInvoice(String invoice) {
+        return findOnOwner(invoice, shard -> shard.getRepository().findByInvoice(invoice));
+    }
+
+    @Override
+    public Optional<PaymentView> findViewByInvoice(String invoice) {
+        return findOnOwner(invoice, shard -> shard.getRepository().findViewByInvoice(invoice));
+    }
+
+    @Override
+    public List<PaymentView> findViewsByInvoiceIn(Collection<String> invoices) {
+        final List<PaymentView> views = findViewsOnShards(invoices, this::shardFor);
+        if (!rebalancing) {
+            return views;
+        }
+        final Set<String> foundInvoices = views.stream().map(PaymentView::getInvoice).collect(Collectors.toSet());
+        final List<String> missingInvoices = invoices.stream()
+                .filter(invoice -> !foundInvoices.contains(invoice) && previousShardFor(invoice) != shardFor(invoice))
+                .collect(Collectors.toList());
+        views.addAll(findViewsOnShards(missingInvoices, this::previousShardFor));
+        return views;
+    }
+
+    private List<PaymentView> findViewsOnShards(Collection<String> invoices, Function<String, PaymentShard> shardOfInvoice) {
+        final Map<PaymentShard, List<String>> invoicesByShard = invoices.stream()
+                .collect(Collectors.groupingBy(shardOfInvoice, LinkedHashMap::new, Collectors.toList()));
+        final List<PaymentView> views = new ArrayList<>(invoices.size());
+        invoicesByShard.forEach((shard, shardInvoices) ->
+                views.addAll(shard.inTransaction(() -> shard.getRepository().findViewsByInvoiceIn(shardInvoices))));
+        return views;
+    }
+
+    /**
+     * Streams the invoices of one shard after another, each in a read-only transaction of its shard which is committed
+     * once its invoices are consumed. Invoices being rebalanced may be streamed twice.
+     */
+    @Override
+    public Stream<String> streamAllInvoices() {
+        return getShards().stream().flatMap(shard -> {
+            final TransactionStatus status = shard.beginReadOnly();
+            return shard.getRepository().streamAllInvoices().onClose(() -> shard.commit(status));
+        });
+    }
+
+    private <T> Optional<T> findOnOwner(String invoice, Function<PaymentShard, Optional<T>> query) {
+        final PaymentShard shard = shardFor(invoice);
+        final Optional<T> result = shard.inTransaction(() -> query.apply(shard));
+        if (result.isPresent() || !rebalancing) {
+            return result;
+        }
+        final PaymentShard previousShard = previousShardFor(invoice);
+        return previousShard == shard ? result : previousShard.inTransaction(() -> query.apply(previousShard));
+    }
+
+    /**
+     * Reports an invoice not yet moved from its previous shard the same way the unique constraint of the current one
+     * would, so it is answered as a duplicate.
+     */
+    private void checkNotOnPreviousShard(String invoice, PaymentShard shard) {
+        if (!rebalancing) {
+            return;
+        }
+        final PaymentShard previousShard = previousShardFor(invoice);
+        if (previousShard != shard
+                && previousShard.inTransaction(() -> previousShard.getRepository().findViewByInvoice(invoice)).isPresent()) {
+            final String message = String.format("Invoice '%s' is stored on shard '%s'", invoice, previousShard.getName());
+            throw new DataIntegrityViolationException(message,
+                    new ConstraintViolationException(message, null, Payment.INVOICE_UNIQUE_CONSTRAINT));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.olexijko.paymentgw.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.olexijko.paymentgw.util.Base64Arrays;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * AES-GCM encryption of card data. Every value is encrypted with a random 96 bit IV and stored as
+ * {@code Base64(iv | ciphertext | tag)}, so equal values never produce equal ciphertexts and tampered values fail to
+ * decrypt.
+ * <p>
+ * {@link Cipher} instances are not thread-safe and expensive to look up, so each is kept in a context together with a
+ * random generator and the buffers values are encoded into. Contexts are pooled rather than kept per thread, as
+ * virtual threads live for a single request and would set up a context every time. Apart from the JCE internals the
+ * resulting String is the only allocation per call.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.encryption.aes-gcm.enabled", havingValue = "true")
+public class AesGcmEncryptor implements Encryptor {
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String KEY_ALGORITHM = "AES";
+    private static final String RANDOM_ALGORITHM = "DRBG";
+    private static final int IV_SIZE = 12;
+    private static final int TAG_SIZE_BITS = 128;
+    private static final int TAG_SIZE = TAG_SIZE_BITS / Byte.SIZE;
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    /**
+     * Encryption never blocks, so about as many contexts as carrier threads are in use at the same time.
+     */
+    private static final int CONTEXT_POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
+    private final SecretKey key;
+    private final AtomicReferenceArray<CipherContext> idleContexts = new AtomicReferenceArray<>(CONTEXT_POOL_SIZE);
+
+    public AesGcmEncryptor(@Value("${payment.encryption.aes-gcm.key:}") String base64Key) {
+        final byte[] keyBytes = Base64.getDecoder().decode(base64Key);
+        if (keyBytes.length != 16 && keyBytes.length != 24 && keyBytes.length != 32) {
+            throw new IllegalArgumentException("payment.encryption.aes-gcm.key must be a Base64 encoded 128, 192 or 256 bit key");
+        }
+        this.key = new SecretKeySpec(keyBytes, KEY_ALGORITHM);
+    }
+
+    @Override
+    public String encrypt(String value) {
+        if (value == null) {
+            return null;
+        }
+        final CipherContext context = acquireContext();
+        try {
+            return encrypt(context, value);
+        } finally {
+            releaseContext(context);
+        }
+    }
+
+    @Override
+    public String decrypt(String value) {
+        if (value == null) {
+            return null;
+        }
+        final CipherContext context = acquireContext();
+        try {
+            return decrypt(context, value);
+        } finally {
+            releaseContext(context);
+        }
+    }
+
+    private String encrypt(CipherContext context, String value) {
+        final int plainLength = context.putPlain(value);
+        final byte[] sealed = context.sealed(IV_SIZE + plainLength + TAG_SIZE);
+        context.random.nextBytes(context.iv);
+        System.arraycopy(context.iv, 0, sealed, 0, IV_SIZE);
+        try {
+            context.cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE_BITS, context.iv));
+            final int sealedLength = IV_SIZE + context.cipher.doFinal(context.plain, 0, plainLength, sealed, IV_SIZE);
+            final byte[] encoded = context.encoded(Base64Arrays.encodedLength(sealedLength));
+            return new String(encoded, 0, Base64Arrays.encode(sealed, sealedLength, encoded), StandardCharsets.ISO_8859_1);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to encrypt value", e);
+        }
+    }
+
+    private String decrypt(CipherContext context, String value) {
+        final int encodedLength = context.putEncoded(value);
+        final byte[] sealed = context.sealed(Base64Arrays.maxDecodedLength(encodedLength));
+        final int sealedLength = Base64Arrays.decode(context.encoded, encodedLength, sealed);
+        if (sealedLength < IV_SIZE + TAG_SIZE) {
+            throw new IllegalArgumentException("Encrypted value is too short");
+        }
+        try {
+            context.cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE_BITS, sealed, 0, IV_SIZE));
+            final byte[] plain = context.plain(sealedLength);
+            final int plainLength = context.cipher.doFinal(sealed, IV_SIZE, sealedLength - IV_SIZE, plain, 0);
+            return new String(plain, 0, plainLength, StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Unable to decrypt value", e);
+        }
+    }
+
+    /**
+     * Takes an idle context, the search starts at a slot picked by the thread id, so threads rarely compete for one.
+     */
+    private CipherContext acquireContext() {
+        final int start = (int) (Thread.currentThread().getId() % CONTEXT_POOL_SIZE);
+        for (int i = 0; i < CONTEXT_POOL_SIZE; i++) {
+            final int slot = (start + i) % CONTEXT_POOL_SIZE;
+            final CipherContext context = idleContexts.get(slot);
+            if (context != null && idleContexts.compareAndSet(slot, context, null)) {
+                return context;
+            }
+        }
+        return new CipherContext();
+    }
+
+    /**
+     * Returns the context to the first free slot, contexts created while every slot was taken are left to the GC.
+     */
+    private void releaseContext(CipherContext context) {
+        final int start = (int) (Thread.currentThread().getId() % CONTEXT_POOL_SIZE);
+        for (int i = 0; i < CONTEXT_POOL_SIZE; i++) {
+            final int slot = (start + i) % CONTEXT_POOL_SIZE;
+            if (idleContexts.get(slot) == null && idleContexts.compareAndSet(slot, null, context)) {
+                return;
+            }
+        }
+    }
+
+    private static final class CipherContext {
+        private final Cipher cipher;
+        private final SecureRandom random;
+        private final byte[] iv = new byte[IV_SIZE];
+        private byte[] plain = new byte[INITIAL_BUFFER_SIZE];
+        private byte[] sealed = new byte[INITIAL_BUFFER_SIZE];
+        private byte[] encoded = new byte[INITIAL_BUFFER_SIZE];
+
+        private CipherContext() {
+            try {
+                this.cipher = Cipher.getInstance(TRANSFORMATION);
+                // a DRBG per thread avoids the lock shared by all NativePRNG instances
+                this.random = SecureRandom.getInstance(RANDOM_ALGORITHM);
+            } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+                throw new IllegalStateException("AES-GCM is not supported by the JVM", e);
+            }
+        }
+
+        /**
+         * Puts the UTF-8 bytes of the value into the plain buffer, ASCII values are copied char by char.
+         *
+         * @return number of bytes put.
+         */
+        private int putPlain(String value) {
+            final int length = value.length();
+            final byte[] target = plain(length);
+            for (int i = 0; i < length; i++) {
+                final char symbol = value.charAt(i);
+                if (symbol >= 0x80) {
+                    final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                    System.arraycopy(utf8, 0, plain(utf8.length), 0, utf8.length);
+                    return utf8.length;
+                }
+                target[i] = (byte) symbol;
+            }
+            return length;
+        }
+
+        /**
+         * Puts the Base64 value into the encoded buffer, chars outside Latin-1 are rejected later by the decoder.
+         *
+         * @return number of bytes put.
+         */
+        private int putEncoded(String value) {
+            final int length = value.length();
+            final byte[] target = encoded(length);
+            for (int i = 0; i < length; i++) {
+                target[i] = (byte) Math.min(value.charAt(i), 0xFF);
+            }
+            return length;
+        }
+
+        private byte[] plain(int size) {
+            if (plain.length < size) {
+                plain = new byte[size];
+            }
+            return plain;
+        }
+
+        private byte[] sealed(int size) {
+            if (sealed.length < size) {
+                sealed = new byte[size];
+            }
+            return sealed;
+        }
+
+        private byte[] encoded(int size) {
+            if (encoded.length < size) {
+                encoded = new byte[size];
+            }
+            return encoded;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.olexijko.paymentgw.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.olexijko.paymentgw.entity.AuditOutboxEntry;
+import com.olexijko.paymentgw.entity.Card;
+import com.olexijko.paymentgw.entity.Cardholder;
+import com.olexijko.paymentgw.entity.Payment;
+import com.olexijko.paymentgw.repository.AuditOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records saved payments for {@link AuditOutboxRelay}. Payment writers add the entries in the transaction saving the
+ * payments, so an audit entry exists exactly for the payments which were committed.
+ * <p>
+ * In partitioned mode the entries are stored in the primary database, so they commit together with payments of the
+ * shard kept there only. Payments of the other shards are committed right before their entries.
+ */
+@Component
+public class AuditOutbox {
+    private final AuditOutboxRepository auditOutboxRepository;
+    private final boolean enabled;
+
+    public AuditOutbox(AuditOutboxRepository auditOutboxRepository, @Value("${audit.outbox.enabled:true}") boolean enabled) {
+        this.auditOutboxRepository = auditOutboxRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return false if payments are sent to {@link AuditSender} right after they are saved instead.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Must be called in the transaction saving the payments.
+     */
+    public void add(Collection<? extends Payment> savedPayments) {
+        final Instant now = Instant.now();
+        final List<AuditOutboxEntry> entries = new ArrayList<>(savedPayments.size());
+        for (Payment payment : savedPayments) {
+            entries.add(toEntry(payment, now));
+        }
+        auditOutboxRepository.saveAll(entries);
+    }
+
+    private static AuditOutboxEntry toEntry(Payment payment, Instant createdAt) {
+        final Cardholder cardholder = payment.getCardholder();
+        final Card card = payment.getCard();
+        return AuditOutboxEntry.builder()
+                .invoice(payment.getInvoice())
+                .amount(payment.getAmount())
+                .currency(payment.getCurrency())
+                .cardholderName(cardholder == null ? null : cardholder.getName())
+                .cardholderEmail(cardholder == null ? null : cardholder.getEmail())
+                .cardPan(card == null ? null : card.getPan())
+                .cardExpiryDate(card == null ? null : card.getExpiryDate())
+                .createdAt(createdAt)
+                .build();
+    }
+}
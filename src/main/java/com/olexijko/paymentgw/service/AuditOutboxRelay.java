@@ -0,0 +1,162 @@
+package com.olexijko.paymentgw.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.entity.AuditOutboxEntry;
+import com.olexijko.paymentgw.mapper.PaymentMapper;
+import com.olexijko.paymentgw.repository.AuditOutboxRepository;
+import com.olexijko.paymentgw.repository.PaymentView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves entries of {@link AuditOutbox} to the audit log. Each round locks the oldest entries with
+ * {@code for update skip locked}, so relays of several instances share the outbox without waiting for each other,
+ * writes them with {@link AuditSender#writePayments} and deletes them in the same transaction once they are flushed.
+ * A full batch is followed by the next one right away, the relay only sleeps for the poll interval when it has caught up.
+ * <p>
+ * Delivery is at least once: entries written to the audit log by a relay which dies before its transaction commits
+ * are written again.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "audit.outbox.enabled", havingValue = "true", matchIfMissing = true)
+public class AuditOutboxRelay {
+    private static final String RELAY_THREAD_NAME = "audit-outbox-relay";
+
+    private final AuditOutboxRepository auditOutboxRepository;
+    private final AuditSender auditSender;
+    private final PaymentMapper paymentMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration writeTimeout;
+    private final Thread relayThread = new Thread(this::runRelayLoop, RELAY_THREAD_NAME);
+    private final Semaphore wakeUps = new Semaphore(0);
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Timer delayTimer;
+    private final Counter relayedCounter;
+
+    private volatile boolean running = true;
+
+    public AuditOutboxRelay(AuditOutboxRepository auditOutboxRepository, AuditSender auditSender, PaymentMapper paymentMapper,
+                            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                            @Value("${audit.outbox.relay.batch-size:500}") int batchSize,
+                            @Value("${audit.outbox.relay.poll-interval:100ms}") Duration pollInterval,
+                            @Value("${audit.outbox.relay.write-timeout:10s}") Duration writeTimeout) {
+        this.auditOutboxRepository = auditOutboxRepository;
+        this.auditSender = auditSender;
+        this.paymentMapper = paymentMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.writeTimeout = writeTimeout;
+        TimeGauge.builder("audit.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Age of the oldest audit outbox entry found by the last relay round, 0 when the outbox was empty")
+                .register(meterRegistry);
+        this.delayTimer = Timer.builder("audit.outbox.delay")
+                .description("Time from saving a payment until its audit outbox entry is written to the audit log")
+                .register(meterRegistry);
+        this.relayedCounter = Counter.builder("audit.outbox.relayed")
+                .description("Audit outbox entries written to the audit log")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        relayThread.setDaemon(true);
+        relayThread.start();
+    }
+
+    /**
+     * Waits for the current round, entries left in the outbox are relayed after the next start.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        wakeUps.release();
+        relayThread.join(writeTimeout.toMillis() * 2);
+    }
+
+    private void runRelayLoop() {
+        while (running) {
+            try {
+                if (relay() < batchSize) {
+                    wakeUps.tryAcquire(pollInterval.toNanos(), TimeUnit.NANOSECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to relay audit outbox entries, retrying in {}", pollInterval, e);
+                try {
+                    wakeUps.tryAcquire(pollInterval.toNanos(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of relayed entries.
+     */
+    int relay() {
+        return transactionTemplate.execute(status -> {
+            final List<AuditOutboxEntry> entries = auditOutboxRepository.findOldestForUpdate(PageRequest.of(0, batchSize));
+            lagMillis.set(entries.isEmpty() ? 0 : Duration.between(entries.get(0).getCreatedAt(), Instant.now()).toMillis());
+            if (entries.isEmpty()) {
+                return 0;
+            }
+            final List<PaymentDto> paymentDtos = new ArrayList<>(entries.size());
+            final List<Long> ids = new ArrayList<>(entries.size());
+            for (AuditOutboxEntry entry : entries) {
+                paymentDtos.add(paymentMapper.toDtoFromView(toView(entry)));
+                ids.add(entry.getId());
+            }
+            awaitWritten(paymentDtos);
+            auditOutboxRepository.deleteByIds(ids);
+            final Instant now = Instant.now();
+            entries.forEach(entry -> delayTimer.record(Duration.between(entry.getCreatedAt(), now)));
+            relayedCounter.increment(entries.size());
+            return entries.size();
+        });
+    }
+
+    private void awaitWritten(List<PaymentDto> paymentDtos) {
+        try {
+            auditSender.writePayments(paymentDtos).get(writeTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for audit log write", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException(String.format("Unable to write %d audit outbox entries", paymentDtos.size()), e);
+        }
+    }
+
+    private static PaymentView toView(AuditOutboxEntry entry) {
+        return new PaymentView(entry.getInvoice(), entry.getAmount(), entry.getCurrency(), entry.getCardholderName(),
+                entry.getCardholderEmail(), entry.getCardPan(), entry.getCardExpiryDate());
+    }
+}
@@ -1,58 +1,389 @@
 package com.olexijko.paymentgw.service;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.service.audit.AuditCodec;
+import com.olexijko.paymentgw.service.audit.AuditCodecs;
+import com.olexijko.paymentgw.service.audit.AuditLog;
+import com.olexijko.paymentgw.service.audit.AuditOverflowPolicy;
+import com.olexijko.paymentgw.service.audit.AuditRecordTooLargeException;
+import com.olexijko.paymentgw.service.audit.AuditSenderProperties;
+import com.olexijko.paymentgw.service.audit.GroupCommitPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Slf4j
 @Service
 public class AuditSender {
-    private static final int MIN_POOL_SIZE = 1;
-    private static final int MAX_POOL_SIZE = 4;
-    private static final int THREAD_ALIVE_TIME_SECONDS = 60;
+    private static final GroupCommitPolicy OVERFLOW_COMMIT_POLICY = GroupCommitPolicy.builder()
+            .maxRecords(1)
+            .maxBytes(0)
+            .maxDelay(Duration.ZERO)
+            .fsync(false)
+            .build();
 
-    private final ExecutorService executorService =
-            new ThreadPoolExecutor(MIN_POOL_SIZE, MAX_POOL_SIZE, THREAD_ALIVE_TIME_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
-    private final ObjectMapper objectMapper;
+    private static final String WRITER_THREAD_NAME = "audit-writer";
+    private static final long STOP_CHECK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
 
-    @Value("${audit.sender.output-file}")
-    private String outputFileAbsolutePath;
+    /**
+     * Stays a platform thread in the virtual thread mode too, a single long-lived writer gains nothing from it and would
+     * pin its carrier during blocking file channel writes.
+     */
+    private final Thread writerThread = new Thread(this::runWriteLoop, WRITER_THREAD_NAME);
+    /**
+     * Guards the overflow log against concurrent spills, a lock instead of a monitor does not pin virtual threads to
+     * their carrier while they wait.
+     */
+    private final Lock overflowLock = new ReentrantLock();
+    private final AuditCodec codec;
+    private final AuditSenderProperties properties;
+    private final BlockingQueue<PendingAuditRecord> pendingRecords;
+    private final AuditOverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+    private final long retryBackoffNanos;
+    private final Timer queueWaitTimer;
+    private final Timer writeTimer;
+    private final Counter droppedRecordsCounter;
+    private final Counter spilledRecordsCounter;
+    private final Counter lostRecordsCounter;
 
+    private volatile boolean running = true;
+    /**
+     * Owned by the writer thread once it is started, replaced after a failure.
+     */
+    private AuditLog auditLog;
+    /**
+     * Incremented whenever the writer thread replaces a failed log.
+     */
+    private long logGeneration;
+    private AuditLog overflowLog;
 
-    public AuditSender(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+    public AuditSender(ObjectMapper objectMapper, MeterRegistry meterRegistry, AuditSenderProperties properties) {
+        this.codec = new AuditCodecs(objectMapper).forFormat(properties.getFormat());
+        this.properties = properties;
+        this.pendingRecords = new ArrayBlockingQueue<>(properties.getQueue().getCapacity());
+        this.overflowPolicy = properties.getQueue().getOverflowPolicy();
+        this.blockTimeoutNanos = properties.getQueue().getBlockTimeout().toNanos();
+        this.retryBackoffNanos = properties.getRetryBackoff().toNanos();
+        Gauge.builder("audit.sender.queue.depth", pendingRecords, BlockingQueue::size)
+                .description("Audit records waiting to be written")
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("audit.sender.queue.wait")
+                .description("Time audit records spend in the queue before being written")
+                .register(meterRegistry);
+        this.writeTimer = Timer.builder("audit.sender.write")
+                .description("Time to encode and append an audit record, including group commits it triggers")
+                .register(meterRegistry);
+        Gauge.builder("audit.sender.writer.active", writerThread, thread -> thread.isAlive() ? 1 : 0)
+                .description("Whether the audit writer thread is running")
+                .register(meterRegistry);
+        this.droppedRecordsCounter = Counter.builder("audit.sender.dropped")
+                .description("Audit records dropped because the queue was full")
+                .register(meterRegistry);
+        this.spilledRecordsCounter = Counter.builder("audit.sender.spilled")
+                .description("Audit records written to the overflow log because the queue was full")
+                .register(meterRegistry);
+        this.lostRecordsCounter = Counter.builder("audit.sender.lost")
+                .description("Buffered audit records discarded because a write to the audit log failed")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        auditLog = openAuditLog();
+        if (overflowPolicy == AuditOverflowPolicy.SPILL) {
+            overflowLog = AuditLog.open(Path.of(properties.getOverflowDirectory()), properties.getBufferSize(),
+                    OVERFLOW_COMMIT_POLICY, properties.getSegment().getMaxSize().toBytes(), properties.getSegment().getMaxAge());
+        }
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Stops accepting new records and waits up to the shutdown timeout until the queued ones are written and the
+     * current segment is synced to disk.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        writerThread.join(properties.getShutdownTimeout().toMillis());
+        if (writerThread.isAlive()) {
+            LOGGER.error("Audit queue was not drained within {}, {} payments were not written",
+                    properties.getShutdownTimeout(), pendingRecords.size());
+            writerThread.interrupt();
+        }
+        if (overflowLog != null) {
+            overflowLock.lock();
+            try {
+                overflowLog.close();
+            } finally {
+                overflowLock.unlock();
+            }
+        }
     }
 
     public void sendPayment(PaymentDto paymentDto) {
+        if (!running) {
+            LOGGER.error("Audit sender is stopped, Payment info with invoice '{}' is not written", paymentDto.getInvoice());
+            return;
+        }
+        final PendingAuditRecord record = new PendingAuditRecord(paymentDto, System.currentTimeMillis(), System.nanoTime(), null);
+        if (!pendingRecords.offer(record)) {
+            handleOverflow(record);
+        }
+    }
+
+    /**
+     * Unlike {@link #sendPayment} tells when the payments are in the audit log. The returned future completes once all
+     * of them are appended and flushed, with fsync if the flush policy requires it, and fails if any of them could not
+     * be written. Waits up to the block timeout for room in the queue regardless of the overflow policy, the future
+     * fails if there is none, payments enqueued until then are still written.
+     */
+    public CompletableFuture<Void> writePayments(List<PaymentDto> paymentDtos) {
+        final WriteBatch batch = new WriteBatch(paymentDtos.size());
+        if (!running) {
+            batch.written.completeExceptionally(new IllegalStateException("Audit sender is stopped"));
+            return batch.written;
+        }
+        if (paymentDtos.isEmpty()) {
+            batch.written.complete(null);
+            return batch.written;
+        }
+        try {
+            for (PaymentDto paymentDto : paymentDtos) {
+                final PendingAuditRecord record =
+                        new PendingAuditRecord(paymentDto, System.currentTimeMillis(), System.nanoTime(), batch);
+                if (!pendingRecords.offer(record, blockTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                    batch.written.completeExceptionally(new IllegalStateException("Audit queue is full"));
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batch.written.completeExceptionally(e);
+        }
+        return batch.written;
+    }
+
+    /**
+     * Same as {@link #sendPayment} as long as the queue has room, for callers which must never wait. When the queue is
+     * full nothing is done, the caller is expected to retry with {@link #sendPayment} where blocking is allowed, so the
+     * overflow policy still applies.
+     *
+     * @return false if the queue was full and the payment was not handled.
+     */
+    public boolean trySendPayment(PaymentDto paymentDto) {
+        if (!running) {
+            LOGGER.error("Audit sender is stopped, Payment info with invoice '{}' is not written", paymentDto.getInvoice());
+            return true;
+        }
+        return pendingRecords.offer(new PendingAuditRecord(paymentDto, System.currentTimeMillis(), System.nanoTime(), null));
+    }
+
+    private void handleOverflow(PendingAuditRecord record) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                blockUntilEnqueued(record);
+                break;
+            case SPILL:
+                spillToOverflowLog(record);
+                break;
+            case DROP:
+            default:
+                drop(record.paymentDto);
+        }
+    }
+
+    private void blockUntilEnqueued(PendingAuditRecord record) {
+        try {
+            if (!pendingRecords.offer(record, blockTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                drop(record.paymentDto);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            drop(record.paymentDto);
+        }
+    }
+
+    private void spillToOverflowLog(PendingAuditRecord record) {
+        try {
+            overflowLock.lock();
+            try {
+                append(overflowLog, record);
+            } finally {
+                overflowLock.unlock();
+            }
+            spilledRecordsCounter.increment();
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.error("Error during writing Payment info with invoice '{}' to audit overflow log", record.paymentDto.getInvoice(), e);
+            drop(record.paymentDto);
+        }
+    }
+
+    private void drop(PaymentDto paymentDto) {
+        droppedRecordsCounter.increment();
+        LOGGER.warn("Audit queue is full, Payment info with invoice '{}' is dropped", paymentDto.getInvoice());
+    }
+
+    /**
+     * An I/O failure does not stop the writer, it discards the buffered records and writes the next ones to a reopened
+     * log, retrying the reopening until it succeeds.
+     */
+    private void runWriteLoop() {
         try {
-            executorService.execute(() -> writeToFile(paymentDto));
-        } catch (Exception e) {
-            LOGGER.error("Error during writing Payment info to audit file");
+            while (running || !pendingRecords.isEmpty()) {
+                try {
+                    writeNext();
+                } catch (IOException e) {
+                    recover(e);
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.error("Audit writer was interrupted, {} payments were not written", pendingRecords.size());
+        } finally {
+            if (auditLog != null) {
+                close(auditLog);
+            }
+        }
+    }
+
+    private void writeNext() throws IOException, InterruptedException {
+        final long pollNanos = Math.min(auditLog.nanosUntilFlushDue(), STOP_CHECK_INTERVAL_NANOS);
+        final PendingAuditRecord record = pendingRecords.poll(pollNanos, TimeUnit.NANOSECONDS);
+        if (record != null) {
+            final long dequeuedNanos = System.nanoTime();
+            queueWaitTimer.record(dequeuedNanos - record.enqueuedNanos, TimeUnit.NANOSECONDS);
+            if (record.batch != null && record.batch.logGeneration < 0) {
+                record.batch.logGeneration = logGeneration;
+            }
+            boolean written = false;
+            try {
+                written = writeToLog(auditLog, record);
+            } finally {
+                writeTimer.record(System.nanoTime() - dequeuedNanos, TimeUnit.NANOSECONDS);
+                if (record.batch != null) {
+                    completeIfLast(record.batch, written);
+                }
+            }
         }
+        auditLog.flushIfDue();
     }
 
-    private void writeToFile(PaymentDto paymentDto) {
+    /**
+     * Must be called with the records of the batch counted down in order, a batch some of whose records were written
+     * to a log which failed since then is failed as a whole.
+     */
+    private void completeIfLast(WriteBatch batch, boolean written) throws InterruptedException {
+        batch.failed |= !written;
+        if (--batch.remainingRecords > 0) {
+            return;
+        }
+        if (batch.failed || batch.logGeneration != logGeneration) {
+            batch.written.completeExceptionally(new IOException("Some of the payments were not written to audit log"));
+            return;
+        }
         try {
-            final Path outputFilePath = Path.of(outputFileAbsolutePath);
-            Files.createDirectories(outputFilePath.getParent());
-            final String paymentJson = objectMapper.writeValueAsString(paymentDto);
-            synchronized (this) {
-                Files.write(outputFilePath, List.of(paymentJson), StandardOpenOption.APPEND);
+            auditLog.flush();
+            batch.written.complete(null);
+        } catch (IOException e) {
+            batch.written.completeExceptionally(e);
+            recover(e);
+        }
+    }
+
+    /**
+     * Discards the failed log with its buffered records and opens it again.
+     */
+    private void recover(IOException failure) throws InterruptedException {
+        final int lostRecordsCount = auditLog.abandon();
+        auditLog = null;
+        logGeneration++;
+        lostRecordsCounter.increment(lostRecordsCount);
+        LOGGER.error("Error during writing Payment info to audit log, {} buffered payments are lost", lostRecordsCount, failure);
+        while (auditLog == null) {
+            TimeUnit.NANOSECONDS.sleep(retryBackoffNanos);
+            try {
+                auditLog = openAuditLog();
+            } catch (IOException e) {
+                LOGGER.error("Unable to reopen audit log, retrying in {}", properties.getRetryBackoff(), e);
             }
+        }
+    }
+
+    private void close(AuditLog log) {
+        try {
+            log.close();
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            LOGGER.error("Error during closing audit log", e);
+        }
+    }
+
+    AuditLog openAuditLog() throws IOException {
+        return AuditLog.open(Path.of(properties.getDirectory()), properties.getBufferSize(),
+                properties.getFlush().toGroupCommitPolicy(), properties.getSegment().getMaxSize().toBytes(),
+                properties.getSegment().getMaxAge());
+    }
+
+    /**
+     * @return false if the record could not be encoded, failures of the log itself are thrown.
+     */
+    private boolean writeToLog(AuditLog log, PendingAuditRecord record) throws IOException {
+        try {
+            append(log, record);
+            return true;
+        } catch (AuditRecordTooLargeException | UncheckedIOException e) {
+            LOGGER.error("Error during writing Payment info with invoice '{}' to audit log", record.paymentDto.getInvoice(), e);
+            return false;
+        }
+    }
+
+    private void append(AuditLog log, PendingAuditRecord record) throws IOException {
+        log.append(record.timestampMillis, codec.format(), target -> codec.encode(record.paymentDto, target));
+    }
+
+    private static final class PendingAuditRecord {
+        private final PaymentDto paymentDto;
+        private final long timestampMillis;
+        private final long enqueuedNanos;
+        private final WriteBatch batch;
+
+        private PendingAuditRecord(PaymentDto paymentDto, long timestampMillis, long enqueuedNanos, WriteBatch batch) {
+            this.paymentDto = paymentDto;
+            this.timestampMillis = timestampMillis;
+            this.enqueuedNanos = enqueuedNanos;
+            this.batch = batch;
+        }
+    }
+
+    /**
+     * Payments of a {@link #writePayments} call, counted down by the writer thread only.
+     */
+    private static final class WriteBatch {
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+        private int remainingRecords;
+        private boolean failed;
+        private long logGeneration = -1;
+
+        private WriteBatch(int recordsCount) {
+            this.remainingRecords = recordsCount;
         }
     }
 }
@@ -0,0 +1,24 @@
+package com.olexijko.paymentgw.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Base64 encoding of the value, it only hides card data from a casual look at the database.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.encryption.aes-gcm.enabled", havingValue = "false", matchIfMissing = true)
+public class Base64Encryptor implements Encryptor {
+    @Override
+    public String encrypt(String value) {
+        return value == null ? null : Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String decrypt(String value) {
+        return value == null ? null : new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,204 @@
+package com.olexijko.paymentgw.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.olexijko.paymentgw.entity.Payment;
+import com.olexijko.paymentgw.repository.PaymentStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Coalesces concurrent payment writes into a single transaction. The first pending write opens a batch which is
+ * flushed once it reaches the size cap or the wait window elapses, so Hibernate can send the inserts as JDBC batches
+ * and the pooled sequences are hit once per allocation block instead of once per row. Callers of {@link #write} still
+ * block until their own payment is committed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "payment.write-batching.enabled", havingValue = "true")
+public class BatchingPaymentWriter implements PaymentWriter {
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final PaymentBatchSaver paymentBatchSaver;
+    private final BlockingQueue<PendingWrite> pendingWrites;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final Duration writeTimeout;
+    private final Thread flusherThread = new Thread(this::runFlushLoop, "payment-batch-writer");
+
+    private volatile boolean running = true;
+    /**
+     * Set by the flusher once it stopped or failed, before it fails the writes left in the queue. A write enqueued after
+     * that fails itself.
+     */
+    private volatile boolean flusherStopped;
+
+    public BatchingPaymentWriter(PaymentStore paymentStore,
+                                 AuditOutbox auditOutbox,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${payment.write-batching.max-batch-size:50}") int maxBatchSize,
+                                 @Value("${payment.write-batching.max-wait-millis:5}") long maxWaitMillis,
+                                 @Value("${payment.write-batching.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${payment.write-batching.write-timeout:10s}") Duration writeTimeout) {
+        this.paymentBatchSaver = new PaymentBatchSaver(paymentStore, auditOutbox, transactionManager);
+        this.pendingWrites = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.writeTimeout = writeTimeout;
+    }
+
+    @PostConstruct
+    public void start() {
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusherThread.join();
+    }
+
+    /**
+     * Fails with {@link IllegalStateException} if the payment is not queued and written within the write timeout. The
+     * payment may still be committed afterwards.
+     */
+    @Override
+    public Payment write(Payment payment) {
+        try {
+            return enqueue(payment, System.nanoTime() + writeTimeout.toNanos()).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof TimeoutException) {
+                throw new IllegalStateException(String.format("Payment batch write did not complete within %s", writeTimeout), e.getCause());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Payments of the same call may end up in different batches, together with payments written concurrently. Results
+     * not queued and completed within the write timeout fail with {@link TimeoutException}.
+     */
+    @Override
+    public List<CompletableFuture<Payment>> writeAll(List<Payment> payments) {
+        final long deadline = System.nanoTime() + writeTimeout.toNanos();
+        final List<CompletableFuture<Payment>> results = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            results.add(enqueue(payment, deadline));
+        }
+        return results;
+    }
+
+    private CompletableFuture<Payment> enqueue(Payment payment, long deadline) {
+        if (!running) {
+            throw new IllegalStateException("Payment batch writer is stopped");
+        }
+        final PendingWrite pendingWrite = new PendingWrite(payment);
+        try {
+            if (!pendingWrites.offer(pendingWrite, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return CompletableFuture.failedFuture(new TimeoutException("Payment batch writer queue is full"));
+            }
+            if (flusherStopped) {
+                failPendingWrites();
+            }
+            return pendingWrite.result.orTimeout(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for payment batch write", e);
+        }
+    }
+
+    private void runFlushLoop() {
+        final List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !pendingWrites.isEmpty()) {
+                try {
+                    collectBatch(batch);
+                } catch (InterruptedException e) {
+                    LOGGER.warn("Payment batch writer was interrupted, flushing {} collected writes", batch.size());
+                    running = false;
+                }
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                    batch.clear();
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            LOGGER.error("Payment batch writer failed, failing {} collected writes", batch.size(), e);
+            failWrites(batch, new IllegalStateException("Payment batch writer failed", e));
+        } finally {
+            // writes enqueued by callers which saw the writer running right before it was stopped or failed
+            running = false;
+            flusherStopped = true;
+            failPendingWrites();
+        }
+    }
+
+    private void failPendingWrites() {
+        final List<PendingWrite> leftoverWrites = new ArrayList<>();
+        pendingWrites.drainTo(leftoverWrites);
+        failWrites(leftoverWrites, new IllegalStateException("Payment batch writer is stopped"));
+    }
+
+    private static void failWrites(List<PendingWrite> writes, RuntimeException exception) {
+        for (PendingWrite write : writes) {
+            write.result.completeExceptionally(exception);
+        }
+    }
+
+    private void collectBatch(List<PendingWrite> batch) throws InterruptedException {
+        final PendingWrite first = pendingWrites.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        final long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxBatchSize) {
+            pendingWrites.drainTo(batch, maxBatchSize - batch.size());
+            final long remainingNanos = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remainingNanos <= 0) {
+                return;
+            }
+            final PendingWrite next = pendingWrites.poll(remainingNanos, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        final List<Payment> payments = new ArrayList<>(batch.size());
+        final List<CompletableFuture<Payment>> results = new ArrayList<>(batch.size());
+        for (PendingWrite pendingWrite : batch) {
+            payments.add(pendingWrite.payment);
+            results.add(pendingWrite.result);
+        }
+        paymentBatchSaver.saveAll(payments, results);
+    }
+
+    private static final class PendingWrite {
+        private final Payment payment;
+        private final CompletableFuture<Payment> result = new CompletableFuture<>();
+
+        private PendingWrite(Payment payment) {
+            this.payment = payment;
+        }
+    }
+}
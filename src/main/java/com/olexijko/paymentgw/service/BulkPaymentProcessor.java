@@ -0,0 +1,152 @@
+package com.olexijko.paymentgw.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.olexijko.paymentgw.dto.BulkPaymentResultDto;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.dto.PaymentProcessingResultDto;
+import com.olexijko.paymentgw.validator.PaymentDtoValidator;
+import com.olexijko.paymentgw.validator.TimedValidator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+/**
+ * Processes a bulk submission of payments given as a JSON array or as newline delimited JSON objects. The input is
+ * parsed incrementally and at most {@code batch-size} payments are held at a time: each batch is validated the same
+ * way single submissions are, written through {@link PaymentService#processPayments} and answered with one
+ * {@link BulkPaymentResultDto} line per payment before the next batch is read.
+ * <p>
+ * A payment that cannot be mapped, including a {@code null} element, is answered as malformed and skipped, while
+ * invalid JSON ends the submission with a malformed result for the position it was found at.
+ */
+@Component
+public class BulkPaymentProcessor {
+    private static final String MALFORMED_PAYMENT_MESSAGE = "Payment is malformed.";
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final PaymentService paymentService;
+    private final PaymentMetrics paymentMetrics;
+    private final int batchSize;
+
+    public BulkPaymentProcessor(ObjectMapper objectMapper, javax.validation.Validator validator,
+                                PaymentService paymentService, PaymentMetrics paymentMetrics,
+                                @Value("${payment.bulk.batch-size:100}") int batchSize,
+                                @Value("${payment.validation.fast-path.enabled:false}") boolean fastPathValidation) {
+        this.objectMapper = objectMapper;
+        this.validator = new TimedValidator(
+                fastPathValidation ? new PaymentDtoValidator(validator) : new SpringValidatorAdapter(validator), paymentMetrics);
+        this.paymentService = paymentService;
+        this.paymentMetrics = paymentMetrics;
+        this.batchSize = batchSize;
+    }
+
+    public void process(InputStream input, OutputStream output) throws IOException {
+        final List<BulkItem> batch = new ArrayList<>(batchSize);
+        int index = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(input);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            // results are delimited by new lines instead of the default space between root values
+            generator.setRootValueSeparator(null);
+            try {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY) {
+                    token = parser.nextToken();
+                }
+                while (token != null && token != JsonToken.END_ARRAY) {
+                    final JsonNode node = objectMapper.readTree(parser);
+                    batch.add(toBulkItem(index++, node));
+                    if (batch.size() == batchSize) {
+                        processBatch(batch, generator);
+                    }
+                    token = parser.nextToken();
+                }
+                processBatch(batch, generator);
+            } catch (JsonParseException e) {
+                processBatch(batch, generator);
+                writeResult(generator, new BulkPaymentResultDto(index, null,
+                        PaymentProcessingResultDto.failed("Malformed JSON: " + e.getOriginalMessage())));
+            }
+        }
+    }
+
+    private BulkItem toBulkItem(int index, JsonNode node) {
+        final PaymentDto paymentDto;
+        try {
+            paymentDto = objectMapper.treeToValue(node, PaymentDto.class);
+        } catch (JsonProcessingException e) {
+            return new BulkItem(index, null, PaymentProcessingResultDto.failed(MALFORMED_PAYMENT_MESSAGE));
+        }
+        if (paymentDto == null) {
+            return new BulkItem(index, null, PaymentProcessingResultDto.failed(MALFORMED_PAYMENT_MESSAGE));
+        }
+        final Errors errors = new BeanPropertyBindingResult(paymentDto, "paymentDto");
+        validator.validate(paymentDto, errors);
+        if (!errors.hasErrors()) {
+            return new BulkItem(index, paymentDto, null);
+        }
+        paymentMetrics.recordOutcome(PaymentMetrics.Outcome.VALIDATION_FAILED, paymentDto.getCurrency());
+        final Map<String, String> errorMessages = new LinkedHashMap<>();
+        errors.getFieldErrors().forEach(error -> errorMessages.put(error.getField(), error.getDefaultMessage()));
+        return new BulkItem(index, paymentDto, PaymentProcessingResultDto.failed(errorMessages));
+    }
+
+    private void processBatch(List<BulkItem> batch, JsonGenerator generator) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final List<PaymentDto> validPayments = new ArrayList<>(batch.size());
+        for (BulkItem item : batch) {
+            if (item.result == null) {
+                validPayments.add(item.paymentDto);
+            }
+        }
+        final List<PaymentProcessingResultDto> results = validPayments.isEmpty()
+                ? List.of() : paymentService.processPayments(validPayments);
+        int resultIndex = 0;
+        for (BulkItem item : batch) {
+            final PaymentProcessingResultDto result = item.result != null ? item.result : results.get(resultIndex++);
+            writeResult(generator, new BulkPaymentResultDto(item.index,
+                    item.paymentDto != null ? item.paymentDto.getInvoice() : null, result));
+        }
+        generator.flush();
+        batch.clear();
+    }
+
+    private static void writeResult(JsonGenerator generator, BulkPaymentResultDto result) throws IOException {
+        generator.writeObject(result);
+        generator.writeRaw('\n');
+    }
+
+    private static final class BulkItem {
+        private final int index;
+        private final PaymentDto paymentDto;
+        /**
+         * Set when the payment is already rejected and must not be processed.
+         */
+        private final PaymentProcessingResultDto result;
+
+        private BulkItem(int index, PaymentDto paymentDto, PaymentProcessingResultDto result) {
+            this.index = index;
+            this.paymentDto = paymentDto;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.olexijko.paymentgw.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.olexijko.paymentgw.entity.Payment;
+import com.olexijko.paymentgw.repository.PaymentStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@Component
+@ConditionalOnProperty(name = "payment.write-batching.enabled", havingValue = "false", matchIfMissing = true)
+public class DirectPaymentWriter implements PaymentWriter {
+    private final PaymentBatchSaver paymentBatchSaver;
+
+    public DirectPaymentWriter(PaymentStore paymentStore, AuditOutbox auditOutbox,
+                               PlatformTransactionManager transactionManager) {
+        this.paymentBatchSaver = new PaymentBatchSaver(paymentStore, auditOutbox, transactionManager);
+    }
+
+    @Override
+    public Payment write(Payment payment) {
+        return paymentBatchSaver.save(payment);
+    }
+
+    @Override
+    public List<CompletableFuture<Payment>> writeAll(List<Payment> payments) {
+        final List<CompletableFuture<Payment>> results = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            results.add(new CompletableFuture<>());
+        }
+        paymentBatchSaver.saveAll(payments, results);
+        return results;
+    }
+}
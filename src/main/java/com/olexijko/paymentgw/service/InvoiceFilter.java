@@ -0,0 +1,88 @@
+package com.olexijko.paymentgw.service;
+
+import java.util.stream.Stream;
+
+import com.olexijko.paymentgw.repository.PaymentStore;
+import com.olexijko.paymentgw.util.ConcurrentBloomFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * In-memory set of processed invoices answering "definitely not processed" without a database query. Until the filter
+ * is warmed up from {@link PaymentStore} every invoice is reported as possibly processed.
+ * <p>
+ * The filter only knows invoices loaded at startup and written through this instance, so it must be disabled when
+ * several gateway instances share one database. It is disabled unless enabled explicitly, a disabled filter reports
+ * every invoice as possibly processed and neither allocates the filter nor publishes its gauges.
+ */
+@Slf4j
+@Component
+public class InvoiceFilter {
+    private final PaymentStore paymentStore;
+    /**
+     * Only allocated when the filter is enabled.
+     */
+    private final ConcurrentBloomFilter bloomFilter;
+    private final boolean enabled;
+
+    private volatile boolean warmedUp;
+
+    public InvoiceFilter(PaymentStore paymentStore, MeterRegistry meterRegistry,
+                         @Value("${payment.invoice-filter.enabled:false}") boolean enabled,
+                         @Value("${payment.invoice-filter.expected-insertions:10000000}") long expectedInsertions,
+                         @Value("${payment.invoice-filter.false-positive-probability:0.01}") double falsePositiveProbability) {
+        this.paymentStore = paymentStore;
+        this.enabled = enabled;
+        if (!enabled) {
+            this.bloomFilter = null;
+            return;
+        }
+        this.bloomFilter = ConcurrentBloomFilter.create(expectedInsertions, falsePositiveProbability);
+        Gauge.builder("payment.invoice.filter.false.positive.probability", bloomFilter,
+                ConcurrentBloomFilter::expectedFalsePositiveProbability)
+                .description("Estimated false positive probability of the processed invoice filter")
+                .register(meterRegistry);
+        Gauge.builder("payment.invoice.filter.memory", bloomFilter, ConcurrentBloomFilter::memoryFootprintBytes)
+                .description("Memory held by the processed invoice filter")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Transactional(readOnly = true)
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long loadedInvoicesCount = 0;
+        try (Stream<String> invoices = paymentStore.streamAllInvoices()) {
+            for (String invoice : (Iterable<String>) invoices::iterator) {
+                bloomFilter.put(invoice);
+                loadedInvoicesCount++;
+            }
+        }
+        warmedUp = true;
+        LOGGER.info("Invoice filter is warmed up with {} invoices, estimated false positive probability {}",
+                loadedInvoicesCount, bloomFilter.expectedFalsePositiveProbability());
+    }
+
+    public boolean mightContain(String invoice) {
+        return !enabled || !warmedUp || bloomFilter.mightContain(invoice);
+    }
+
+    /**
+     * Must be called before the payment is written, so that a concurrent lookup never sees a stored invoice reported
+     * as absent. A failed write only leaves a harmless false positive behind.
+     */
+    public void add(String invoice) {
+        if (enabled) {
+            bloomFilter.put(invoice);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.olexijko.paymentgw.service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.olexijko.paymentgw.entity.Payment;
+import com.olexijko.paymentgw.repository.PaymentStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Saves a batch of payments in a single transaction, so Hibernate can send the inserts as JDBC batches. A constraint
+ * violation rolls back the whole batch, in which case the payments are saved one by one to let only the conflicting
+ * ones fail. Audit outbox entries of the payments are added in the same transactions.
+ */
+@Slf4j
+class PaymentBatchSaver {
+    private final PaymentStore paymentStore;
+    private final AuditOutbox auditOutbox;
+    private final TransactionTemplate transactionTemplate;
+
+    PaymentBatchSaver(PaymentStore paymentStore, AuditOutbox auditOutbox, PlatformTransactionManager transactionManager) {
+        this.paymentStore = paymentStore;
+        this.auditOutbox = auditOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Completes every result with the saved payment at the same position or with the exception it failed with.
+     */
+    void saveAll(List<Payment> payments, List<CompletableFuture<Payment>> results) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                paymentStore.saveAll(payments);
+                if (auditOutbox.isEnabled()) {
+                    auditOutbox.add(payments);
+                }
+            });
+            for (int i = 0; i < payments.size(); i++) {
+                results.get(i).complete(payments.get(i));
+            }
+            LOGGER.debug("Saved batch of {} payments", payments.size());
+        } catch (DataIntegrityViolationException e) {
+            LOGGER.debug("Batch of {} payments was rolled back, saving payments one by one", payments.size());
+            for (int i = 0; i < payments.size(); i++) {
+                saveSingle(payments.get(i), results.get(i));
+            }
+        } catch (RuntimeException e) {
+            results.forEach(result -> result.completeExceptionally(e));
+        }
+    }
+
+    Payment save(Payment payment) {
+        if (!auditOutbox.isEnabled()) {
+            return paymentStore.save(payment);
+        }
+        return transactionTemplate.execute(status -> {
+            final Payment savedPayment = paymentStore.save(payment);
+            auditOutbox.add(List.of(savedPayment));
+            return savedPayment;
+        });
+    }
+
+    private void saveSingle(Payment payment, CompletableFuture<Payment> result) {
+        resetIdentifiers(payment);
+        try {
+            result.complete(save(payment));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private static void resetIdentifiers(Payment payment) {
+        // identifiers assigned during the rolled back flush are not in the database and must be generated again
+        payment.setId(null);
+        if (payment.getCard() != null) {
+            payment.getCard().setId(null);
+        }
+        if (payment.getCardholder() != null) {
+            payment.getCardholder().setId(null);
+        }
+    }
+}
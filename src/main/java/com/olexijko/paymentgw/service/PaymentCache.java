@@ -0,0 +1,42 @@
+package com.olexijko.paymentgw.service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded in-process cache of processed payments keyed by invoice. Processed payments never change, so the entries
+ * hold the already masked {@link PaymentDto} and are evicted only by size or age.
+ */
+@Component
+public class PaymentCache {
+    static final String CACHE_NAME = "payments";
+
+    private final Cache<String, PaymentDto> cache;
+
+    public PaymentCache(MeterRegistry meterRegistry,
+                        @Value("${payment.cache.max-size:100000}") long maxSize,
+                        @Value("${payment.cache.ttl:PT10M}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Optional<PaymentDto> get(String invoice) {
+        return Optional.ofNullable(cache.getIfPresent(invoice));
+    }
+
+    public void put(PaymentDto paymentDto) {
+        cache.put(paymentDto.getInvoice(), paymentDto);
+    }
+}
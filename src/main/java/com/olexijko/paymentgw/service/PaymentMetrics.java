@@ -0,0 +1,170 @@
+package com.olexijko.paymentgw.service;
+
+import java.util.Currency;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters of payment processing: a {@code payment.stage} timer per stage of processing and lookup, a
+ * {@code payment.outcome} counter per outcome and currency, a {@code payment.lookup} counter per lookup result and a
+ * {@code payment.lookup.load} counter per role of a caller in a load shared by concurrent lookups.
+ * All meters are registered up front or cached, so recording never goes through the registry lookup.
+ */
+@Component
+public class PaymentMetrics {
+    static final String UNKNOWN_CURRENCY = "OTHER";
+
+    private static final Set<String> KNOWN_CURRENCIES = Currency.getAvailableCurrencies().stream()
+            .map(Currency::getCurrencyCode)
+            .collect(Collectors.toUnmodifiableSet());
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Map<LookupResult, Counter> lookupCounters = new EnumMap<>(LookupResult.class);
+    private final Map<LoadRole, Counter> loadCounters = new EnumMap<>(LoadRole.class);
+    private final Map<String, Map<Outcome, Counter>> outcomeCountersByCurrency = new ConcurrentHashMap<>();
+
+    public PaymentMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("payment.stage")
+                    .description("Time spent in a stage of payment processing or lookup")
+                    .tag("operation", stage.operation)
+                    .tag("stage", stage.stageName)
+                    .register(meterRegistry));
+        }
+        for (LookupResult result : LookupResult.values()) {
+            lookupCounters.put(result, Counter.builder("payment.lookup")
+                    .description("Payment lookups by invoice by the place the answer came from")
+                    .tag("result", result.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        for (LoadRole role : LoadRole.values()) {
+            loadCounters.put(role, Counter.builder("payment.lookup.load")
+                    .description("Payment loads by invoice by whether the caller ran the load or waited for a concurrent one")
+                    .tag("role", role.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    public <T> T time(Stage stage, Supplier<T> action) {
+        return stageTimers.get(stage).record(action);
+    }
+
+    public void time(Stage stage, Runnable action) {
+        stageTimers.get(stage).record(action);
+    }
+
+    /**
+     * Records a stage which does not run on the calling thread, like a database call of the reactive variant.
+     */
+    public void record(Stage stage, long durationNanos) {
+        stageTimers.get(stage).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordOutcome(Outcome outcome, String currency) {
+        outcomeCountersByCurrency.computeIfAbsent(currencyTag(currency), this::registerOutcomeCounters)
+                .get(outcome)
+                .increment();
+    }
+
+    public void recordLookup(LookupResult result) {
+        lookupCounters.get(result).increment();
+    }
+
+    public void recordLoad(LoadRole role) {
+        loadCounters.get(role).increment();
+    }
+
+    /**
+     * Currency comes from the request, so only ISO 4217 codes become tag values to keep the number of series bounded.
+     */
+    private static String currencyTag(String currency) {
+        return currency != null && KNOWN_CURRENCIES.contains(currency) ? currency : UNKNOWN_CURRENCY;
+    }
+
+    private Map<Outcome, Counter> registerOutcomeCounters(String currency) {
+        final Map<Outcome, Counter> counters = new EnumMap<>(Outcome.class);
+        for (Outcome outcome : Outcome.values()) {
+            counters.put(outcome, Counter.builder("payment.outcome")
+                    .description("Submitted payments by processing outcome")
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .tag("currency", currency)
+                    .register(meterRegistry));
+        }
+        return counters;
+    }
+
+    public enum Stage {
+        VALIDATION(Operations.PROCESS, "validation"),
+        DUPLICATE_LOOKUP(Operations.PROCESS, "duplicate_lookup"),
+        /**
+         * Mapping of the request to the entity, including encryption of card data.
+         */
+        TO_ENTITY(Operations.PROCESS, "to_entity"),
+        SAVE(Operations.PROCESS, "save"),
+        /**
+         * Mapping of the saved entity to the response, including decryption and masking of card data.
+         */
+        TO_DTO(Operations.PROCESS, "to_dto"),
+        AUDIT_ENQUEUE(Operations.PROCESS, "audit_enqueue"),
+        /**
+         * Write of a batch of bulk submitted payments, the other stages of bulk processing are recorded per payment.
+         */
+        BULK_SAVE(Operations.PROCESS, "bulk_save"),
+        CACHE(Operations.FIND, "cache"),
+        REPOSITORY(Operations.FIND, "repository"),
+        /**
+         * Query of a chunk of invoices looked up together.
+         */
+        REPOSITORY_CHUNK(Operations.FIND, "repository_chunk"),
+        LOOKUP_TO_DTO(Operations.FIND, "to_dto");
+
+        private final String operation;
+        private final String stageName;
+
+        Stage(String operation, String stageName) {
+            this.operation = operation;
+            this.stageName = stageName;
+        }
+    }
+
+    public enum Outcome {
+        APPROVED,
+        DUPLICATE,
+        VALIDATION_FAILED
+    }
+
+    public enum LookupResult {
+        CACHE_HIT,
+        /**
+         * Answered as not found by the invoice filter without touching the database.
+         */
+        FILTERED,
+        FOUND,
+        NOT_FOUND
+    }
+
+    public enum LoadRole {
+        LEADER,
+        /**
+         * Shared the load of a concurrent lookup of the same invoice, its lookup result is recorded by the leader only.
+         */
+        COALESCED
+    }
+
+    private static final class Operations {
+        private static final String PROCESS = "process";
+        private static final String FIND = "find";
+    }
+}
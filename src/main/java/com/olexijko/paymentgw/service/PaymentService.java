@@ -1,41 +1,221 @@
 package com.olexijko.paymentgw.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.dto.PaymentLookupResultDto;
 import com.olexijko.paymentgw.dto.PaymentProcessingResultDto;
 import com.olexijko.paymentgw.entity.Payment;
 import com.olexijko.paymentgw.exception.DuplicatePaymentException;
 import com.olexijko.paymentgw.exception.PaymentNotFoundException;
 import com.olexijko.paymentgw.mapper.PaymentMapper;
-import com.olexijko.paymentgw.repository.PaymentRepository;
+import com.olexijko.paymentgw.repository.InvoiceUniqueConstraint;
+import com.olexijko.paymentgw.repository.PaymentStore;
+import com.olexijko.paymentgw.repository.PaymentView;
+import com.olexijko.paymentgw.service.PaymentMetrics.LoadRole;
+import com.olexijko.paymentgw.service.PaymentMetrics.LookupResult;
+import com.olexijko.paymentgw.service.PaymentMetrics.Outcome;
+import com.olexijko.paymentgw.service.PaymentMetrics.Stage;
+import com.olexijko.paymentgw.util.InvoiceChunks;
+import com.olexijko.paymentgw.util.SingleFlight;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
 public class PaymentService {
-    private final PaymentRepository paymentRepository;
+    private final PaymentStore paymentStore;
+    private final PaymentWriter paymentWriter;
     private final PaymentMapper paymentMapper;
+    private final PaymentCache paymentCache;
+    private final InvoiceFilter invoiceFilter;
     private final AuditSender auditSender;
+    private final AuditOutbox auditOutbox;
+    private final PaymentMetrics paymentMetrics;
+    private final boolean insertFirst;
+    private final SingleFlight<String, PaymentDto> paymentLoads = new SingleFlight<>();
 
-    public PaymentService(PaymentRepository paymentRepository, PaymentMapper paymentMapper, AuditSender auditSender) {
-        this.paymentRepository = paymentRepository;
+    public PaymentService(PaymentStore paymentStore, PaymentWriter paymentWriter, PaymentMapper paymentMapper,
+                          PaymentCache paymentCache, InvoiceFilter invoiceFilter, AuditSender auditSender, AuditOutbox auditOutbox,
+                          PaymentMetrics paymentMetrics, @Value("${payment.processing.insert-first:true}") boolean insertFirst) {
+        this.paymentStore = paymentStore;
+        this.paymentWriter = paymentWriter;
         this.paymentMapper = paymentMapper;
+        this.paymentCache = paymentCache;
+        this.invoiceFilter = invoiceFilter;
         this.auditSender = auditSender;
+        this.auditOutbox = auditOutbox;
+        this.paymentMetrics = paymentMetrics;
+        this.insertFirst = insertFirst;
     }
 
     public PaymentProcessingResultDto processPayment(PaymentDto paymentDto) {
-        //TODO: validation for duplicates may require another approach if search by invoice will not satisfy timing for Payment
-        // processing
-        if (paymentRepository.findByInvoice(paymentDto.getInvoice()).isPresent()) {
-            throw new DuplicatePaymentException(
-                    String.format("Payment with invoice '%s' was previously processed", paymentDto.getInvoice()));
-        }
-        final Payment savedPayment = paymentRepository.save(paymentMapper.toEntityFromDto(paymentDto));
-        auditSender.sendPayment(paymentMapper.toDtoFromEntity(savedPayment));
-        return PaymentProcessingResultDto.success();
+        // In insert-first mode the unique invoice constraint is the duplicate check, so a new payment costs a single
+        // INSERT. The lookup is kept only for the lookup-first mode.
+        final String invoice = paymentDto.getInvoice();
+        if (!insertFirst && invoiceFilter.mightContain(invoice)
+                && paymentMetrics.time(Stage.DUPLICATE_LOOKUP, () -> paymentStore.findByInvoice(invoice)).isPresent()) {
+            paymentMetrics.recordOutcome(Outcome.DUPLICATE, paymentDto.getCurrency());
+            throw DuplicatePaymentException.forInvoice(invoice);
+        }
+        invoiceFilter.add(invoice);
+        final Payment payment = paymentMetrics.time(Stage.TO_ENTITY, () -> paymentMapper.toEntityFromDto(paymentDto));
+        final Payment savedPayment = paymentMetrics.time(Stage.SAVE, () -> savePayment(payment));
+        return approve(savedPayment);
+    }
+
+    /**
+     * Processes already validated payments with the same duplicate rules as {@link #processPayment}, writing the new
+     * ones in batches. A payment failing to be processed does not fail the others.
+     *
+     * @return per payment in the same order, the result it would be answered with on its own.
+     */
+    public List<PaymentProcessingResultDto> processPayments(List<PaymentDto> paymentDtos) {
+        final PaymentProcessingResultDto[] results = new PaymentProcessingResultDto[paymentDtos.size()];
+        final List<Integer> newPaymentIndexes = new ArrayList<>(paymentDtos.size());
+        final List<Payment> newPayments = new ArrayList<>(paymentDtos.size());
+        for (int i = 0; i < paymentDtos.size(); i++) {
+            final PaymentDto paymentDto = paymentDtos.get(i);
+            final String invoice = paymentDto.getInvoice();
+            if (!insertFirst && invoiceFilter.mightContain(invoice)
+                    && paymentMetrics.time(Stage.DUPLICATE_LOOKUP, () -> paymentStore.findByInvoice(invoice)).isPresent()) {
+                paymentMetrics.recordOutcome(Outcome.DUPLICATE, paymentDto.getCurrency());
+                results[i] = PaymentProcessingResultDto.failed(DuplicatePaymentException.forInvoice(invoice).getMessage());
+                continue;
+            }
+            invoiceFilter.add(invoice);
+            newPaymentIndexes.add(i);
+            newPayments.add(paymentMetrics.time(Stage.TO_ENTITY, () -> paymentMapper.toEntityFromDto(paymentDto)));
+        }
+        final List<CompletableFuture<Payment>> savedPayments = newPayments.isEmpty() ? List.of()
+                : paymentMetrics.time(Stage.BULK_SAVE, () -> joinAll(paymentWriter.writeAll(newPayments)));
+        for (int i = 0; i < savedPayments.size(); i++) {
+            results[newPaymentIndexes.get(i)] = completeBulkPayment(newPayments.get(i), savedPayments.get(i));
+        }
+        return Arrays.asList(results);
     }
 
     public PaymentDto findPaymentByInvoice(String invoice) {
-        final Payment payment = paymentRepository.findByInvoice(invoice)
-                .orElseThrow(() -> new PaymentNotFoundException(String.format("There is no processed payment with invoice '%s'", invoice)));
-        return paymentMapper.toDtoFromEntity(payment);
+        final PaymentDto cachedPaymentDto = paymentMetrics.time(Stage.CACHE, () -> paymentCache.get(invoice)).orElse(null);
+        if (cachedPaymentDto != null) {
+            paymentMetrics.recordLookup(LookupResult.CACHE_HIT);
+            return cachedPaymentDto;
+        }
+        // right after checkout several systems fetch the same invoice at once, they share a single query and mapping
+        return paymentLoads.execute(invoice, () -> {
+            paymentMetrics.recordLoad(LoadRole.LEADER);
+            return loadPaymentByInvoice(invoice);
+        }, () -> paymentMetrics.recordLoad(LoadRole.COALESCED));
+    }
+
+    /**
+     * Resolves the invoices from the cache and the invoice filter first, the rest is queried in chunks of
+     * {@value InvoiceChunks#CHUNK_SIZE} invoices.
+     */
+    public PaymentLookupResultDto findPaymentsByInvoices(Collection<String> invoices) {
+        final Map<String, PaymentDto> foundPayments = new LinkedHashMap<>();
+        final List<String> missingInvoices = new ArrayList<>();
+        final List<String> invoicesToLoad = new ArrayList<>();
+        for (String invoice : new LinkedHashSet<>(invoices)) {
+            final PaymentDto cachedPaymentDto = paymentCache.get(invoice).orElse(null);
+            if (cachedPaymentDto != null) {
+                paymentMetrics.recordLookup(LookupResult.CACHE_HIT);
+                foundPayments.put(invoice, cachedPaymentDto);
+            } else if (!invoiceFilter.mightContain(invoice)) {
+                paymentMetrics.recordLookup(LookupResult.FILTERED);
+                missingInvoices.add(invoice);
+            } else {
+                invoicesToLoad.add(invoice);
+            }
+        }
+        for (List<String> chunk : InvoiceChunks.of(invoicesToLoad)) {
+            final Map<String, PaymentView> loadedPayments = paymentMetrics.time(Stage.REPOSITORY_CHUNK,
+                    () -> paymentStore.findViewsByInvoiceIn(chunk)).stream()
+                    .collect(Collectors.toMap(PaymentView::getInvoice, Function.identity()));
+            for (String invoice : chunk) {
+                final PaymentView payment = loadedPayments.get(invoice);
+                if (payment == null) {
+                    paymentMetrics.recordLookup(LookupResult.NOT_FOUND);
+                    missingInvoices.add(invoice);
+                    continue;
+                }
+                paymentMetrics.recordLookup(LookupResult.FOUND);
+                final PaymentDto paymentDto = paymentMetrics.time(Stage.LOOKUP_TO_DTO, () -> paymentMapper.toDtoFromView(payment));
+                paymentCache.put(paymentDto);
+                foundPayments.put(invoice, paymentDto);
+            }
+        }
+        return new PaymentLookupResultDto(foundPayments, missingInvoices);
+    }
+
+    private PaymentDto loadPaymentByInvoice(String invoice) {
+        if (!invoiceFilter.mightContain(invoice)) {
+            paymentMetrics.recordLookup(LookupResult.FILTERED);
+            throw PaymentNotFoundException.forInvoice(invoice);
+        }
+        // the flat projection skips entity hydration and persistence context tracking of the payment, card and cardholder
+        final PaymentView payment = paymentMetrics.time(Stage.REPOSITORY, () -> paymentStore.findViewByInvoice(invoice)).orElse(null);
+        if (payment == null) {
+            paymentMetrics.recordLookup(LookupResult.NOT_FOUND);
+            throw PaymentNotFoundException.forInvoice(invoice);
+        }
+        paymentMetrics.recordLookup(LookupResult.FOUND);
+        final PaymentDto paymentDto = paymentMetrics.time(Stage.LOOKUP_TO_DTO, () -> paymentMapper.toDtoFromView(payment));
+        paymentCache.put(paymentDto);
+        return paymentDto;
+    }
+
+    private PaymentProcessingResultDto approve(Payment savedPayment) {
+        final PaymentDto savedPaymentDto = paymentMetrics.time(Stage.TO_DTO, () -> paymentMapper.toDtoFromEntity(savedPayment));
+        paymentCache.put(savedPaymentDto);
+        // with the outbox the audit entry was committed together with the payment and is sent by AuditOutboxRelay
+        if (!auditOutbox.isEnabled()) {
+            paymentMetrics.time(Stage.AUDIT_ENQUEUE, () -> auditSender.sendPayment(savedPaymentDto));
+        }
+        paymentMetrics.recordOutcome(Outcome.APPROVED, savedPayment.getCurrency());
+        return PaymentProcessingResultDto.success();
+    }
+
+    private PaymentProcessingResultDto completeBulkPayment(Payment payment, CompletableFuture<Payment> savedPayment) {
+        try {
+            return approve(savedPayment.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof DataIntegrityViolationException
+                    && InvoiceUniqueConstraint.isViolatedBy((DataIntegrityViolationException) e.getCause())) {
+                paymentMetrics.recordOutcome(Outcome.DUPLICATE, payment.getCurrency());
+                return PaymentProcessingResultDto.failed(DuplicatePaymentException.forInvoice(payment.getInvoice()).getMessage());
+            }
+            LOGGER.error("Unable to save payment with invoice '{}'", payment.getInvoice(), e.getCause());
+            return PaymentProcessingResultDto.failed(String.format("Payment with invoice '%s' could not be processed", payment.getInvoice()));
+        }
+    }
+
+    private static List<CompletableFuture<Payment>> joinAll(List<CompletableFuture<Payment>> results) {
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+        return results;
+    }
+
+    private Payment savePayment(Payment payment) {
+        try {
+            return paymentWriter.write(payment);
+        } catch (DataIntegrityViolationException e) {
+            if (InvoiceUniqueConstraint.isViolatedBy(e)) {
+                paymentMetrics.recordOutcome(Outcome.DUPLICATE, payment.getCurrency());
+                throw DuplicatePaymentException.forInvoice(payment.getInvoice());
+            }
+            throw e;
+        }
     }
 }
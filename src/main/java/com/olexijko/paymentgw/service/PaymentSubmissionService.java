@@ -0,0 +1,333 @@
+package com.olexijko.paymentgw.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.olexijko.paymentgw.dto.CardDto;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.dto.PaymentProcessingResultDto;
+import com.olexijko.paymentgw.dto.PaymentSubmissionDto;
+import com.olexijko.paymentgw.entity.PaymentSubmission;
+import com.olexijko.paymentgw.exception.DuplicatePaymentException;
+import com.olexijko.paymentgw.exception.PaymentNotFoundException;
+import com.olexijko.paymentgw.repository.PaymentStore;
+import com.olexijko.paymentgw.repository.PaymentSubmissionRepository;
+import com.olexijko.paymentgw.repository.PaymentView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Asynchronous payment processing. A submission is stored with a single insert and answered right away, a pool of
+ * workers drains the stored submissions through {@link PaymentService} and keeps the result for status requests.
+ * <p>
+ * Workers lock a batch of available submissions with {@code for update skip locked}, so they never wait for each
+ * other, and lease them by pushing their availability past the lease duration before the locks are released. A
+ * submission whose worker died becomes available again once its lease expires. A payment saved by such a worker is
+ * recognized by its card data when the retry runs into the unique invoice constraint. Every claim counts as an attempt,
+ * a submission claimed after max-attempts expired leases is completed as failed without being processed again.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "payment.async.enabled", havingValue = "true")
+public class PaymentSubmissionService {
+    private static final String WORKER_THREAD_NAME_PREFIX = "payment-submission-worker-";
+    private static final long CLEANUP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final TypeReference<Map<String, String>> ERRORS_TYPE = new TypeReference<>() {
+    };
+
+    private final PaymentSubmissionRepository submissionRepository;
+    private final PaymentStore paymentStore;
+    private final PaymentService paymentService;
+    private final Encryptor encryptor;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int workersCount;
+    private final int claimBatchSize;
+    private final int maxAttempts;
+    private final Duration pollInterval;
+    private final Duration lease;
+    private final Duration retryDelay;
+    private final Duration retention;
+    private final Duration shutdownTimeout;
+    private final Semaphore wakeUps = new Semaphore(0);
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicLong nextCleanupNanos = new AtomicLong(System.nanoTime());
+    private final Timer completionTimer;
+    private final Counter retriesCounter;
+
+    private volatile boolean running = true;
+
+    public PaymentSubmissionService(PaymentSubmissionRepository submissionRepository, PaymentStore paymentStore,
+                                    PaymentService paymentService, Encryptor encryptor, ObjectMapper objectMapper,
+                                    PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                    @Value("${payment.async.workers:8}") int workersCount,
+                                    @Value("${payment.async.claim-batch-size:10}") int claimBatchSize,
+                                    @Value("${payment.async.max-attempts:3}") int maxAttempts,
+                                    @Value("${payment.async.poll-interval:1s}") Duration pollInterval,
+                                    @Value("${payment.async.lease:1m}") Duration lease,
+                                    @Value("${payment.async.retry-delay:5s}") Duration retryDelay,
+                                    @Value("${payment.async.retention:P1D}") Duration retention,
+                                    @Value("${payment.async.shutdown-timeout:30s}") Duration shutdownTimeout) {
+        this.submissionRepository = submissionRepository;
+        this.paymentStore = paymentStore;
+        this.paymentService = paymentService;
+        this.encryptor = encryptor;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workersCount = workersCount;
+        this.claimBatchSize = claimBatchSize;
+        this.maxAttempts = maxAttempts;
+        this.pollInterval = pollInterval;
+        this.lease = lease;
+        this.retryDelay = retryDelay;
+        this.retention = retention;
+        this.shutdownTimeout = shutdownTimeout;
+        this.completionTimer = Timer.builder("payment.submission.completion")
+                .description("Time from acceptance of an asynchronous payment submission to its result")
+                .register(meterRegistry);
+        this.retriesCounter = Counter.builder("payment.submission.retries")
+                .description("Failed attempts to process an asynchronous payment submission which are retried")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < workersCount; i++) {
+            final Thread worker = new Thread(this::runWorkerLoop, WORKER_THREAD_NAME_PREFIX + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        wakeUps.release(workersCount);
+        final long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        for (Thread worker : workers) {
+            TimeUnit.NANOSECONDS.timedJoin(worker, Math.max(1, deadline - System.nanoTime()));
+            if (worker.isAlive()) {
+                LOGGER.warn("Worker '{}' did not stop in {}, its leased submissions are retried once the lease expires",
+                        worker.getName(), shutdownTimeout);
+            }
+        }
+    }
+
+    /**
+     * Stores an already validated payment for processing. The CVV is not needed for processing and is not stored.
+     */
+    public PaymentSubmissionDto submit(PaymentDto paymentDto) {
+        final Instant now = Instant.now();
+        final PaymentSubmission submission = PaymentSubmission.builder()
+                .id(UUID.randomUUID().toString())
+                .status(PaymentSubmission.Status.PENDING)
+                .payload(encryptor.encrypt(writeJson(withoutCvv(paymentDto))))
+                .createdAt(now)
+                .availableAt(now)
+                .build();
+        submissionRepository.save(submission);
+        // permits of idle workers only, a busy worker looks for the next submission anyway
+        if (wakeUps.availablePermits() < workersCount) {
+            wakeUps.release();
+        }
+        return toDto(submission);
+    }
+
+    public PaymentSubmissionDto findSubmission(String id) {
+        return submissionRepository.findById(id)
+                .map(this::toDto)
+                .orElseThrow(() -> new PaymentNotFoundException(String.format("There is no payment submission with id '%s'", id)));
+    }
+
+    private void runWorkerLoop() {
+        while (running) {
+            try {
+                cleanUpIfDue();
+                final List<PaymentSubmission> submissions = claim();
+                if (submissions.isEmpty()) {
+                    wakeUps.tryAcquire(pollInterval.toNanos(), TimeUnit.NANOSECONDS);
+                    continue;
+                }
+                for (int i = 0; i < submissions.size(); i++) {
+                    if (!running) {
+                        release(submissions.subList(i, submissions.size()));
+                        break;
+                    }
+                    process(submissions.get(i));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to claim payment submissions, retrying in {}", pollInterval, e);
+                try {
+                    wakeUps.tryAcquire(pollInterval.toNanos(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private List<PaymentSubmission> claim() {
+        return transactionTemplate.execute(status -> {
+            final Instant now = Instant.now();
+            final List<PaymentSubmission> submissions =
+                    submissionRepository.findAvailableForUpdate(now, PageRequest.of(0, claimBatchSize));
+            if (!submissions.isEmpty()) {
+                submissionRepository.lease(ids(submissions), now.plus(lease));
+            }
+            return submissions;
+        });
+    }
+
+    private void release(List<PaymentSubmission> submissions) {
+        final Instant now = Instant.now();
+        transactionTemplate.executeWithoutResult(status ->
+                submissions.forEach(submission -> submissionRepository.retryAt(submission.getId(), now)));
+    }
+
+    private void process(PaymentSubmission submission) {
+        // attempts were counted by the lease after the submission was read
+        final int attempt = submission.getAttempts() + 1;
+        if (attempt > maxAttempts) {
+            // the leases of the previous attempts expired, their workers died or did not finish within the lease
+            LOGGER.error("Payment submission '{}' was not completed in {} attempts", submission.getId(), maxAttempts);
+            complete(submission, PaymentProcessingResultDto.failed(
+                    String.format("Payment submission '%s' could not be processed", submission.getId())));
+            return;
+        }
+        PaymentProcessingResultDto result;
+        try {
+            result = processPayment(readPayment(submission), attempt);
+        } catch (RuntimeException e) {
+            if (attempt < maxAttempts) {
+                LOGGER.warn("Attempt {} to process payment submission '{}' failed, retrying in {}",
+                        attempt, submission.getId(), retryDelay, e);
+                retriesCounter.increment();
+                transactionTemplate.executeWithoutResult(status ->
+                        submissionRepository.retryAt(submission.getId(), Instant.now().plus(retryDelay)));
+                return;
+            }
+            LOGGER.error("Payment submission '{}' could not be processed in {} attempts", submission.getId(), attempt, e);
+            result = PaymentProcessingResultDto.failed(
+                    String.format("Payment submission '%s' could not be processed", submission.getId()));
+        }
+        complete(submission, result);
+    }
+
+    private PaymentProcessingResultDto processPayment(PaymentDto paymentDto, int attempt) {
+        try {
+            return paymentService.processPayment(paymentDto);
+        } catch (DuplicatePaymentException e) {
+            if (attempt > 1 && isSavedPayment(paymentDto)) {
+                LOGGER.info("Payment with invoice '{}' was saved by an earlier attempt", paymentDto.getInvoice());
+                return PaymentProcessingResultDto.success();
+            }
+            return PaymentProcessingResultDto.failed(e.getMessage());
+        }
+    }
+
+    private void complete(PaymentSubmission submission, PaymentProcessingResultDto result) {
+        final Instant now = Instant.now();
+        final String errors = result.getErrors() == null ? null : writeJson(result.getErrors());
+        final int completedCount = transactionTemplate.execute(status ->
+                submissionRepository.complete(submission.getId(), result.isApproved(), errors, now));
+        if (completedCount > 0) {
+            completionTimer.record(Duration.between(submission.getCreatedAt(), now));
+        }
+    }
+
+    private void cleanUpIfDue() {
+        final long now = System.nanoTime();
+        final long due = nextCleanupNanos.get();
+        if (now - due >= 0 && nextCleanupNanos.compareAndSet(due, now + CLEANUP_INTERVAL_NANOS)) {
+            final int deletedCount = transactionTemplate.execute(status ->
+                    submissionRepository.deleteCompletedBefore(Instant.now().minus(retention)));
+            LOGGER.debug("Deleted {} payment submissions completed more than {} ago", deletedCount, retention);
+        }
+    }
+
+    /**
+     * Tells the payment saved by an earlier attempt from one of another submission with the same invoice.
+     */
+    private boolean isSavedPayment(PaymentDto paymentDto) {
+        final PaymentView savedPayment = paymentStore.findViewByInvoice(paymentDto.getInvoice()).orElse(null);
+        return savedPayment != null
+                && Objects.equals(String.valueOf(savedPayment.getAmount()), paymentDto.getAmount())
+                && Objects.equals(savedPayment.getCurrency(), paymentDto.getCurrency())
+                && Objects.equals(savedPayment.getCardholderEmail(), paymentDto.getCardholder().getEmail())
+                && Objects.equals(encryptor.decrypt(savedPayment.getCardPan()), paymentDto.getCard().getPan())
+                && Objects.equals(encryptor.decrypt(savedPayment.getCardExpiryDate()), paymentDto.getCard().getExpiry());
+    }
+
+    private PaymentSubmissionDto toDto(PaymentSubmission submission) {
+        if (submission.getStatus() != PaymentSubmission.Status.COMPLETED) {
+            return new PaymentSubmissionDto(submission.getId(), submission.getStatus(), null);
+        }
+        final PaymentProcessingResultDto result = Boolean.TRUE.equals(submission.getApproved())
+                ? PaymentProcessingResultDto.success()
+                : PaymentProcessingResultDto.failed(readJson(submission.getErrors(), ERRORS_TYPE));
+        return new PaymentSubmissionDto(submission.getId(), submission.getStatus(), result);
+    }
+
+    private PaymentDto readPayment(PaymentSubmission submission) {
+        return readJson(encryptor.decrypt(submission.getPayload()), new TypeReference<>() {
+        });
+    }
+
+    private static PaymentDto withoutCvv(PaymentDto paymentDto) {
+        final CardDto card = paymentDto.getCard();
+        return PaymentDto.builder()
+                .invoice(paymentDto.getInvoice())
+                .amount(paymentDto.getAmount())
+                .currency(paymentDto.getCurrency())
+                .cardholder(paymentDto.getCardholder())
+                .card(card == null ? null : CardDto.builder().pan(card.getPan()).expiry(card.getExpiry()).build())
+                .build();
+    }
+
+    private static List<String> ids(List<PaymentSubmission> submissions) {
+        return submissions.stream().map(PaymentSubmission::getId).collect(Collectors.toList());
+    }
+
+    private String writeJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    private <T> T readJson(String json, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to deserialize " + type.getType().getTypeName(), e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.olexijko.paymentgw.service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.olexijko.paymentgw.entity.Payment;
+
+/**
+ * Persists new payments together with their card and cardholder. Implementations rethrow persistence exceptions as is,
+ * translation into business exceptions is up to the caller.
+ */
+public interface PaymentWriter {
+
+    Payment write(Payment payment);
+
+    /**
+     * Persists the payments in as few transactions as possible, a payment failing to be written does not fail the
+     * others.
+     *
+     * @return per payment in the same order, a future of the saved payment or of the persistence exception.
+     */
+    List<CompletableFuture<Payment>> writeAll(List<Payment> payments);
+}
@@ -0,0 +1,31 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.nio.ByteBuffer;
+
+import com.olexijko.paymentgw.dto.PaymentDto;
+
+/**
+ * Serialized form of the payments stored in the audit log. The format id is stored in every {@link AuditFrame}, so
+ * segments written with different codecs can be read side by side.
+ */
+public interface AuditCodec {
+
+    byte format();
+
+    /**
+     * Writes the payment at the current position of {@code target}.
+     *
+     * @throws java.nio.BufferOverflowException if the target has not enough space left, the caller is expected to
+     *                                          retry with a larger buffer.
+     */
+    void encode(PaymentDto paymentDto, ByteBuffer target);
+
+    PaymentDto decode(ByteBuffer payload);
+
+    /**
+     * Reads only the invoice of an encoded payment.
+     *
+     * @return the invoice or {@code null} if the payload has none or cannot be decoded.
+     */
+    String readInvoice(ByteBuffer payload);
+}
@@ -0,0 +1,34 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Codecs of every format that may be found in audit segments, looked up by the format id stored in the frame.
+ */
+public class AuditCodecs {
+    private final Map<Byte, AuditCodec> codecsByFormat = new HashMap<>();
+
+    public AuditCodecs(ObjectMapper objectMapper) {
+        register(new JsonAuditCodec(objectMapper));
+        register(new BinaryAuditCodec());
+    }
+
+    public AuditCodec forFormat(byte format) {
+        final AuditCodec codec = codecsByFormat.get(format);
+        if (codec == null) {
+            throw new IllegalStateException(String.format("Unsupported audit record format %d", format));
+        }
+        return codec;
+    }
+
+    public AuditCodec forFormat(AuditRecordFormat format) {
+        return forFormat(format.getId());
+    }
+
+    private void register(AuditCodec codec) {
+        codecsByFormat.put(codec.format(), codec);
+    }
+}
@@ -0,0 +1,100 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Layout of a single record in an audit segment:
+ * <pre>
+ * | payload length (4) | crc32c (4) | timestamp millis (8) | format (1) | payload (payload length) |
+ * </pre>
+ * The checksum covers the timestamp, the format and the payload, so torn or corrupted records are detected when a
+ * segment is scanned. All accessors use absolute positions and never move the buffer position.
+ */
+public final class AuditFrame {
+    public static final int HEADER_SIZE = 17;
+    public static final int MAX_PAYLOAD_SIZE = 1024 * 1024;
+    public static final byte FORMAT_JSON = 1;
+    public static final byte FORMAT_BINARY = 2;
+
+    private static final int CRC_OFFSET = 4;
+    private static final int TIMESTAMP_OFFSET = 8;
+    private static final int FORMAT_OFFSET = 16;
+
+    private AuditFrame() {
+    }
+
+    /**
+     * Writes a complete frame at the current position of {@code target} and advances the position past it.
+     */
+    public static void write(ByteBuffer target, long timestampMillis, byte format, byte[] payload) {
+        write(target, timestampMillis, format, payloadTarget -> payloadTarget.put(payload));
+    }
+
+    /**
+     * Writes a complete frame at the current position of {@code target}, letting {@code payloadWriter} put the payload
+     * straight into the target, and advances the position past it. The payload length and checksum are filled in
+     * afterwards.
+     *
+     * @throws java.nio.BufferOverflowException if the frame does not fit, the target position is then undefined.
+     */
+    public static void write(ByteBuffer target, long timestampMillis, byte format, Consumer<ByteBuffer> payloadWriter) {
+        final int frameStart = target.position();
+        target.putInt(0)
+                .putInt(0)
+                .putLong(timestampMillis)
+                .put(format);
+        payloadWriter.accept(target);
+        final int payloadLength = target.position() - frameStart - HEADER_SIZE;
+        target.putInt(frameStart, payloadLength);
+        target.putInt(frameStart + CRC_OFFSET, checksum(target, frameStart, payloadLength));
+    }
+
+    /**
+     * @return size of the frame starting at {@code position} including its header, or {@code -1} if there is no
+     * complete frame with a matching checksum at that position.
+     */
+    public static int validFrameSize(ByteBuffer segment, int position) {
+        if (segment.limit() - position < HEADER_SIZE) {
+            return -1;
+        }
+        final int payloadLength = segment.getInt(position);
+        if (payloadLength < 0 || payloadLength > MAX_PAYLOAD_SIZE || segment.limit() - position - HEADER_SIZE < payloadLength) {
+            return -1;
+        }
+        if (checksum(segment, position, payloadLength) != segment.getInt(position + CRC_OFFSET)) {
+            return -1;
+        }
+        return HEADER_SIZE + payloadLength;
+    }
+
+    public static int payloadLength(ByteBuffer segment, int position) {
+        return segment.getInt(position);
+    }
+
+    public static long timestamp(ByteBuffer segment, int position) {
+        return segment.getLong(position + TIMESTAMP_OFFSET);
+    }
+
+    public static byte format(ByteBuffer segment, int position) {
+        return segment.get(position + FORMAT_OFFSET);
+    }
+
+    /**
+     * @return a view of the payload of the frame starting at {@code position}, no bytes are copied.
+     */
+    public static ByteBuffer payload(ByteBuffer segment, int position) {
+        final ByteBuffer payload = segment.duplicate();
+        payload.limit(position + HEADER_SIZE + payloadLength(segment, position)).position(position + HEADER_SIZE);
+        return payload.slice();
+    }
+
+    private static int checksum(ByteBuffer buffer, int frameStart, int payloadLength) {
+        final ByteBuffer covered = buffer.duplicate();
+        covered.limit(frameStart + HEADER_SIZE + payloadLength).position(frameStart + TIMESTAMP_OFFSET);
+        final CRC32C crc = new CRC32C();
+        crc.update(covered);
+        return (int) crc.getValue();
+    }
+}
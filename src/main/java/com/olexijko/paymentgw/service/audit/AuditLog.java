@@ -0,0 +1,290 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only audit log split into segment files. Records are framed by {@link AuditFrame}, collected in a reusable
+ * direct buffer and written in groups according to the {@link GroupCommitPolicy}. A segment is rolled once it reaches
+ * the size or age limit.
+ * <p>
+ * On open the last segment is scanned and a torn or corrupted tail, left by a crash in the middle of a write, is
+ * truncated. Appending always continues in a new segment. Not thread-safe, it is meant to be owned by a single writer
+ * thread.
+ * <p>
+ * Apart from {@link AuditRecordTooLargeException} a failed operation leaves the log in an unknown state, the owner is
+ * expected to {@link #abandon()} it and open it again.
+ */
+@Slf4j
+public class AuditLog implements Closeable {
+    private final Path directory;
+    private final ByteBuffer buffer;
+    private final GroupCommitPolicy groupCommitPolicy;
+    private final long maxDelayNanos;
+    private final long maxSegmentBytes;
+    private final long maxSegmentAgeNanos;
+
+    private FileChannel segmentChannel;
+    private long segmentId;
+    private long segmentSize;
+    private long segmentOpenedNanos;
+    private int bufferedRecordsCount;
+    private long firstBufferedRecordNanos;
+
+    private AuditLog(Path directory, int bufferSize, GroupCommitPolicy groupCommitPolicy, long maxSegmentBytes,
+                     Duration maxSegmentAge) {
+        this.directory = directory;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.groupCommitPolicy = groupCommitPolicy;
+        this.maxDelayNanos = groupCommitPolicy.getMaxDelay().toNanos();
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentAgeNanos = maxSegmentAge.toNanos();
+    }
+
+    public static AuditLog open(Path directory, int bufferSize, GroupCommitPolicy groupCommitPolicy, long maxSegmentBytes,
+                                Duration maxSegmentAge) throws IOException {
+        if (maxSegmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Audit segment size must not exceed 2GB");
+        }
+        Files.createDirectories(directory);
+        final AuditLog auditLog = new AuditLog(directory, bufferSize, groupCommitPolicy, maxSegmentBytes, maxSegmentAge);
+        final List<Path> segments = AuditSegments.list(directory);
+        long nextSegmentId = 1;
+        if (!segments.isEmpty()) {
+            final Path lastSegment = segments.get(segments.size() - 1);
+            recover(lastSegment);
+            nextSegmentId = AuditSegments.segmentId(lastSegment) + 1;
+        }
+        auditLog.openSegment(nextSegmentId);
+        return auditLog;
+    }
+
+    /**
+     * Truncates the segment after its last complete record with a matching checksum.
+     *
+     * @return size of the segment after recovery.
+     */
+    static long recover(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final long size = channel.size();
+            final ByteBuffer header = ByteBuffer.allocate(AuditFrame.HEADER_SIZE);
+            ByteBuffer frame = ByteBuffer.allocate(AuditFrame.HEADER_SIZE);
+            long position = 0;
+            while (size - position >= AuditFrame.HEADER_SIZE) {
+                header.clear();
+                readFully(channel, header, position);
+                final int payloadLength = AuditFrame.payloadLength(header, 0);
+                if (payloadLength < 0 || payloadLength > AuditFrame.MAX_PAYLOAD_SIZE) {
+                    break;
+                }
+                final int frameSize = AuditFrame.HEADER_SIZE + payloadLength;
+                if (size - position < frameSize) {
+                    break;
+                }
+                if (frame.capacity() < frameSize) {
+                    frame = ByteBuffer.allocate(frameSize);
+                }
+                frame.clear().limit(frameSize);
+                readFully(channel, frame, position);
+                if (AuditFrame.validFrameSize(frame, 0) != frameSize) {
+                    break;
+                }
+                position += frameSize;
+            }
+            if (position < size) {
+                LOGGER.warn("Audit segment '{}' has a torn tail, truncating {} bytes after offset {}", segment, size - position, position);
+                channel.truncate(position);
+                channel.force(true);
+            }
+            return position;
+        }
+    }
+
+    public void append(long timestampMillis, byte format, byte[] payload) throws IOException {
+        if (payload.length > AuditFrame.MAX_PAYLOAD_SIZE) {
+            throw new AuditRecordTooLargeException(String.format("Audit record of %d bytes exceeds the maximum size", payload.length));
+        }
+        append(timestampMillis, format, target -> target.put(payload));
+    }
+
+    /**
+     * Appends a record whose payload is put by {@code payloadWriter} straight into the write buffer, so the record is
+     * not materialized in an intermediate array. The writer may be called more than once, when the payload does not
+     * fit into the space left in the buffer.
+     */
+    public void append(long timestampMillis, byte format, Consumer<ByteBuffer> payloadWriter) throws IOException {
+        final int frameStart = buffer.position();
+        try {
+            AuditFrame.write(buffer, timestampMillis, format, payloadWriter);
+        } catch (BufferOverflowException e) {
+            buffer.position(frameStart);
+            if (frameStart > 0) {
+                flush();
+                append(timestampMillis, format, payloadWriter);
+            } else {
+                appendUnbuffered(timestampMillis, format, payloadWriter);
+            }
+            return;
+        } catch (RuntimeException e) {
+            buffer.position(frameStart);
+            throw e;
+        }
+        final int payloadLength = buffer.position() - frameStart - AuditFrame.HEADER_SIZE;
+        if (payloadLength > AuditFrame.MAX_PAYLOAD_SIZE) {
+            buffer.position(frameStart);
+            throw new AuditRecordTooLargeException(String.format("Audit record of %d bytes exceeds the maximum size", payloadLength));
+        }
+        if (segmentSize + frameStart > 0 && segmentSize + buffer.position() > maxSegmentBytes) {
+            moveFrameToNextSegment(frameStart);
+        }
+        if (bufferedRecordsCount == 0) {
+            firstBufferedRecordNanos = System.nanoTime();
+        }
+        bufferedRecordsCount++;
+        if (bufferedRecordsCount >= groupCommitPolicy.getMaxRecords() || buffer.position() >= groupCommitPolicy.getMaxBytes()) {
+            flush();
+        }
+    }
+
+    /**
+     * @return how long the owner may wait for new records before {@link #flushIfDue()} has to be called.
+     */
+    public long nanosUntilFlushDue() {
+        if (bufferedRecordsCount == 0) {
+            return maxDelayNanos;
+        }
+        return Math.max(0, firstBufferedRecordNanos + maxDelayNanos - System.nanoTime());
+    }
+
+    /**
+     * Flushes buffered records whose delay has expired and rolls the current segment once it is too old.
+     */
+    public void flushIfDue() throws IOException {
+        if (bufferedRecordsCount > 0 && nanosUntilFlushDue() == 0) {
+            flush();
+        }
+        if (segmentSize + buffer.position() > 0 && System.nanoTime() - segmentOpenedNanos >= maxSegmentAgeNanos) {
+            roll();
+        }
+    }
+
+    public void flush() throws IOException {
+        if (bufferedRecordsCount == 0) {
+            return;
+        }
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+        bufferedRecordsCount = 0;
+        forceIfRequired();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            segmentChannel.force(true);
+        } finally {
+            segmentChannel.close();
+        }
+    }
+
+    /**
+     * Closes the current segment without writing the buffered records. A partially written tail of the segment is
+     * truncated when the log is opened again.
+     *
+     * @return number of discarded records.
+     */
+    public int abandon() {
+        final int discardedRecordsCount = bufferedRecordsCount;
+        buffer.clear();
+        bufferedRecordsCount = 0;
+        try {
+            segmentChannel.close();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to close audit segment {} in '{}'", segmentId, directory, e);
+        }
+        return discardedRecordsCount;
+    }
+
+    /**
+     * Writes the records buffered before the frame to the current segment and rolls it, leaving only the frame, moved
+     * to the start of the buffer, for the next segment.
+     */
+    private void moveFrameToNextSegment(int frameStart) throws IOException {
+        final int frameEnd = buffer.position();
+        final ByteBuffer precedingRecords = buffer.duplicate();
+        precedingRecords.limit(frameStart).position(0);
+        writeFully(precedingRecords);
+        buffer.limit(frameEnd).position(frameStart);
+        buffer.compact();
+        bufferedRecordsCount = 0;
+        roll();
+    }
+
+    /**
+     * Writes a record larger than the write buffer directly to the segment. The buffer is empty at this point.
+     */
+    private void appendUnbuffered(long timestampMillis, byte format, Consumer<ByteBuffer> payloadWriter) throws IOException {
+        final ByteBuffer frame = ByteBuffer.allocate(AuditFrame.HEADER_SIZE + AuditFrame.MAX_PAYLOAD_SIZE);
+        try {
+            AuditFrame.write(frame, timestampMillis, format, payloadWriter);
+        } catch (BufferOverflowException e) {
+            throw new AuditRecordTooLargeException("Audit record exceeds the maximum size", e);
+        }
+        frame.flip();
+        if (segmentSize > 0 && segmentSize + frame.remaining() > maxSegmentBytes) {
+            roll();
+        }
+        writeFully(frame);
+        forceIfRequired();
+    }
+
+    private void roll() throws IOException {
+        close();
+        openSegment(segmentId + 1);
+    }
+
+    private void openSegment(long newSegmentId) throws IOException {
+        segmentChannel = FileChannel.open(AuditSegments.segmentPath(directory, newSegmentId),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentId = newSegmentId;
+        segmentSize = 0;
+        segmentOpenedNanos = System.nanoTime();
+        LOGGER.debug("Opened audit segment {} in '{}'", newSegmentId, directory);
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            segmentSize += segmentChannel.write(source);
+        }
+    }
+
+    private void forceIfRequired() throws IOException {
+        if (groupCommitPolicy.isFsync()) {
+            segmentChannel.force(false);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        long readPosition = position;
+        while (target.hasRemaining()) {
+            final int read = channel.read(target, readPosition);
+            if (read < 0) {
+                throw new IOException("Unexpected end of audit segment");
+            }
+            readPosition += read;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Command line utility converting audit segments of any format to JSON lines, one payment per line in the order they
+ * were written:
+ * <pre>
+ * java -cp payment-gateway.jar -Dloader.main=com.olexijko.paymentgw.service.audit.AuditLogConverter \
+ *     org.springframework.boot.loader.PropertiesLauncher &lt;audit directory&gt; [&lt;output file&gt; [&lt;from&gt; &lt;to&gt;]]
+ * </pre>
+ * Without an output file the lines are printed to the standard output. {@code from} and {@code to} are ISO-8601
+ * instants limiting the converted records to {@code [from, to)}.
+ */
+public final class AuditLogConverter {
+    private static final byte LINE_SEPARATOR = '\n';
+
+    private AuditLogConverter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1 && args.length != 2 && args.length != 4) {
+            System.err.println("Usage: AuditLogConverter <audit directory> [<output file> [<from> <to>]]");
+            System.exit(1);
+        }
+        final Path directory = Path.of(args[0]);
+        final Instant from = args.length == 4 ? Instant.parse(args[2]) : Instant.EPOCH;
+        final Instant to = args.length == 4 ? Instant.parse(args[3]) : Instant.ofEpochMilli(Long.MAX_VALUE);
+        if (args.length == 1) {
+            convert(directory, System.out, from, to);
+            System.out.flush();
+            return;
+        }
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(Path.of(args[1])))) {
+            final long convertedCount = convert(directory, output, from, to);
+            System.out.printf("Converted %d audit records to '%s'%n", convertedCount, args[1]);
+        }
+    }
+
+    /**
+     * @return number of converted records.
+     */
+    public static long convert(Path directory, OutputStream output, Instant from, Instant to) throws IOException {
+        final ObjectMapper objectMapper = new ObjectMapper()
+                .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        final long[] convertedCount = {0};
+        try (AuditLogReader reader = AuditLogReader.open(directory, objectMapper)) {
+            reader.replay(from, to, record -> {
+                try {
+                    objectMapper.writeValue(output, reader.decode(record));
+                    output.write(LINE_SEPARATOR);
+                    convertedCount[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return convertedCount[0];
+    }
+}
@@ -0,0 +1,198 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.util.ConcurrentBloomFilter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads audit segments through read-only memory mappings, so segments of any size are scanned without being loaded
+ * into the heap. Opening the reader scans every segment once and builds a sparse index:
+ * <ul>
+ *     <li>per block of records the offsets and the min/max timestamp, which lets time range scans skip whole blocks
+ *     even though records are not strictly ordered by timestamp;</li>
+ *     <li>per segment a Bloom filter of invoices, which lets invoice lookups skip segments that never saw the
+ *     invoice.</li>
+ * </ul>
+ * Segments that are still being written are read up to their last complete record.
+ */
+@Slf4j
+public class AuditLogReader implements Closeable {
+    private static final int RECORDS_PER_INDEX_BLOCK = 1024;
+    private static final int MIN_EXPECTED_FRAME_SIZE = 64;
+    private static final double INVOICE_FILTER_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private final AuditCodecs codecs;
+    private final List<SegmentIndex> segmentIndexes = new ArrayList<>();
+
+    private AuditLogReader(AuditCodecs codecs) {
+        this.codecs = codecs;
+    }
+
+    public static AuditLogReader open(Path directory, ObjectMapper objectMapper) throws IOException {
+        return open(directory, new AuditCodecs(objectMapper));
+    }
+
+    public static AuditLogReader open(Path directory, AuditCodecs codecs) throws IOException {
+        final AuditLogReader reader = new AuditLogReader(codecs);
+        for (Path segment : AuditSegments.list(directory)) {
+            reader.segmentIndexes.add(reader.indexSegment(segment));
+        }
+        return reader;
+    }
+
+    /**
+     * Streams every record with a timestamp in {@code [from, to)} to the consumer, in the order they were written.
+     */
+    public void replay(Instant from, Instant to, Consumer<AuditRecord> consumer) {
+        final long fromMillis = from.toEpochMilli();
+        final long toMillis = to.toEpochMilli();
+        for (SegmentIndex segmentIndex : segmentIndexes) {
+            for (IndexBlock block : segmentIndex.blocks) {
+                if (block.maxTimestamp < fromMillis || block.minTimestamp >= toMillis) {
+                    continue;
+                }
+                int position = block.startPosition;
+                while (position < block.endPosition) {
+                    final long timestamp = AuditFrame.timestamp(segmentIndex.content, position);
+                    if (timestamp >= fromMillis && timestamp < toMillis) {
+                        consumer.accept(toRecord(segmentIndex.content, position));
+                    }
+                    position += AuditFrame.HEADER_SIZE + AuditFrame.payloadLength(segmentIndex.content, position);
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams every record to the consumer, in the order they were written.
+     */
+    public void replayAll(Consumer<AuditRecord> consumer) {
+        replay(Instant.EPOCH, Instant.ofEpochMilli(Long.MAX_VALUE), consumer);
+    }
+
+    public List<PaymentDto> findByInvoice(String invoice) {
+        final List<PaymentDto> payments = new ArrayList<>();
+        for (SegmentIndex segmentIndex : segmentIndexes) {
+            if (!segmentIndex.invoices.mightContain(invoice)) {
+                continue;
+            }
+            int position = 0;
+            while (position < segmentIndex.validSize) {
+                final AuditRecord record = toRecord(segmentIndex.content, position);
+                if (invoice.equals(readInvoice(record))) {
+                    payments.add(decode(record));
+                }
+                position += AuditFrame.HEADER_SIZE + record.getPayload().remaining();
+            }
+        }
+        return payments;
+    }
+
+    public PaymentDto decode(AuditRecord record) {
+        return codecs.forFormat(record.getFormat()).decode(record.getPayload());
+    }
+
+    public long recordsCount() {
+        return segmentIndexes.stream().mapToLong(segmentIndex -> segmentIndex.recordsCount).sum();
+    }
+
+    @Override
+    public void close() {
+        // mapped buffers are released by the garbage collector once the indexes are no longer referenced
+        segmentIndexes.clear();
+    }
+
+    private SegmentIndex indexSegment(Path segment) throws IOException {
+        final ByteBuffer content;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        final ConcurrentBloomFilter invoices = ConcurrentBloomFilter.create(
+                Math.max(RECORDS_PER_INDEX_BLOCK, content.limit() / MIN_EXPECTED_FRAME_SIZE), INVOICE_FILTER_FALSE_POSITIVE_PROBABILITY);
+        final List<IndexBlock> blocks = new ArrayList<>();
+        IndexBlock block = null;
+        long recordsCount = 0;
+        int position = 0;
+        int frameSize;
+        while ((frameSize = AuditFrame.validFrameSize(content, position)) > 0) {
+            if (block == null) {
+                block = new IndexBlock(position);
+                blocks.add(block);
+            }
+            block.add(AuditFrame.timestamp(content, position), position + frameSize);
+            final String invoice = readInvoice(toRecord(content, position));
+            if (invoice != null) {
+                invoices.put(invoice);
+            }
+            position += frameSize;
+            if (++recordsCount % RECORDS_PER_INDEX_BLOCK == 0) {
+                block = null;
+            }
+        }
+        if (position < content.limit()) {
+            LOGGER.warn("Audit segment '{}' has {} unreadable bytes after offset {}", segment, content.limit() - position, position);
+        }
+        return new SegmentIndex(content, position, recordsCount, blocks, invoices);
+    }
+
+    private String readInvoice(AuditRecord record) {
+        try {
+            return codecs.forFormat(record.getFormat()).readInvoice(record.getPayload());
+        } catch (IllegalStateException e) {
+            // a record of an unknown format is still replayed, it just cannot be found by invoice
+            return null;
+        }
+    }
+
+    private static AuditRecord toRecord(ByteBuffer content, int position) {
+        return new AuditRecord(AuditFrame.timestamp(content, position), AuditFrame.format(content, position),
+                AuditFrame.payload(content, position).asReadOnlyBuffer());
+    }
+
+    private static final class SegmentIndex {
+        private final ByteBuffer content;
+        private final int validSize;
+        private final long recordsCount;
+        private final List<IndexBlock> blocks;
+        private final ConcurrentBloomFilter invoices;
+
+        private SegmentIndex(ByteBuffer content, int validSize, long recordsCount, List<IndexBlock> blocks,
+                             ConcurrentBloomFilter invoices) {
+            this.content = content;
+            this.validSize = validSize;
+            this.recordsCount = recordsCount;
+            this.blocks = blocks;
+            this.invoices = invoices;
+        }
+    }
+
+    private static final class IndexBlock {
+        private final int startPosition;
+        private int endPosition;
+        private long minTimestamp = Long.MAX_VALUE;
+        private long maxTimestamp = Long.MIN_VALUE;
+
+        private IndexBlock(int startPosition) {
+            this.startPosition = startPosition;
+            this.endPosition = startPosition;
+        }
+
+        private void add(long timestamp, int recordEndPosition) {
+            minTimestamp = Math.min(minTimestamp, timestamp);
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+            endPosition = recordEndPosition;
+        }
+    }
+}
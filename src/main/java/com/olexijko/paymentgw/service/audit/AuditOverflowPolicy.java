@@ -0,0 +1,19 @@
+package com.olexijko.paymentgw.service.audit;
+
+/**
+ * What happens to an audit record when the audit queue is full.
+ */
+public enum AuditOverflowPolicy {
+    /**
+     * The caller waits for free space up to the configured block timeout, the record is dropped afterwards.
+     */
+    BLOCK,
+    /**
+     * The record is appended synchronously to the local overflow log by the caller.
+     */
+    SPILL,
+    /**
+     * The record is dropped and counted.
+     */
+    DROP
+}
@@ -0,0 +1,18 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.nio.ByteBuffer;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Record read from an audit segment. The payload is a read-only view of the mapped segment and is valid only while
+ * the owning {@link AuditLogReader} is open.
+ */
+@Getter
+@AllArgsConstructor
+public class AuditRecord {
+    private final long timestampMillis;
+    private final byte format;
+    private final ByteBuffer payload;
+}
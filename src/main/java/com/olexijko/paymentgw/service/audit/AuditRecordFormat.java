@@ -0,0 +1,24 @@
+package com.olexijko.paymentgw.service.audit;
+
+import lombok.Getter;
+
+/**
+ * Format new audit records are written in, records already written keep their format.
+ */
+@Getter
+public enum AuditRecordFormat {
+    /**
+     * Same JSON as returned by the API, readable with any tool.
+     */
+    JSON(AuditFrame.FORMAT_JSON),
+    /**
+     * Compact encoding of {@link BinaryAuditCodec}, needs {@link AuditLogConverter} to be read.
+     */
+    BINARY(AuditFrame.FORMAT_BINARY);
+
+    private final byte id;
+
+    AuditRecordFormat(byte id) {
+        this.id = id;
+    }
+}
@@ -0,0 +1,17 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.io.IOException;
+
+/**
+ * Thrown for a record exceeding {@link AuditFrame#MAX_PAYLOAD_SIZE}. Nothing is written, unlike after other
+ * {@link IOException}s of {@link AuditLog} the log can still be used.
+ */
+public class AuditRecordTooLargeException extends IOException {
+    public AuditRecordTooLargeException(String message) {
+        super(message);
+    }
+
+    public AuditRecordTooLargeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,43 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Naming of audit segment files. Segments are named after a zero padded, monotonically increasing id, so the
+ * lexicographic order of the file names is the order in which they were written.
+ */
+public final class AuditSegments {
+    private static final String SEGMENT_SUFFIX = ".audit";
+    private static final String SEGMENT_NAME_FORMAT = "%020d" + SEGMENT_SUFFIX;
+
+    private AuditSegments() {
+    }
+
+    public static Path segmentPath(Path directory, long segmentId) {
+        return directory.resolve(String.format(SEGMENT_NAME_FORMAT, segmentId));
+    }
+
+    public static long segmentId(Path segment) {
+        final String fileName = segment.getFileName().toString();
+        return Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * @return segments of the directory in the order they were written, empty if the directory does not exist.
+     */
+    public static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "audit.sender")
+public class AuditSenderProperties {
+    private String directory;
+    private String overflowDirectory;
+    private int bufferSize = 262144;
+    private AuditRecordFormat format = AuditRecordFormat.JSON;
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+    private Duration retryBackoff = Duration.ofSeconds(1);
+    private final Segment segment = new Segment();
+    private final Flush flush = new Flush();
+    private final Queue queue = new Queue();
+
+    @Getter
+    @Setter
+    public static class Segment {
+        private DataSize maxSize = DataSize.ofMegabytes(128);
+        private Duration maxAge = Duration.ofHours(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Flush {
+        private int maxRecords = 256;
+        private int maxBytes = 65536;
+        private Duration maxDelay = Duration.ofMillis(50);
+        private boolean fsync;
+
+        public GroupCommitPolicy toGroupCommitPolicy() {
+            return GroupCommitPolicy.builder()
+                    .maxRecords(maxRecords)
+                    .maxBytes(maxBytes)
+                    .maxDelay(maxDelay)
+                    .fsync(fsync)
+                    .build();
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Queue {
+        private int capacity = 65536;
+        private AuditOverflowPolicy overflowPolicy = AuditOverflowPolicy.BLOCK;
+        private Duration blockTimeout = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,239 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.olexijko.paymentgw.dto.CardDto;
+import com.olexijko.paymentgw.dto.CardholderDto;
+import com.olexijko.paymentgw.dto.PaymentDto;
+
+/**
+ * Compact schema based encoding of {@link PaymentDto}. Field names are not stored, the fields follow in a fixed order
+ * after a varint bit mask of the fields that are present:
+ * <pre>
+ * | presence (varint) | invoice | amount | currency | cardholder name | cardholder email | card pan | card expiry | card cvv |
+ * </pre>
+ * Strings are stored as a varint byte length followed by UTF-8 bytes. The amount is stored as a varint when it is a
+ * plain number without leading zeros and as a string otherwise. Common currencies are stored as a single byte index
+ * into {@link #CURRENCIES}, the {@code 0} index is followed by the currency as a string.
+ * <p>
+ * The dictionary is part of the format, new currencies may only be appended to its end.
+ */
+public class BinaryAuditCodec implements AuditCodec {
+    static final List<String> CURRENCIES = List.of(
+            "USD", "EUR", "GBP", "UAH", "PLN", "CHF", "JPY", "CNY", "CAD", "AUD", "SEK", "NOK", "DKK", "CZK", "HUF",
+            "RON", "BGN", "TRY", "ILS", "INR", "HKD", "SGD", "NZD", "MXN", "BRL", "ZAR", "KRW", "AED", "SAR", "GEL");
+
+    private static final int INVOICE = 1;
+    private static final int AMOUNT = 1 << 1;
+    private static final int AMOUNT_AS_STRING = 1 << 2;
+    private static final int CURRENCY = 1 << 3;
+    private static final int CARDHOLDER = 1 << 4;
+    private static final int CARDHOLDER_NAME = 1 << 5;
+    private static final int CARDHOLDER_EMAIL = 1 << 6;
+    private static final int CARD = 1 << 7;
+    private static final int CARD_PAN = 1 << 8;
+    private static final int CARD_EXPIRY = 1 << 9;
+    private static final int CARD_CVV = 1 << 10;
+
+    private static final int CURRENCY_LITERAL = 0;
+    private static final int MAX_SIMPLE_AMOUNT_LENGTH = 18;
+    private static final Map<String, Integer> CURRENCY_INDEXES = currencyIndexes();
+
+    @Override
+    public byte format() {
+        return AuditFrame.FORMAT_BINARY;
+    }
+
+    @Override
+    public void encode(PaymentDto paymentDto, ByteBuffer target) {
+        final CardholderDto cardholder = paymentDto.getCardholder();
+        final CardDto card = paymentDto.getCard();
+        final boolean numericAmount = isSimpleAmount(paymentDto.getAmount());
+        int presence = flag(paymentDto.getInvoice(), INVOICE)
+                | flag(paymentDto.getAmount(), AMOUNT)
+                | (paymentDto.getAmount() != null && !numericAmount ? AMOUNT_AS_STRING : 0)
+                | flag(paymentDto.getCurrency(), CURRENCY);
+        if (cardholder != null) {
+            presence |= CARDHOLDER | flag(cardholder.getName(), CARDHOLDER_NAME) | flag(cardholder.getEmail(), CARDHOLDER_EMAIL);
+        }
+        if (card != null) {
+            presence |= CARD | flag(card.getPan(), CARD_PAN) | flag(card.getExpiry(), CARD_EXPIRY) | flag(card.getCvv(), CARD_CVV);
+        }
+        putVarint(target, presence);
+        putString(target, paymentDto.getInvoice());
+        if (numericAmount) {
+            putVarint(target, Long.parseLong(paymentDto.getAmount()));
+        } else {
+            putString(target, paymentDto.getAmount());
+        }
+        putCurrency(target, paymentDto.getCurrency());
+        if (cardholder != null) {
+            putString(target, cardholder.getName());
+            putString(target, cardholder.getEmail());
+        }
+        if (card != null) {
+            putString(target, card.getPan());
+            putString(target, card.getExpiry());
+            putString(target, card.getCvv());
+        }
+    }
+
+    @Override
+    public PaymentDto decode(ByteBuffer payload) {
+        final ByteBuffer source = payload.duplicate();
+        try {
+            final int presence = (int) getVarint(source);
+            final PaymentDto.PaymentDtoBuilder payment = PaymentDto.builder()
+                    .invoice(getString(source, presence, INVOICE));
+            if ((presence & AMOUNT) != 0) {
+                payment.amount((presence & AMOUNT_AS_STRING) != 0 ? getString(source) : Long.toString(getVarint(source)));
+            }
+            if ((presence & CURRENCY) != 0) {
+                payment.currency(getCurrency(source));
+            }
+            if ((presence & CARDHOLDER) != 0) {
+                payment.cardholder(CardholderDto.builder()
+                        .name(getString(source, presence, CARDHOLDER_NAME))
+                        .email(getString(source, presence, CARDHOLDER_EMAIL))
+                        .build());
+            }
+            if ((presence & CARD) != 0) {
+                payment.card(CardDto.builder()
+                        .pan(getString(source, presence, CARD_PAN))
+                        .expiry(getString(source, presence, CARD_EXPIRY))
+                        .cvv(getString(source, presence, CARD_CVV))
+                        .build());
+            }
+            return payment.build();
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Binary audit record is truncated", e);
+        }
+    }
+
+    @Override
+    public String readInvoice(ByteBuffer payload) {
+        final ByteBuffer source = payload.duplicate();
+        try {
+            return getString(source, (int) getVarint(source), INVOICE);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int flag(String value, int flag) {
+        return value != null ? flag : 0;
+    }
+
+    private static boolean isSimpleAmount(String amount) {
+        if (amount == null || amount.isEmpty() || amount.length() > MAX_SIMPLE_AMOUNT_LENGTH
+                || (amount.charAt(0) == '0' && amount.length() > 1)) {
+            return false;
+        }
+        for (int i = 0; i < amount.length(); i++) {
+            if (amount.charAt(i) < '0' || amount.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void putCurrency(ByteBuffer target, String currency) {
+        if (currency == null) {
+            return;
+        }
+        final Integer index = CURRENCY_INDEXES.get(currency);
+        if (index != null) {
+            target.put(index.byteValue());
+        } else {
+            target.put((byte) CURRENCY_LITERAL);
+            putString(target, currency);
+        }
+    }
+
+    private static String getCurrency(ByteBuffer source) {
+        final int index = source.get() & 0xFF;
+        if (index == CURRENCY_LITERAL) {
+            return getString(source);
+        }
+        if (index > CURRENCIES.size()) {
+            throw new IllegalArgumentException(String.format("Unknown currency index %d", index));
+        }
+        return CURRENCIES.get(index - 1);
+    }
+
+    /**
+     * Writes ASCII strings char by char straight into the target, other strings are encoded through an array.
+     */
+    private static void putString(ByteBuffer target, String value) {
+        if (value == null) {
+            return;
+        }
+        if (!isAscii(value)) {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarint(target, bytes.length);
+            target.put(bytes);
+            return;
+        }
+        putVarint(target, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            target.put((byte) value.charAt(i));
+        }
+    }
+
+    private static String getString(ByteBuffer source, int presence, int flag) {
+        return (presence & flag) != 0 ? getString(source) : null;
+    }
+
+    private static String getString(ByteBuffer source) {
+        final long length = getVarint(source);
+        if (length > source.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        final byte[] bytes = new byte[(int) length];
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void putVarint(ByteBuffer target, long value) {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            target.put((byte) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        target.put((byte) remaining);
+    }
+
+    private static long getVarint(ByteBuffer source) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final byte next = source.get();
+            value |= (long) (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in binary audit record");
+    }
+
+    private static Map<String, Integer> currencyIndexes() {
+        final Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < CURRENCIES.size(); i++) {
+            indexes.put(CURRENCIES.get(i), i + 1);
+        }
+        return indexes;
+    }
+}
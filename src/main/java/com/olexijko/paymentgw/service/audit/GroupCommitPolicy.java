@@ -0,0 +1,19 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Decides when buffered audit records are written to disk. Records are flushed as soon as any of the limits is
+ * reached; {@code fsync} additionally forces every flush to the storage device.
+ */
+@Getter
+@Builder
+public class GroupCommitPolicy {
+    private final int maxRecords;
+    private final int maxBytes;
+    private final Duration maxDelay;
+    private final boolean fsync;
+}
@@ -0,0 +1,68 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.olexijko.paymentgw.dto.PaymentDto;
+
+/**
+ * Jackson serialization of {@link PaymentDto}, identical to the JSON returned by the API.
+ */
+public class JsonAuditCodec implements AuditCodec {
+    private static final String INVOICE_FIELD = "invoice";
+
+    private final ObjectMapper objectMapper;
+
+    public JsonAuditCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public byte format() {
+        return AuditFrame.FORMAT_JSON;
+    }
+
+    @Override
+    public void encode(PaymentDto paymentDto, ByteBuffer target) {
+        try {
+            target.put(objectMapper.writeValueAsBytes(paymentDto));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public PaymentDto decode(ByteBuffer payload) {
+        try {
+            return objectMapper.readValue(new ByteBufferBackedInputStream(payload.duplicate()), PaymentDto.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String readInvoice(ByteBuffer payload) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(new ByteBufferBackedInputStream(payload.duplicate()))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken valueToken = parser.nextToken();
+                if (INVOICE_FIELD.equals(fieldName)) {
+                    return valueToken == JsonToken.VALUE_STRING ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.olexijko.paymentgw.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Standard Base64 with padding, compatible with {@link java.util.Base64}, working on array regions so callers can
+ * reuse their buffers instead of allocating an exactly sized array for every value.
+ */
+public final class Base64Arrays {
+    private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte PADDING = '=';
+    private static final int[] ALPHABET_INDEXES = alphabetIndexes();
+
+    private Base64Arrays() {
+    }
+
+    public static int encodedLength(int length) {
+        return (length + 2) / 3 * 4;
+    }
+
+    public static int maxDecodedLength(int encodedLength) {
+        return encodedLength / 4 * 3;
+    }
+
+    /**
+     * Encodes the first {@code length} bytes of {@code source} into {@code target}.
+     *
+     * @return number of bytes written to {@code target}.
+     */
+    public static int encode(byte[] source, int length, byte[] target) {
+        int targetPosition = 0;
+        int sourcePosition = 0;
+        while (length - sourcePosition >= 3) {
+            final int bits = (source[sourcePosition++] & 0xFF) << 16 | (source[sourcePosition++] & 0xFF) << 8
+                    | (source[sourcePosition++] & 0xFF);
+            target[targetPosition++] = ALPHABET[bits >>> 18];
+            target[targetPosition++] = ALPHABET[bits >>> 12 & 0x3F];
+            target[targetPosition++] = ALPHABET[bits >>> 6 & 0x3F];
+            target[targetPosition++] = ALPHABET[bits & 0x3F];
+        }
+        final int remaining = length - sourcePosition;
+        if (remaining > 0) {
+            final int bits = (source[sourcePosition] & 0xFF) << 16 | (remaining == 2 ? (source[sourcePosition + 1] & 0xFF) << 8 : 0);
+            target[targetPosition++] = ALPHABET[bits >>> 18];
+            target[targetPosition++] = ALPHABET[bits >>> 12 & 0x3F];
+            target[targetPosition++] = remaining == 2 ? ALPHABET[bits >>> 6 & 0x3F] : PADDING;
+            target[targetPosition++] = PADDING;
+        }
+        return targetPosition;
+    }
+
+    /**
+     * Decodes the first {@code length} bytes of {@code source} into {@code target}.
+     *
+     * @return number of bytes written to {@code target}.
+     * @throws IllegalArgumentException if the source is not valid padded Base64.
+     */
+    public static int decode(byte[] source, int length, byte[] target) {
+        if (length % 4 != 0) {
+            throw new IllegalArgumentException("Base64 input length must be a multiple of 4");
+        }
+        int paddingLength = 0;
+        if (length > 0 && source[length - 1] == PADDING) {
+            paddingLength = source[length - 2] == PADDING ? 2 : 1;
+        }
+        int targetPosition = 0;
+        for (int sourcePosition = 0; sourcePosition < length; sourcePosition += 4) {
+            final boolean lastQuantum = sourcePosition + 4 == length;
+            final int bits = index(source[sourcePosition]) << 18 | index(source[sourcePosition + 1]) << 12
+                    | (lastQuantum && paddingLength == 2 ? 0 : index(source[sourcePosition + 2]) << 6)
+                    | (lastQuantum && paddingLength > 0 ? 0 : index(source[sourcePosition + 3]));
+            target[targetPosition++] = (byte) (bits >>> 16);
+            if (!lastQuantum || paddingLength < 2) {
+                target[targetPosition++] = (byte) (bits >>> 8);
+            }
+            if (!lastQuantum || paddingLength < 1) {
+                target[targetPosition++] = (byte) bits;
+            }
+        }
+        return targetPosition;
+    }
+
+    private static int index(byte symbol) {
+        final int index = ALPHABET_INDEXES[symbol & 0xFF];
+        if (index < 0) {
+            throw new IllegalArgumentException(String.format("Illegal Base64 character %d", symbol & 0xFF));
+        }
+        return index;
+    }
+
+    private static int[] alphabetIndexes() {
+        final int[] indexes = new int[256];
+        Arrays.fill(indexes, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            indexes[ALPHABET[i]] = i;
+        }
+        return indexes;
+    }
+}
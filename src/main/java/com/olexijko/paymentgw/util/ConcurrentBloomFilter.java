@@ -0,0 +1,104 @@
+package com.olexijko.paymentgw.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over strings. Bits are set with CAS on an {@link AtomicLongArray}, so concurrent
+ * {@link #put(String)} and {@link #mightContain(String)} calls never block each other and a value is visible to
+ * readers as soon as {@code put} returns.
+ */
+public class ConcurrentBloomFilter {
+    private static final long SECOND_HASH_SEED = 0x9e3779b97f4a7c15L;
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashFunctionCount;
+    private final AtomicLong setBitCount = new AtomicLong();
+
+    private ConcurrentBloomFilter(long bitSize, int hashFunctionCount) {
+        final int wordCount = Math.toIntExact((bitSize + Long.SIZE - 1) / Long.SIZE);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitSize = (long) wordCount * Long.SIZE;
+        this.hashFunctionCount = hashFunctionCount;
+    }
+
+    /**
+     * Creates a filter sized to keep the false positive probability at {@code falsePositiveProbability} once
+     * {@code expectedInsertions} distinct values have been added.
+     */
+    public static ConcurrentBloomFilter create(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be positive");
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("False positive probability must be in (0, 1)");
+        }
+        final long bitSize = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        final int hashFunctionCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+        return new ConcurrentBloomFilter(bitSize, hashFunctionCount);
+    }
+
+    /**
+     * @return {@code true} if at least one bit changed, i.e. the value was definitely not present before.
+     */
+    public boolean put(String value) {
+        final long hash1 = StringHash.hash(value);
+        final long hash2 = StringHash.hash(value, SECOND_HASH_SEED);
+        boolean changed = false;
+        for (int i = 0; i < hashFunctionCount; i++) {
+            changed |= setBit(bitIndex(hash1, hash2, i));
+        }
+        return changed;
+    }
+
+    /**
+     * @return {@code false} if the value was definitely never added, {@code true} if it probably was.
+     */
+    public boolean mightContain(String value) {
+        final long hash1 = StringHash.hash(value);
+        final long hash2 = StringHash.hash(value, SECOND_HASH_SEED);
+        for (int i = 0; i < hashFunctionCount; i++) {
+            final long bitIndex = bitIndex(hash1, hash2, i);
+            if ((words.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Current false positive probability estimated from the share of set bits.
+     */
+    public double expectedFalsePositiveProbability() {
+        return Math.pow((double) setBitCount.get() / bitSize, hashFunctionCount);
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public long memoryFootprintBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    private boolean setBit(long bitIndex) {
+        final int wordIndex = (int) (bitIndex >>> 6);
+        final long mask = 1L << bitIndex;
+        long word;
+        do {
+            word = words.get(wordIndex);
+            if ((word & mask) != 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(wordIndex, word, word | mask));
+        setBitCount.incrementAndGet();
+        return true;
+    }
+
+    private long bitIndex(long hash1, long hash2, int i) {
+        // Kirsch-Mitzenmacher: k indexes derived from two independent hashes
+        return Math.floorMod(hash1 + i * hash2, bitSize);
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.olexijko.paymentgw.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Immutable consistent hash ring. Every node is placed on the ring at a number of virtual points derived from its
+ * name, a key belongs to the node of the first point at or after the hash of the key. Adding a node to a ring of
+ * {@code n} nodes moves only about {@code 1/(n+1)} of the keys, all of them to the new node.
+ * <p>
+ * Points are kept in a sorted array, so a lookup is a hash and a binary search without allocations. The
+ * {@link StringHash} of similar keys like sequential invoices is spread over the whole ring.
+ */
+public class ConsistentHashRing<T> {
+    private final List<T> nodes;
+    private final long[] points;
+    private final Object[] pointNodes;
+
+    public ConsistentHashRing(List<T> nodes, Function<T, String> nodeName, int pointsPerNode) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Ring must have at least one node");
+        }
+        if (pointsPerNode < 1) {
+            throw new IllegalArgumentException("Points per node must be positive, but was " + pointsPerNode);
+        }
+        this.nodes = List.copyOf(nodes);
+        final int pointCount = nodes.size() * pointsPerNode;
+        final long[][] placedPoints = new long[pointCount][];
+        for (int nodeIndex = 0; nodeIndex < nodes.size(); nodeIndex++) {
+            final String name = nodeName.apply(nodes.get(nodeIndex));
+            for (int i = 0; i < pointsPerNode; i++) {
+                placedPoints[nodeIndex * pointsPerNode + i] = new long[] {StringHash.hash(name + '#' + i), nodeIndex};
+            }
+        }
+        // ties are broken by the node index, so the ring does not depend on the order the points were placed in
+        Arrays.sort(placedPoints, (left, right) -> left[0] != right[0]
+                ? Long.compare(left[0], right[0]) : Long.compare(left[1], right[1]));
+        this.points = new long[pointCount];
+        this.pointNodes = new Object[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            points[i] = placedPoints[i][0];
+            pointNodes[i] = nodes.get((int) placedPoints[i][1]);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T nodeFor(String key) {
+        final int index = Arrays.binarySearch(points, StringHash.hash(key));
+        final int pointIndex = index >= 0 ? index : -index - 1;
+        return (T) pointNodes[pointIndex == points.length ? 0 : pointIndex];
+    }
+
+    public List<T> getNodes() {
+        return nodes;
+    }
+}
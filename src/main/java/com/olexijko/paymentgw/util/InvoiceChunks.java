@@ -0,0 +1,26 @@
+package com.olexijko.paymentgw.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits invoices looked up together into chunks queried one at a time, keeping the IN lists well below the bind
+ * parameter limits of the databases.
+ */
+public final class InvoiceChunks {
+    public static final int CHUNK_SIZE = 500;
+
+    private InvoiceChunks() {
+    }
+
+    /**
+     * @return views of consecutive ranges of {@code invoices}, at most {@value #CHUNK_SIZE} invoices each.
+     */
+    public static List<List<String>> of(List<String> invoices) {
+        final List<List<String>> chunks = new ArrayList<>((invoices.size() + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        for (int from = 0; from < invoices.size(); from += CHUNK_SIZE) {
+            chunks.add(invoices.subList(from, Math.min(from + CHUNK_SIZE, invoices.size())));
+        }
+        return chunks;
+    }
+}
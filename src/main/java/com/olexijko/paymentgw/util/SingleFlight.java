@@ -0,0 +1,57 @@
+package com.olexijko.paymentgw.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent loads of the same key. The first caller for a key runs the loader on its own thread, callers
+ * arriving while it runs wait for and share its value or exception instead of loading again. Nothing is kept once the
+ * load is finished, so the next caller loads again.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlightLoads = new ConcurrentHashMap<>();
+
+    /**
+     * @param onCoalesced called when the caller waits for a load of another one instead of running {@code loader}.
+     */
+    public V execute(K key, Supplier<V> loader, Runnable onCoalesced) {
+        final CompletableFuture<V> ownLoad = new CompletableFuture<>();
+        final CompletableFuture<V> inFlightLoad = inFlightLoads.putIfAbsent(key, ownLoad);
+        if (inFlightLoad != null) {
+            onCoalesced.run();
+            return join(inFlightLoad);
+        }
+        try {
+            final V value = loader.get();
+            ownLoad.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            ownLoad.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, ownLoad);
+        }
+    }
+
+    int inFlightCount() {
+        return inFlightLoads.size();
+    }
+
+    private static <V> V join(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            // the exception of the leader is rethrown as is, so callers handle it like one thrown by the loader
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
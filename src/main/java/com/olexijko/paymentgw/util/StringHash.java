@@ -0,0 +1,37 @@
+package com.olexijko.paymentgw.util;
+
+/**
+ * 64-bit hash of strings: FNV-1a over the chars followed by the murmur3 finalizer, which spreads similar values like
+ * sequential invoices over all 64 bits.
+ */
+public final class StringHash {
+    /**
+     * FNV-1a offset basis, the seed of the plain FNV-1a hash.
+     */
+    public static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private StringHash() {
+    }
+
+    public static long hash(String value) {
+        return hash(value, FNV_OFFSET_BASIS);
+    }
+
+    /**
+     * Different seeds give hashes independent enough to derive several hash functions from, as Bloom filters do.
+     */
+    public static long hash(String value, long seed) {
+        long hash = seed;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
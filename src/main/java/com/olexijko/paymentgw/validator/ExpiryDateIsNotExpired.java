@@ -1,27 +1,91 @@
 package com.olexijko.paymentgw.validator;
 
+import java.time.Clock;
 import java.time.LocalDate;
-import java.time.YearMonth;
-import java.time.format.DateTimeFormatter;
 import javax.validation.ConstraintValidator;
 import javax.validation.ConstraintValidatorContext;
 
+/**
+ * Card is valid till the end of its expiry month, so expiry is compared with the current month only. The current
+ * month is cached together with the next midnight and recalculated once the clock passes it, which together with
+ * parsing digits in place keeps validation free of allocations.
+ */
 public class ExpiryDateIsNotExpired implements ConstraintValidator<ValidExpiryDate, String> {
 
     public static final String EXPIRY_DATE_FORMAT = "MMyy";
 
+    private static final int BASE_YEAR = 2000;
+
+    private final Clock clock;
+    private volatile CurrentMonth currentMonth;
+
+    public ExpiryDateIsNotExpired() {
+        this(Clock.systemDefaultZone());
+    }
+
+    ExpiryDateIsNotExpired(Clock clock) {
+        this.clock = clock;
+        this.currentMonth = CurrentMonth.of(clock);
+    }
+
     @Override
     public void initialize(ValidExpiryDate constraintAnnotation) {
     }
 
     @Override
     public boolean isValid(String expiryDateStr, ConstraintValidatorContext context) {
-        try {
-            final LocalDate expiryDate = YearMonth.parse(expiryDateStr, DateTimeFormatter.ofPattern(EXPIRY_DATE_FORMAT)).atEndOfMonth();
-            return !expiryDate.isBefore(LocalDate.now());
-        } catch (Exception e) {
-            //skip this validation in case input value is not understandable.
-            return true;
+        final int expiryMonth = parseMonthIndex(expiryDateStr);
+        //skip this validation in case input value is not understandable.
+        return expiryMonth < 0 || expiryMonth >= currentMonthIndex();
+    }
+
+    private int currentMonthIndex() {
+        CurrentMonth month = currentMonth;
+        if (clock.millis() >= month.validUntilMillis) {
+            month = CurrentMonth.of(clock);
+            currentMonth = month;
+        }
+        return month.index;
+    }
+
+    /**
+     * @return months since the start of {@link #BASE_YEAR} for a {@value #EXPIRY_DATE_FORMAT} value or -1 if the
+     * value is not a valid one.
+     */
+    private static int parseMonthIndex(String value) {
+        if (value == null || value.length() != EXPIRY_DATE_FORMAT.length()) {
+            return -1;
+        }
+        final int month = twoDigits(value, 0);
+        final int year = twoDigits(value, 2);
+        if (month < 1 || month > 12 || year < 0) {
+            return -1;
+        }
+        return year * 12 + month - 1;
+    }
+
+    private static int twoDigits(String value, int offset) {
+        final int tens = value.charAt(offset) - '0';
+        final int units = value.charAt(offset + 1) - '0';
+        if (tens < 0 || tens > 9 || units < 0 || units > 9) {
+            return -1;
+        }
+        return tens * 10 + units;
+    }
+
+    private static final class CurrentMonth {
+        private final int index;
+        private final long validUntilMillis;
+
+        private CurrentMonth(int index, long validUntilMillis) {
+            this.index = index;
+            this.validUntilMillis = validUntilMillis;
+        }
+
+        private static CurrentMonth of(Clock clock) {
+            final LocalDate today = LocalDate.now(clock);
+            final long nextMidnight = today.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+            return new CurrentMonth((today.getYear() - BASE_YEAR) * 12 + today.getMonthValue() - 1, nextMidnight);
         }
     }
 }
@@ -0,0 +1,249 @@
+package com.olexijko.paymentgw.validator;
+
+import java.util.Set;
+import javax.validation.ConstraintViolation;
+
+import com.olexijko.paymentgw.dto.CardDto;
+import com.olexijko.paymentgw.dto.CardholderDto;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.Validator;
+
+/**
+ * Hand written counterpart of the Bean Validation constraints of {@link PaymentDto}, {@link CardholderDto} and
+ * {@link CardDto}. Every field is checked in a single pass over its characters, without reflection or regular
+ * expressions, and rejected with the message of the annotation it would be rejected by. When several constraints of a
+ * field fail only the first one in declaration order is reported.
+ * <p>
+ * Emails the simple dot-atom check does not accept are passed to the reference Bean Validation validator, which stays
+ * the source of truth for the rest of the address grammar.
+ */
+public class PaymentDtoValidator implements Validator {
+    private static final int PAN_LENGTH = 16;
+    private static final int MAX_EMAIL_LOCAL_PART_LENGTH = 64;
+    private static final int MAX_EMAIL_DOMAIN_LENGTH = 255;
+    private static final int MAX_DOMAIN_LABEL_LENGTH = 63;
+    private static final String EMAIL_ATOM_SYMBOLS = "!#$%&'*+/=?^_`{|}~-";
+
+    private final javax.validation.Validator referenceValidator;
+    private final ExpiryDateIsNotExpired expiryDateIsNotExpired = new ExpiryDateIsNotExpired();
+
+    public PaymentDtoValidator(javax.validation.Validator referenceValidator) {
+        this.referenceValidator = referenceValidator;
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return PaymentDto.class.equals(clazz);
+    }
+
+    @Override
+    public void validate(Object target, Errors errors) {
+        final PaymentDto payment = (PaymentDto) target;
+        if (isBlank(payment.getInvoice())) {
+            reject(errors, "invoice", payment.getInvoice(), "NotBlank", "Invoice is required.");
+        }
+        if (payment.getAmount() == null) {
+            reject(errors, "amount", null, "NotNull", "Amount is required.");
+        } else if (!isAmount(payment.getAmount())) {
+            reject(errors, "amount", payment.getAmount(), "Pattern", "Amount is invalid.");
+        }
+        if (isBlank(payment.getCurrency())) {
+            reject(errors, "currency", payment.getCurrency(), "NotBlank", "Currency is required.");
+        }
+        if (payment.getCardholder() == null) {
+            reject(errors, "cardholder", null, "NotNull", "Cardholder info is required.");
+        } else {
+            validateCardholder(payment.getCardholder(), errors);
+        }
+        if (payment.getCard() == null) {
+            reject(errors, "card", null, "NotNull", "Card info is required.");
+        } else {
+            validateCard(payment.getCard(), errors);
+        }
+    }
+
+    private void validateCardholder(CardholderDto cardholder, Errors errors) {
+        if (isBlank(cardholder.getName())) {
+            reject(errors, "cardholder.name", cardholder.getName(), "NotBlank", "Name is required.");
+        }
+        final String email = cardholder.getEmail();
+        if (isBlank(email)) {
+            reject(errors, "cardholder.email", email, "NotBlank", "Email is required.");
+        } else if (!isDotAtomEmail(email)) {
+            final Set<ConstraintViolation<CardholderDto>> violations =
+                    referenceValidator.validateValue(CardholderDto.class, "email", email);
+            if (!violations.isEmpty()) {
+                reject(errors, "cardholder.email", email, "Email", violations.iterator().next().getMessage());
+            }
+        }
+    }
+
+    private void validateCard(CardDto card, Errors errors) {
+        final String pan = card.getPan();
+        if (isBlank(pan)) {
+            reject(errors, "card.pan", pan, "NotBlank", "PAN is required.");
+        } else if (!isPanFormat(pan)) {
+            reject(errors, "card.pan", pan, "Pattern", "PAN is invalid.");
+        } else if (!passesLuhnCheck(pan)) {
+            reject(errors, "card.pan", pan, "LuhnCheck", "PAN is invalid.");
+        }
+        final String expiry = card.getExpiry();
+        if (isBlank(expiry)) {
+            reject(errors, "card.expiry", expiry, "NotBlank", "Expiry is required.");
+        } else if (!isExpiryFormat(expiry)) {
+            reject(errors, "card.expiry", expiry, "Pattern", "Expiry should be in format 'MMyy'.");
+        } else if (!expiryDateIsNotExpired.isValid(expiry, null)) {
+            reject(errors, "card.expiry", expiry, "ValidExpiryDate", "Payment card is expired.");
+        }
+        if (isBlank(card.getCvv())) {
+            reject(errors, "card.cvv", card.getCvv(), "NotBlank", "CVV is required.");
+        }
+    }
+
+    /**
+     * Same error codes and field error shape as the Bean Validation adapter of Spring, so message resolution does not
+     * depend on the validator used.
+     */
+    private static void reject(Errors errors, String field, Object rejectedValue, String errorCode, String message) {
+        if (errors instanceof BindingResult) {
+            final BindingResult bindingResult = (BindingResult) errors;
+            bindingResult.addError(new FieldError(errors.getObjectName(), field, rejectedValue, false,
+                    bindingResult.resolveMessageCodes(errorCode, field), null, message));
+        } else {
+            errors.rejectValue(field, errorCode, message);
+        }
+    }
+
+    /**
+     * {@code @NotBlank}: at least one character left after {@link String#trim()}.
+     */
+    private static boolean isBlank(String value) {
+        if (value == null) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@code ^[0-9]*[1-9]+$}: digits only, the last one is not zero.
+     */
+    private static boolean isAmount(String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (!isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return length > 0 && value.charAt(length - 1) != '0';
+    }
+
+    /**
+     * {@code [0-9]{16}}
+     */
+    private static boolean isPanFormat(String value) {
+        if (value.length() != PAN_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < PAN_LENGTH; i++) {
+            if (!isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@code @LuhnCheck} of a value made of digits only, the check digit is summed along with the rest.
+     */
+    private static boolean passesLuhnCheck(String digits) {
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            int digit = digits.charAt(digits.length() - 1 - i) - '0';
+            if ((i & 1) == 1) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return sum % 10 == 0;
+    }
+
+    /**
+     * {@code ^(0[1-9]|1[012])[0-9]{2}$}
+     */
+    private static boolean isExpiryFormat(String value) {
+        if (value.length() != 4 || !isDigit(value.charAt(2)) || !isDigit(value.charAt(3))) {
+            return false;
+        }
+        final char monthTens = value.charAt(0);
+        final char monthUnits = value.charAt(1);
+        return monthTens == '0' && monthUnits >= '1' && monthUnits <= '9'
+                || monthTens == '1' && monthUnits >= '0' && monthUnits <= '2';
+    }
+
+    /**
+     * ASCII {@code local@domain} where the local part is dot separated atoms and the domain is dot separated labels of
+     * letters, digits and inner hyphens. Every address accepted here is accepted by {@code @Email} as well.
+     */
+    private static boolean isDotAtomEmail(String value) {
+        final int at = value.lastIndexOf('@');
+        if (at <= 0 || at > MAX_EMAIL_LOCAL_PART_LENGTH || value.length() - at - 1 > MAX_EMAIL_DOMAIN_LENGTH) {
+            return false;
+        }
+        boolean atomStart = true;
+        for (int i = 0; i < at; i++) {
+            final char symbol = value.charAt(i);
+            if (symbol == '.') {
+                if (atomStart) {
+                    return false;
+                }
+                atomStart = true;
+            } else if (isLetterOrDigit(symbol) || EMAIL_ATOM_SYMBOLS.indexOf(symbol) >= 0) {
+                atomStart = false;
+            } else {
+                return false;
+            }
+        }
+        return !atomStart && isDomain(value, at + 1);
+    }
+
+    private static boolean isDomain(String value, int start) {
+        int labelLength = 0;
+        char previous = '.';
+        for (int i = start; i < value.length(); i++) {
+            final char symbol = value.charAt(i);
+            if (symbol == '.') {
+                if (previous == '.' || previous == '-') {
+                    return false;
+                }
+                labelLength = 0;
+            } else if (isLetterOrDigit(symbol) || symbol == '-' && previous != '.') {
+                if (++labelLength > MAX_DOMAIN_LABEL_LENGTH) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+            previous = symbol;
+        }
+        return previous != '.' && previous != '-';
+    }
+
+    private static boolean isDigit(char symbol) {
+        return symbol >= '0' && symbol <= '9';
+    }
+
+    private static boolean isLetterOrDigit(char symbol) {
+        return isDigit(symbol) || symbol >= 'a' && symbol <= 'z' || symbol >= 'A' && symbol <= 'Z';
+    }
+}
@@ -0,0 +1,39 @@
+package com.olexijko.paymentgw.validator;
+
+import com.olexijko.paymentgw.service.PaymentMetrics;
+import org.springframework.validation.Errors;
+import org.springframework.validation.SmartValidator;
+import org.springframework.validation.Validator;
+
+/**
+ * Records the time the wrapped validator spends in validation of a request body.
+ */
+public class TimedValidator implements SmartValidator {
+    private final Validator delegate;
+    private final PaymentMetrics paymentMetrics;
+
+    public TimedValidator(Validator delegate, PaymentMetrics paymentMetrics) {
+        this.delegate = delegate;
+        this.paymentMetrics = paymentMetrics;
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return delegate.supports(clazz);
+    }
+
+    @Override
+    public void validate(Object target, Errors errors) {
+        paymentMetrics.time(PaymentMetrics.Stage.VALIDATION, () -> delegate.validate(target, errors));
+    }
+
+    @Override
+    public void validate(Object target, Errors errors, Object... validationHints) {
+        if (!(delegate instanceof SmartValidator)) {
+            validate(target, errors);
+            return;
+        }
+        paymentMetrics.time(PaymentMetrics.Stage.VALIDATION,
+                () -> ((SmartValidator) delegate).validate(target, errors, validationHints));
+    }
+}
@@ -0,0 +1,59 @@
+package com.olexijko.paymentgw.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConcurrencyLimitingDataSourceTest {
+    private final DataSource targetDataSource = mock(DataSource.class);
+    private final ConcurrencyLimitingDataSource dataSource =
+            new ConcurrencyLimitingDataSource(targetDataSource, 2, Duration.ofMillis(10));
+
+    @BeforeEach
+    void setUpTargetDataSource() throws SQLException {
+        when(targetDataSource.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+    }
+
+    @Test
+    void getConnection_FailsFast_WhenAllPermitsAreInUse() throws SQLException {
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+    }
+
+    @Test
+    void getConnection_ReleasesPermitOnce_WhenConnectionIsClosedTwice() throws SQLException {
+        final Connection connection = dataSource.getConnection();
+        dataSource.getConnection();
+
+        connection.close();
+        connection.close();
+
+        assertEquals(1, dataSource.availablePermits());
+        verify(((ConnectionProxy) connection).getTargetConnection(), times(2)).close();
+    }
+
+    @Test
+    void getConnection_ReleasesPermit_WhenTargetDataSourceFails() throws SQLException {
+        final SQLException failure = new SQLException("Connection refused");
+        when(targetDataSource.getConnection()).thenThrow(failure);
+
+        assertSame(failure, assertThrows(SQLException.class, dataSource::getConnection));
+        assertEquals(2, dataSource.availablePermits());
+    }
+}
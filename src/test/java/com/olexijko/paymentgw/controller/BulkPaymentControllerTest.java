@@ -0,0 +1,155 @@
+package com.olexijko.paymentgw.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.dto.PaymentProcessingResultDto;
+import com.olexijko.paymentgw.service.BulkPaymentProcessor;
+import com.olexijko.paymentgw.service.PaymentMetrics;
+import com.olexijko.paymentgw.service.PaymentService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static com.olexijko.paymentgw.PayloadFactory.VALID_AMOUNT;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_EMAIL;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_NAME;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_CVV;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_EXPIRY_DATE;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_PAN;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CURRENCY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BulkPaymentControllerTest {
+    private static final String BULK_PAYMENT_CONTROLLER_BASE_PATH = "/api/v1/payments/bulk";
+    private static final int BATCH_SIZE = 2;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ValidatorFactory VALIDATOR_FACTORY = Validation.buildDefaultValidatorFactory();
+
+    private final PaymentService paymentServiceMock = Mockito.mock(PaymentService.class);
+    private final BulkPaymentProcessor bulkPaymentProcessor = new BulkPaymentProcessor(OBJECT_MAPPER,
+            VALIDATOR_FACTORY.getValidator(), paymentServiceMock, new PaymentMetrics(new SimpleMeterRegistry()), BATCH_SIZE, false);
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new BulkPaymentController(bulkPaymentProcessor)).build();
+
+    @AfterAll
+    static void closeValidatorFactory() {
+        VALIDATOR_FACTORY.close();
+    }
+
+    @Test
+    void processPaymentsInBulk_StreamsResultPerPayment_WhenNdjsonIsSent() throws Exception {
+        Mockito.when(paymentServiceMock.processPayments(ArgumentMatchers.any())).then(invocationOnMock -> {
+            final List<PaymentDto> paymentDtos = invocationOnMock.getArgument(0);
+            return paymentDtos.stream().map(paymentDto -> PaymentProcessingResultDto.success()).collect(Collectors.toList());
+        });
+        final String requestBody = String.join("\n",
+                validPayment("1").toString(),
+                validPayment("2").put("amount", "0").toString(),
+                validPayment("3").toString(),
+                "{\"invoice\": {\"nested\": true}}");
+
+        final List<JsonNode> results = postBulk(requestBody, APPLICATION_NDJSON);
+
+        assertEquals(4, results.size());
+        assertResult(results.get(0), 0, true);
+        assertResult(results.get(1), 1, false);
+        assertEquals("Amount is invalid.", results.get(1).path("errors").path("amount").asText());
+        assertResult(results.get(2), 2, true);
+        assertResult(results.get(3), 3, false);
+        assertEquals("Payment is malformed.", results.get(3).path("errors").path("error").asText());
+        Mockito.verify(paymentServiceMock, Mockito.times(2)).processPayments(ArgumentMatchers.argThat(batch -> batch.size() == 1));
+        Mockito.verify(paymentServiceMock).processPayments(ArgumentMatchers.argThat(batch -> "3".equals(batch.get(0).getInvoice())));
+        Mockito.verifyNoMoreInteractions(paymentServiceMock);
+    }
+
+    @Test
+    void processPaymentsInBulk_ProcessesReadPaymentsAndReportsMalformedJson_WhenArrayIsBroken() throws Exception {
+        Mockito.when(paymentServiceMock.processPayments(ArgumentMatchers.any()))
+                .thenReturn(List.of(PaymentProcessingResultDto.failed("Payment with invoice '1' was previously processed")));
+        final String requestBody = new JSONArray(List.of(validPayment("1"))).toString().replace("]", ", {\"invoice\": ]");
+
+        final List<JsonNode> results = postBulk(requestBody, APPLICATION_JSON);
+
+        assertEquals(2, results.size());
+        assertResult(results.get(0), 0, false);
+        assertEquals("Payment with invoice '1' was previously processed", results.get(0).path("errors").path("error").asText());
+        assertResult(results.get(1), 1, false);
+        Mockito.verify(paymentServiceMock).processPayments(ArgumentMatchers.argThat(batch -> batch.size() == 1));
+        Mockito.verifyNoMoreInteractions(paymentServiceMock);
+    }
+
+    @Test
+    void processPaymentsInBulk_AnswersNullPaymentAsMalformed_WhenArrayContainsNull() throws Exception {
+        Mockito.when(paymentServiceMock.processPayments(ArgumentMatchers.any()))
+                .thenReturn(List.of(PaymentProcessingResultDto.success()));
+        final String requestBody = "[null, " + validPayment("2") + "]";
+
+        final List<JsonNode> results = postBulk(requestBody, APPLICATION_JSON);
+
+        assertEquals(2, results.size());
+        assertResult(results.get(0), 0, false);
+        assertEquals("Payment is malformed.", results.get(0).path("errors").path("error").asText());
+        assertResult(results.get(1), 1, true);
+        Mockito.verify(paymentServiceMock).processPayments(ArgumentMatchers.argThat(batch -> "2".equals(batch.get(0).getInvoice())));
+        Mockito.verifyNoMoreInteractions(paymentServiceMock);
+    }
+
+    @Test
+    void processPaymentsInBulk_AnswersNullPaymentAsMalformed_WhenNdjsonLineIsNull() throws Exception {
+        final List<JsonNode> results = postBulk("null", APPLICATION_NDJSON);
+
+        assertEquals(1, results.size());
+        assertResult(results.get(0), 0, false);
+        assertEquals("Payment is malformed.", results.get(0).path("errors").path("error").asText());
+        Mockito.verifyNoInteractions(paymentServiceMock);
+    }
+
+    private List<JsonNode> postBulk(String requestBody, MediaType contentType) throws Exception {
+        final String responseBody = mockMvc.perform(post(BULK_PAYMENT_CONTROLLER_BASE_PATH).content(requestBody).contentType(contentType))
+                .andExpect(status().isOk()).andExpect(content().contentType(APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        final List<JsonNode> results = new ArrayList<>();
+        for (String line : responseBody.split("\n")) {
+            results.add(OBJECT_MAPPER.readTree(line));
+        }
+        return results;
+    }
+
+    private static void assertResult(JsonNode result, int index, boolean approved) {
+        assertEquals(index, result.get("index").asInt());
+        assertEquals(approved, result.get("approved").asBoolean());
+    }
+
+    private static JSONObject validPayment(String invoice) {
+        return new JSONObject(Map.of(
+                "invoice", invoice,
+                "amount", VALID_AMOUNT,
+                "currency", VALID_CURRENCY,
+                "cardholder", Map.of(
+                        "name", VALID_CARDHOLDER_NAME,
+                        "email", VALID_CARDHOLDER_EMAIL),
+                "card", Map.of(
+                        "pan", VALID_CARD_PAN,
+                        "expiry", VALID_CARD_EXPIRY_DATE,
+                        "cvv", VALID_CARD_CVV)));
+    }
+}
@@ -0,0 +1,91 @@
+package com.olexijko.paymentgw.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.olexijko.paymentgw.dto.CardDto;
+import com.olexijko.paymentgw.dto.CardholderDto;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static com.olexijko.paymentgw.PayloadFactory.VALID_AMOUNT;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_EMAIL;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_NAME;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_CVV;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_EXPIRY_DATE;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_PAN;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CURRENCY;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Duplicates are detected by the unique invoice constraint of a real database, whose violation is reported under a
+ * database specific name.
+ */
+@AutoConfigureMockMvc
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = {
+        "spring.datasource.url=jdbc:h2:mem:duplicates;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "audit.sender.flush.fsync=false",
+        "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF"})
+class DuplicatePaymentControllerTest {
+    private static final String PAYMENT_CONTROLLER_BASE_PATH = "/api/v1/payments";
+    private static final String INVOICE = "duplicate-invoice";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void auditDirectories(DynamicPropertyRegistry registry) {
+        final Path auditDirectory = createTempDirectory();
+        registry.add("audit.sender.directory", () -> auditDirectory.resolve("audit").toString());
+        registry.add("audit.sender.overflow-directory", () -> auditDirectory.resolve("audit-overflow").toString());
+    }
+
+    @Test
+    void processNewPayment_ReturnsConflict_WhenInvoiceViolatesUniqueConstraint() throws Exception {
+        mockMvc.perform(paymentRequest())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.approved").value(true));
+
+        mockMvc.perform(paymentRequest())
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.approved").value(false))
+                .andExpect(jsonPath("$.errors.error").value("Payment with invoice '" + INVOICE + "' was previously processed"));
+    }
+
+    private RequestBuilder paymentRequest() throws Exception {
+        final PaymentDto paymentDto = PaymentDto.builder()
+                .invoice(INVOICE)
+                .amount(VALID_AMOUNT)
+                .currency(VALID_CURRENCY)
+                .cardholder(CardholderDto.builder().email(VALID_CARDHOLDER_EMAIL).name(VALID_CARDHOLDER_NAME).build())
+                .card(CardDto.builder().expiry(VALID_CARD_EXPIRY_DATE).pan(VALID_CARD_PAN).cvv(VALID_CARD_CVV).build())
+                .build();
+        return post(PAYMENT_CONTROLLER_BASE_PATH).content(objectMapper.writeValueAsString(paymentDto)).contentType(APPLICATION_JSON);
+    }
+
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("duplicate-audit");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
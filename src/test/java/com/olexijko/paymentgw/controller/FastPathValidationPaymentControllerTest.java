@@ -0,0 +1,12 @@
+package com.olexijko.paymentgw.controller;
+
+/**
+ * Runs every controller scenario with the hand written payment validator in place of Bean Validation.
+ */
+class FastPathValidationPaymentControllerTest extends PaymentControllerTest {
+
+    @Override
+    boolean fastPathValidation() {
+        return true;
+    }
+}
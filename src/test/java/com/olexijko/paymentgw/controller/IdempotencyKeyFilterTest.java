@@ -0,0 +1,181 @@
+package com.olexijko.paymentgw.controller;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.olexijko.paymentgw.dto.PaymentProcessingResultDto;
+import com.olexijko.paymentgw.service.PaymentMetrics;
+import com.olexijko.paymentgw.service.PaymentService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static com.olexijko.paymentgw.PayloadFactory.VALID_AMOUNT;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_EMAIL;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_NAME;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_CVV;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_EXPIRY_DATE;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_PAN;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CURRENCY;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_INVOICE;
+import static com.olexijko.paymentgw.controller.IdempotencyKeyFilter.IDEMPOTENCY_KEY_HEADER;
+import static com.olexijko.paymentgw.controller.IdempotencyKeyFilter.IDEMPOTENT_REPLAYED_HEADER;
+import static com.olexijko.paymentgw.controller.IdempotencyKeyFilter.KEEP_VALIDATION_FAILURES_HEADER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class IdempotencyKeyFilterTest {
+    private static final String PAYMENT_CONTROLLER_BASE_PATH = "/api/v1/payments";
+    private static final String IDEMPOTENCY_KEY = "c0ffee";
+
+    private final PaymentService paymentServiceMock = Mockito.mock(PaymentService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MockMvc mockMvc = MockMvcBuilders
+            .standaloneSetup(new PaymentController(paymentServiceMock))
+            .setControllerAdvice(new PaymentControllerAdvice(new PaymentMetrics(meterRegistry), false))
+            .addFilters(new IdempotencyKeyFilter(new ObjectMapper(), meterRegistry, 100, Duration.ofMinutes(1), Duration.ofSeconds(10)))
+            .build();
+
+    @Test
+    void processNewPayment_ReplaysFirstResponse_WhenRetriedWithSameKey() throws Exception {
+        Mockito.when(paymentServiceMock.processPayment(ArgumentMatchers.any())).thenReturn(PaymentProcessingResultDto.success());
+
+        mockMvc.perform(paymentRequest(VALID_INVOICE))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IDEMPOTENT_REPLAYED_HEADER))
+                .andExpect(jsonPath("$.approved").value(true));
+        mockMvc.perform(paymentRequest(VALID_INVOICE))
+                .andExpect(status().isOk())
+                .andExpect(header().string(IDEMPOTENT_REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.approved").value(true));
+
+        Mockito.verify(paymentServiceMock).processPayment(ArgumentMatchers.any());
+        assertEquals(1, resultCount("replayed"));
+    }
+
+    @Test
+    void processNewPayment_WaitsForFirstAttempt_WhenRetriedWhileItIsInFlight() throws Exception {
+        final CountDownLatch firstAttemptStarted = new CountDownLatch(1);
+        final CountDownLatch firstAttemptReleased = new CountDownLatch(1);
+        Mockito.when(paymentServiceMock.processPayment(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            firstAttemptStarted.countDown();
+            assertTrue(firstAttemptReleased.await(10, TimeUnit.SECONDS));
+            return PaymentProcessingResultDto.success();
+        });
+
+        final CompletableFuture<Void> firstAttempt = CompletableFuture.runAsync(() -> performApproved(paymentRequest(VALID_INVOICE)));
+        assertTrue(firstAttemptStarted.await(10, TimeUnit.SECONDS));
+        final CompletableFuture<Void> retry = CompletableFuture.runAsync(() -> performApproved(paymentRequest(VALID_INVOICE)));
+        Thread.sleep(200);
+        assertFalse(retry.isDone());
+        firstAttemptReleased.countDown();
+        firstAttempt.get(10, TimeUnit.SECONDS);
+        retry.get(10, TimeUnit.SECONDS);
+
+        Mockito.verify(paymentServiceMock).processPayment(ArgumentMatchers.any());
+        assertEquals(1, resultCount("processed"));
+        assertEquals(1, resultCount("coalesced") + resultCount("replayed"));
+    }
+
+    @Test
+    void processNewPayment_ReturnsUnprocessableEntity_WhenKeyIsReusedForDifferentPayment() throws Exception {
+        Mockito.when(paymentServiceMock.processPayment(ArgumentMatchers.any())).thenReturn(PaymentProcessingResultDto.success());
+
+        mockMvc.perform(paymentRequest(VALID_INVOICE)).andExpect(status().isOk());
+        mockMvc.perform(paymentRequest("another-invoice"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.approved").value(false));
+
+        Mockito.verify(paymentServiceMock).processPayment(ArgumentMatchers.any());
+    }
+
+    @Test
+    void processNewPayment_ProcessesRetryAgain_WhenFirstAttemptFailed() throws Exception {
+        Mockito.when(paymentServiceMock.processPayment(ArgumentMatchers.any()))
+                .thenThrow(new IllegalStateException("database is down"))
+                .thenReturn(PaymentProcessingResultDto.success());
+
+        assertThrows(Exception.class, () -> mockMvc.perform(paymentRequest(VALID_INVOICE)));
+        mockMvc.perform(paymentRequest(VALID_INVOICE))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IDEMPOTENT_REPLAYED_HEADER));
+
+        Mockito.verify(paymentServiceMock, Mockito.times(2)).processPayment(ArgumentMatchers.any());
+    }
+
+    @Test
+    void processNewPayment_ProcessesCorrectedRetry_WhenFirstAttemptFailedValidation() throws Exception {
+        Mockito.when(paymentServiceMock.processPayment(ArgumentMatchers.any())).thenReturn(PaymentProcessingResultDto.success());
+
+        mockMvc.perform(paymentRequest("")).andExpect(status().isBadRequest());
+        mockMvc.perform(paymentRequest(VALID_INVOICE))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IDEMPOTENT_REPLAYED_HEADER))
+                .andExpect(jsonPath("$.approved").value(true));
+
+        Mockito.verify(paymentServiceMock).processPayment(ArgumentMatchers.any());
+    }
+
+    @Test
+    void processNewPayment_ReplaysValidationFailure_WhenRequestAsksToKeepIt() throws Exception {
+        mockMvc.perform(paymentRequest("").header(KEEP_VALIDATION_FAILURES_HEADER, "true"))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().doesNotExist(IDEMPOTENT_REPLAYED_HEADER));
+        mockMvc.perform(paymentRequest(""))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string(IDEMPOTENT_REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.approved").value(false));
+
+        assertEquals(1, resultCount("replayed"));
+    }
+
+    private void performApproved(RequestBuilder request) {
+        try {
+            mockMvc.perform(request).andExpect(status().isOk()).andExpect(jsonPath("$.approved").value(true));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private double resultCount(String result) {
+        return meterRegistry.get("payment.idempotency").tag("result", result).counter().count();
+    }
+
+    private static MockHttpServletRequestBuilder paymentRequest(String invoice) {
+        final Map<String, Object> requestBody = Map.of(
+                "invoice", invoice,
+                "amount", VALID_AMOUNT,
+                "currency", VALID_CURRENCY,
+                "cardholder", Map.of(
+                        "name", VALID_CARDHOLDER_NAME,
+                        "email", VALID_CARDHOLDER_EMAIL),
+                "card", Map.of(
+                        "pan", VALID_CARD_PAN,
+                        "expiry", VALID_CARD_EXPIRY_DATE,
+                        "cvv", VALID_CARD_CVV));
+        try {
+            return post(PAYMENT_CONTROLLER_BASE_PATH)
+                    .header(IDEMPOTENCY_KEY_HEADER, IDEMPOTENCY_KEY)
+                    .content(new ObjectMapper().writeValueAsString(requestBody))
+                    .contentType(APPLICATION_JSON);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
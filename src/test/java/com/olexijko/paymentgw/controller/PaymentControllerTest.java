@@ -1,13 +1,17 @@
 package com.olexijko.paymentgw.controller;
 
+import java.util.List;
 import java.util.Map;
 
 import com.olexijko.paymentgw.dto.CardDto;
 import com.olexijko.paymentgw.dto.CardholderDto;
 import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.dto.PaymentLookupResultDto;
 import com.olexijko.paymentgw.dto.PaymentProcessingResultDto;
 import com.olexijko.paymentgw.exception.PaymentNotFoundException;
+import com.olexijko.paymentgw.service.PaymentMetrics;
 import com.olexijko.paymentgw.service.PaymentService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -42,14 +46,19 @@ class PaymentControllerTest {
     private static final String PAYMENT_CONTROLLER_BASE_PATH = "/api/v1/payments";
 
     private final PaymentService paymentServiceMock = Mockito.mock(PaymentService.class);
-    private final PaymentController paymentController = new PaymentController(paymentServiceMock);
-    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(paymentController).build();
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new PaymentController(paymentServiceMock))
+            .setControllerAdvice(new PaymentControllerAdvice(new PaymentMetrics(new SimpleMeterRegistry()), fastPathValidation()))
+            .build();
 
     @BeforeEach
     void resetMocks() {
         Mockito.reset(paymentServiceMock);
     }
 
+    boolean fastPathValidation() {
+        return false;
+    }
+
     @Test
     void processNewPayment_ReturnsApproved_WhenValidDataIsSent() throws Exception {
         Mockito.when(paymentServiceMock.processPayment(ArgumentMatchers.any())).thenReturn(PaymentProcessingResultDto.success());
@@ -389,4 +398,35 @@ class PaymentControllerTest {
         Mockito.verify(paymentServiceMock).findPaymentByInvoice(notExistingInvoice);
     }
 
+    @Test
+    void lookupPayments_ReturnsFoundPaymentsAndMissingInvoices_WhenInvoicesAreSent() throws Exception {
+        final PaymentDto foundPayment = PaymentDto.builder()
+                .invoice(VALID_INVOICE)
+                .amount(VALID_AMOUNT)
+                .currency(VALID_CURRENCY)
+                .card(CardDto.builder().expiry(SANITISED_CARD_EXPIRY_DATE).pan(SANITISED_CARD_PAN).build())
+                .build();
+        Mockito.when(paymentServiceMock.findPaymentsByInvoices(List.of(VALID_INVOICE, "1234")))
+                .thenReturn(new PaymentLookupResultDto(Map.of(VALID_INVOICE, foundPayment), List.of("1234")));
+        final RequestBuilder request = post(PAYMENT_CONTROLLER_BASE_PATH + "/lookup")
+                .content(new JSONObject(Map.of("invoices", List.of(VALID_INVOICE, "1234"))).toString()).contentType(APPLICATION_JSON);
+
+        this.mockMvc.perform(request).andDo(MockMvcResultHandlers.print())
+                .andExpect(status().isOk()).andExpect(content().contentType(APPLICATION_JSON))
+                .andExpect(jsonPath("$.payments.['" + VALID_INVOICE + "'].card.pan").value(SANITISED_CARD_PAN))
+                .andExpect(jsonPath("$.missing[0]").value("1234"));
+        Mockito.verify(paymentServiceMock).findPaymentsByInvoices(List.of(VALID_INVOICE, "1234"));
+    }
+
+    @Test
+    void lookupPayments_ReturnsBadRequest_WhenInvoicesAreEmpty() throws Exception {
+        final RequestBuilder request = post(PAYMENT_CONTROLLER_BASE_PATH + "/lookup")
+                .content(new JSONObject(Map.of("invoices", List.of())).toString()).contentType(APPLICATION_JSON);
+
+        this.mockMvc.perform(request).andDo(MockMvcResultHandlers.print())
+                .andExpect(status().isBadRequest()).andExpect(content().contentType(APPLICATION_JSON))
+                .andExpect(jsonPath("$.errors.invoices").value("Invoices are required."));
+        Mockito.verifyNoMoreInteractions(paymentServiceMock);
+    }
+
 }
@@ -0,0 +1,202 @@
+package com.olexijko.paymentgw.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.olexijko.paymentgw.dto.CardDto;
+import com.olexijko.paymentgw.dto.CardholderDto;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.dto.PaymentSubmissionDto;
+import com.olexijko.paymentgw.entity.PaymentSubmission;
+import com.olexijko.paymentgw.repository.PaymentRepository;
+import com.olexijko.paymentgw.repository.PaymentSubmissionRepository;
+import com.olexijko.paymentgw.service.Encryptor;
+import com.olexijko.paymentgw.service.PaymentSubmissionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static com.olexijko.paymentgw.PayloadFactory.VALID_AMOUNT;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_EMAIL;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_NAME;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_CVV;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_EXPIRY_DATE;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_PAN;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CURRENCY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = {
+        "spring.datasource.url=jdbc:h2:mem:submissions;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "payment.async.enabled=true",
+        "payment.async.workers=4",
+        "payment.async.poll-interval=100ms",
+        "payment.async.max-attempts=3",
+        "audit.sender.flush.fsync=false",
+        "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF"})
+class PaymentSubmissionControllerTest {
+    private static final String SUBMISSIONS_PATH = "/api/v1/payments/submissions";
+    private static final int SUBMISSIONS_COUNT = 200;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long COMPLETION_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PaymentSubmissionService paymentSubmissionService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentSubmissionRepository submissionRepository;
+
+    @Autowired
+    private Encryptor encryptor;
+
+    @DynamicPropertySource
+    static void auditDirectories(DynamicPropertyRegistry registry) {
+        final Path auditDirectory = createTempDirectory();
+        registry.add("audit.sender.directory", () -> auditDirectory.resolve("audit").toString());
+        registry.add("audit.sender.overflow-directory", () -> auditDirectory.resolve("audit-overflow").toString());
+    }
+
+    @Test
+    void submitPayment_ReturnsAcceptedWithStatusUrl_WhenPaymentIsValid() throws Exception {
+        final String statusUrl = mockMvc.perform(submission("async-approved"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andExpect(jsonPath("$.result").doesNotExist())
+                .andReturn().getResponse().getHeader("Location");
+        awaitCompletion(statusUrl);
+
+        mockMvc.perform(get(statusUrl))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.result.approved").value(true));
+        assertTrue(paymentRepository.findViewByInvoice("async-approved").isPresent());
+
+        final String duplicateStatusUrl = mockMvc.perform(submission("async-approved"))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader("Location");
+        awaitCompletion(duplicateStatusUrl);
+
+        mockMvc.perform(get(duplicateStatusUrl))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.approved").value(false))
+                .andExpect(jsonPath("$.result.errors.error").value("Payment with invoice 'async-approved' was previously processed"));
+    }
+
+    @Test
+    void submitPayment_ReturnsBadRequestWithoutStoringSubmission_WhenPaymentIsInvalid() throws Exception {
+        mockMvc.perform(post(SUBMISSIONS_PATH).content("{}").contentType(APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().doesNotExist("Location"))
+                .andExpect(jsonPath("$.approved").value(false))
+                .andExpect(jsonPath("$.errors.invoice").value("Invoice is required."));
+        mockMvc.perform(get(SUBMISSIONS_PATH + "/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void submit_ProcessesEverySubmissionOnce_WhenWorkersDrainConcurrently() throws Exception {
+        final List<String> invoices = IntStream.range(0, SUBMISSIONS_COUNT).mapToObj(i -> "async-" + i).collect(Collectors.toList());
+
+        final List<String> ids = invoices.stream()
+                .map(invoice -> paymentSubmissionService.submit(paymentDto(invoice)).getId())
+                .collect(Collectors.toList());
+
+        final long deadline = System.nanoTime() + COMPLETION_TIMEOUT_NANOS;
+        for (String id : ids) {
+            PaymentSubmissionDto submission = paymentSubmissionService.findSubmission(id);
+            while (submission.getStatus() != PaymentSubmission.Status.COMPLETED) {
+                assertTrue(System.nanoTime() < deadline, "Submissions were not processed in time");
+                Thread.sleep(10);
+                submission = paymentSubmissionService.findSubmission(id);
+            }
+            assertTrue(submission.getResult().isApproved());
+        }
+        assertEquals(SUBMISSIONS_COUNT, paymentRepository.findViewsByInvoiceIn(invoices).size());
+    }
+
+    @Test
+    void submit_CompletesSubmissionAsFailed_WhenItsLeaseExpiredInEveryAttempt() throws Exception {
+        final Instant now = Instant.now();
+        final String id = UUID.randomUUID().toString();
+        submissionRepository.save(PaymentSubmission.builder()
+                .id(id)
+                .status(PaymentSubmission.Status.PENDING)
+                .payload(encryptor.encrypt(objectMapper.writeValueAsString(paymentDto("async-expired"))))
+                .attempts(MAX_ATTEMPTS)
+                .createdAt(now.minus(Duration.ofMinutes(5)))
+                .availableAt(now)
+                .build());
+
+        awaitCompletion(SUBMISSIONS_PATH + "/" + id);
+
+        mockMvc.perform(get(SUBMISSIONS_PATH + "/" + id))
+                .andExpect(jsonPath("$.result.approved").value(false))
+                .andExpect(jsonPath("$.result.errors.error").value("Payment submission '" + id + "' could not be processed"));
+        assertTrue(paymentRepository.findViewByInvoice("async-expired").isEmpty());
+    }
+
+    private void awaitCompletion(String statusUrl) throws Exception {
+        final long deadline = System.nanoTime() + COMPLETION_TIMEOUT_NANOS;
+        while (!"COMPLETED".equals(objectMapper.readTree(
+                mockMvc.perform(get(statusUrl)).andReturn().getResponse().getContentAsString()).path("status").asText())) {
+            assertTrue(System.nanoTime() < deadline, "Submission was not processed in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private RequestBuilder submission(String invoice) throws Exception {
+        return post(SUBMISSIONS_PATH).content(objectMapper.writeValueAsString(paymentDto(invoice))).contentType(APPLICATION_JSON);
+    }
+
+    private static PaymentDto paymentDto(String invoice) {
+        return PaymentDto.builder()
+                .invoice(invoice)
+                .amount(VALID_AMOUNT)
+                .currency(VALID_CURRENCY)
+                .cardholder(CardholderDto.builder().email(VALID_CARDHOLDER_EMAIL).name(VALID_CARDHOLDER_NAME).build())
+                .card(CardDto.builder().expiry(VALID_CARD_EXPIRY_DATE).pan(VALID_CARD_PAN).cvv(VALID_CARD_CVV).build())
+                .build();
+    }
+
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("submission-audit");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
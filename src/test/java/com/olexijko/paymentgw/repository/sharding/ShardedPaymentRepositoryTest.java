@@ -0,0 +1,137 @@
+package com.olexijko.paymentgw.repository.sharding;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.olexijko.paymentgw.config.ShardingConfiguration.PaymentShards;
+import com.olexijko.paymentgw.entity.Card;
+import com.olexijko.paymentgw.entity.Cardholder;
+import com.olexijko.paymentgw.entity.Payment;
+import com.olexijko.paymentgw.repository.PaymentStore;
+import com.olexijko.paymentgw.repository.PaymentView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import static com.olexijko.paymentgw.PayloadFactory.VALID_AMOUNT;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CURRENCY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:shard-0;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "payment.sharding.enabled=true",
+        "payment.sharding.shards[0].name=shard-1",
+        "payment.sharding.shards[0].url=jdbc:h2:mem:shard-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "payment.sharding.shards[0].username=sa",
+        "payment.sharding.shards[1].name=shard-2",
+        "payment.sharding.shards[1].url=jdbc:h2:mem:shard-2;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "payment.sharding.shards[1].username=sa",
+        "audit.sender.flush.fsync=false",
+        "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF"})
+class ShardedPaymentRepositoryTest {
+    private static final int PAYMENTS_COUNT = 300;
+
+    @Autowired
+    private PaymentStore paymentStore;
+
+    @Autowired
+    private PaymentShards paymentShards;
+
+    @DynamicPropertySource
+    static void auditDirectories(DynamicPropertyRegistry registry) {
+        final Path auditDirectory = createTempDirectory();
+        registry.add("audit.sender.directory", () -> auditDirectory.resolve("audit").toString());
+        registry.add("audit.sender.overflow-directory", () -> auditDirectory.resolve("audit-overflow").toString());
+    }
+
+    @Test
+    void save_StoresEveryPaymentOnlyOnItsOwnerShard_WhenShardsAreConfigured() {
+        final ShardedPaymentRepository shardedPaymentRepository = (ShardedPaymentRepository) paymentStore;
+        final List<String> invoices = invoices("routed-");
+
+        paymentStore.saveAll(invoices.subList(0, PAYMENTS_COUNT / 2).stream()
+                .map(ShardedPaymentRepositoryTest::buildPayment).collect(Collectors.toList()));
+        invoices.subList(PAYMENTS_COUNT / 2, PAYMENTS_COUNT).forEach(invoice -> paymentStore.save(buildPayment(invoice)));
+
+        for (String invoice : invoices) {
+            final PaymentShard owner = shardedPaymentRepository.shardFor(invoice);
+            for (PaymentShard shard : paymentShards.getShards()) {
+                assertEquals(shard == owner, isStoredOn(shard, invoice));
+            }
+            assertEquals(invoice, paymentStore.findViewByInvoice(invoice).map(PaymentView::getInvoice).orElse(null));
+        }
+        assertEquals(PAYMENTS_COUNT, paymentStore.findViewsByInvoiceIn(invoices).size());
+        assertTrue(paymentShards.getShards().stream().allMatch(shard -> invoices.stream().anyMatch(invoice -> isStoredOn(shard, invoice))));
+        assertThrows(DataIntegrityViolationException.class, () -> paymentStore.save(buildPayment(invoices.get(0))));
+    }
+
+    @Test
+    void rebalance_MovesPaymentsToAddedShard_WhileTheyStayVisible() {
+        final ShardedPaymentRepository shardedPaymentRepository = new ShardedPaymentRepository(paymentShards.getShards(),
+                List.of(paymentShards.get("shard-0"), paymentShards.get("shard-1")), 128);
+        final List<String> invoices = invoices("rebalanced-");
+        for (String invoice : invoices) {
+            final PaymentShard previousShard = shardedPaymentRepository.previousShardFor(invoice);
+            previousShard.inTransaction(() -> previousShard.getRepository().save(buildPayment(invoice)));
+        }
+        final String movedInvoice = invoices.stream()
+                .filter(invoice -> shardedPaymentRepository.shardFor(invoice) != shardedPaymentRepository.previousShardFor(invoice))
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals(PAYMENTS_COUNT, shardedPaymentRepository.findViewsByInvoiceIn(invoices).size());
+        assertTrue(shardedPaymentRepository.findViewByInvoice(movedInvoice).isPresent());
+        assertThrows(DataIntegrityViolationException.class, () -> shardedPaymentRepository.save(buildPayment(movedInvoice)));
+
+        new PaymentShardRebalancer(shardedPaymentRepository, new SimpleMeterRegistry(), 7).rebalance();
+
+        assertFalse(shardedPaymentRepository.isRebalancing());
+        for (String invoice : invoices) {
+            final PaymentShard owner = shardedPaymentRepository.shardFor(invoice);
+            for (PaymentShard shard : paymentShards.getShards()) {
+                assertEquals(shard == owner, isStoredOn(shard, invoice));
+            }
+        }
+        assertEquals(PAYMENTS_COUNT, shardedPaymentRepository.findViewsByInvoiceIn(invoices).size());
+    }
+
+    private static boolean isStoredOn(PaymentShard shard, String invoice) {
+        return shard.inTransaction(() -> shard.getRepository().findViewByInvoice(invoice)).isPresent();
+    }
+
+    private static List<String> invoices(String prefix) {
+        return IntStream.range(0, PAYMENTS_COUNT).mapToObj(i -> prefix + i).collect(Collectors.toList());
+    }
+
+    private static Payment buildPayment(String invoice) {
+        return Payment.builder()
+                .invoice(invoice)
+                .amount(Integer.valueOf(VALID_AMOUNT))
+                .currency(VALID_CURRENCY)
+                .cardholder(Cardholder.builder().name("name").email("email@domain.com").build())
+                .card(Card.builder().pan("pan").expiryDate("expiry").build())
+                .build();
+    }
+
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("sharded-audit");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.olexijko.paymentgw.service;
+
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_NAME;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_PAN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AesGcmEncryptorTest {
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private final AesGcmEncryptor aesGcmEncryptor = new AesGcmEncryptor(KEY);
+
+    @Test
+    void decrypt_ReturnsOriginalValue_WhenValueWasEncrypted() {
+        final String longValue = VALID_CARDHOLDER_NAME.repeat(100);
+
+        assertEquals(VALID_CARD_PAN, aesGcmEncryptor.decrypt(aesGcmEncryptor.encrypt(VALID_CARD_PAN)));
+        assertEquals("Олексій Коваль", aesGcmEncryptor.decrypt(aesGcmEncryptor.encrypt("Олексій Коваль")));
+        assertEquals(longValue, aesGcmEncryptor.decrypt(aesGcmEncryptor.encrypt(longValue)));
+        assertEquals("", aesGcmEncryptor.decrypt(aesGcmEncryptor.encrypt("")));
+        assertNull(aesGcmEncryptor.decrypt(aesGcmEncryptor.encrypt(null)));
+    }
+
+    @Test
+    void encrypt_ReturnsDifferentValues_WhenSameValueIsEncryptedTwice() {
+        assertNotEquals(aesGcmEncryptor.encrypt(VALID_CARD_PAN), aesGcmEncryptor.encrypt(VALID_CARD_PAN));
+    }
+
+    @Test
+    void decrypt_ThrowsIllegalArgumentException_WhenValueWasTampered() {
+        final byte[] sealed = Base64.getDecoder().decode(aesGcmEncryptor.encrypt(VALID_CARD_PAN));
+        sealed[sealed.length - 1] ^= 1;
+        final String tamperedValue = Base64.getEncoder().encodeToString(sealed);
+
+        assertThrows(IllegalArgumentException.class, () -> aesGcmEncryptor.decrypt(tamperedValue));
+        assertThrows(IllegalArgumentException.class, () -> new AesGcmEncryptor(KEY).decrypt("c2hvcnQ="));
+    }
+
+    @Test
+    void constructor_ThrowsIllegalArgumentException_WhenKeyHasInvalidSize() {
+        final String shortKey = Base64.getEncoder().encodeToString(new byte[10]);
+
+        assertThrows(IllegalArgumentException.class, () -> new AesGcmEncryptor(shortKey));
+    }
+}
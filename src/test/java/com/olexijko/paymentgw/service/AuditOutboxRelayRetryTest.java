@@ -0,0 +1,123 @@
+package com.olexijko.paymentgw.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.entity.AuditOutboxEntry;
+import com.olexijko.paymentgw.mapper.PaymentMapper;
+import com.olexijko.paymentgw.repository.AuditOutboxRepository;
+import com.olexijko.paymentgw.service.audit.AuditLog;
+import com.olexijko.paymentgw.service.audit.AuditLogReader;
+import com.olexijko.paymentgw.service.audit.AuditSenderProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_EMAIL;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_NAME;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_EXPIRY_DATE;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_PAN;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CURRENCY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuditOutboxRelayRetryTest {
+    private static final int ENTRIES_COUNT = 3;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Encryptor encryptor = new Base64Encryptor();
+    private final AuditOutboxRepository auditOutboxRepositoryMock = mock(AuditOutboxRepository.class);
+
+    @TempDir
+    Path outputDirectory;
+
+    @Test
+    void relay_DeliversEntriesOnNextRound_WhenAuditLogFailedOnce() throws Exception {
+        final AuditSender auditSender = failingOnceAuditSender();
+        auditSender.start();
+        final AuditOutboxRelay relay = new AuditOutboxRelay(auditOutboxRepositoryMock, auditSender, new PaymentMapper(encryptor),
+                mock(PlatformTransactionManager.class), meterRegistry, 10, Duration.ofMillis(50), Duration.ofSeconds(10));
+        final List<AuditOutboxEntry> entries = buildEntries();
+        when(auditOutboxRepositoryMock.findOldestForUpdate(ArgumentMatchers.any())).thenReturn(entries);
+
+        assertThrows(IllegalStateException.class, relay::relay);
+        verify(auditOutboxRepositoryMock, never()).deleteByIds(ArgumentMatchers.any());
+
+        assertEquals(ENTRIES_COUNT, relay.relay());
+        verify(auditOutboxRepositoryMock).deleteByIds(entries.stream().map(AuditOutboxEntry::getId).collect(Collectors.toList()));
+        auditSender.stop();
+
+        final List<PaymentDto> payments = readPayments();
+        assertEquals(ENTRIES_COUNT, payments.size());
+        for (int i = 0; i < ENTRIES_COUNT; i++) {
+            assertEquals("outbox-" + i, payments.get(i).getInvoice());
+        }
+        assertEquals(ENTRIES_COUNT, meterRegistry.get("audit.outbox.relayed").counter().count());
+    }
+
+    /**
+     * Audit sender whose first log fails every flush, so the records of the first batch are lost.
+     */
+    private AuditSender failingOnceAuditSender() {
+        final AuditSenderProperties properties = new AuditSenderProperties();
+        properties.setDirectory(outputDirectory.resolve("audit").toString());
+        properties.setOverflowDirectory(outputDirectory.resolve("audit-overflow").toString());
+        properties.setRetryBackoff(Duration.ofMillis(10));
+        return new AuditSender(objectMapper, meterRegistry, properties) {
+            private boolean opened;
+
+            @Override
+            AuditLog openAuditLog() throws IOException {
+                final AuditLog auditLog = super.openAuditLog();
+                if (opened) {
+                    return auditLog;
+                }
+                opened = true;
+                final AuditLog failingAuditLog = Mockito.spy(auditLog);
+                Mockito.doThrow(new IOException("Input/output error")).when(failingAuditLog).flush();
+                return failingAuditLog;
+            }
+        };
+    }
+
+    private List<AuditOutboxEntry> buildEntries() {
+        return LongStream.range(0, ENTRIES_COUNT)
+                .mapToObj(i -> AuditOutboxEntry.builder()
+                        .id(i)
+                        .invoice("outbox-" + i)
+                        .amount(100)
+                        .currency(VALID_CURRENCY)
+                        .cardholderName(encryptor.encrypt(VALID_CARDHOLDER_NAME))
+                        .cardholderEmail(VALID_CARDHOLDER_EMAIL)
+                        .cardPan(encryptor.encrypt(VALID_CARD_PAN))
+                        .cardExpiryDate(encryptor.encrypt(VALID_CARD_EXPIRY_DATE))
+                        .createdAt(Instant.now())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private List<PaymentDto> readPayments() throws IOException {
+        final List<PaymentDto> payments = new ArrayList<>();
+        try (AuditLogReader auditLogReader = AuditLogReader.open(outputDirectory.resolve("audit"), objectMapper)) {
+            auditLogReader.replayAll(record -> payments.add(auditLogReader.decode(record)));
+        }
+        return payments;
+    }
+}
@@ -0,0 +1,119 @@
+package com.olexijko.paymentgw.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.olexijko.paymentgw.dto.CardDto;
+import com.olexijko.paymentgw.dto.CardholderDto;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.exception.DuplicatePaymentException;
+import com.olexijko.paymentgw.repository.AuditOutboxRepository;
+import com.olexijko.paymentgw.service.audit.AuditLogReader;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import static com.olexijko.paymentgw.PayloadFactory.VALID_AMOUNT;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_EMAIL;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_NAME;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_CVV;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_EXPIRY_DATE;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_PAN;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CURRENCY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "audit.outbox.relay.batch-size=7",
+        "audit.outbox.relay.poll-interval=50ms",
+        "audit.sender.flush.fsync=false",
+        "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF"})
+class AuditOutboxRelayTest {
+    private static final int PAYMENTS_COUNT = 50;
+    private static final long RELAY_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private static Path auditDirectory;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private AuditOutboxRepository auditOutboxRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void auditDirectories(DynamicPropertyRegistry registry) {
+        auditDirectory = createTempDirectory();
+        registry.add("audit.sender.directory", () -> auditDirectory.resolve("audit").toString());
+        registry.add("audit.sender.overflow-directory", () -> auditDirectory.resolve("audit-overflow").toString());
+    }
+
+    @Test
+    void processPayment_WritesMaskedPaymentToAuditLogOnce_WhenPaymentIsSavedOrRejectedAsDuplicate() throws Exception {
+        final List<PaymentDto> paymentDtos = new ArrayList<>();
+        for (int i = 0; i < PAYMENTS_COUNT; i++) {
+            paymentDtos.add(paymentDto("outbox-" + i));
+        }
+        paymentService.processPayments(paymentDtos.subList(0, PAYMENTS_COUNT / 2));
+        for (PaymentDto paymentDto : paymentDtos.subList(PAYMENTS_COUNT / 2, PAYMENTS_COUNT)) {
+            paymentService.processPayment(paymentDto);
+        }
+        assertThrows(DuplicatePaymentException.class, () -> paymentService.processPayment(paymentDto("outbox-0")));
+
+        final long deadline = System.nanoTime() + RELAY_TIMEOUT_NANOS;
+        while (auditOutboxRepository.count() > 0) {
+            assertTrue(System.nanoTime() < deadline, "Audit outbox was not relayed in time");
+            Thread.sleep(10);
+        }
+
+        final List<PaymentDto> auditedPayments = readPayments();
+        assertEquals(PAYMENTS_COUNT, auditedPayments.size());
+        for (int i = 0; i < PAYMENTS_COUNT; i++) {
+            final PaymentDto auditedPayment = auditedPayments.get(i);
+            assertEquals("outbox-" + i, auditedPayment.getInvoice());
+            assertEquals(VALID_CARDHOLDER_EMAIL, auditedPayment.getCardholder().getEmail());
+            assertNotEquals(VALID_CARD_PAN, auditedPayment.getCard().getPan());
+        }
+    }
+
+    private List<PaymentDto> readPayments() throws IOException {
+        final List<PaymentDto> payments = new ArrayList<>();
+        try (AuditLogReader auditLogReader = AuditLogReader.open(auditDirectory.resolve("audit"), objectMapper)) {
+            auditLogReader.replayAll(record -> payments.add(auditLogReader.decode(record)));
+        }
+        return payments;
+    }
+
+    private static PaymentDto paymentDto(String invoice) {
+        return PaymentDto.builder()
+                .invoice(invoice)
+                .amount(VALID_AMOUNT)
+                .currency(VALID_CURRENCY)
+                .cardholder(CardholderDto.builder().email(VALID_CARDHOLDER_EMAIL).name(VALID_CARDHOLDER_NAME).build())
+                .card(CardDto.builder().expiry(VALID_CARD_EXPIRY_DATE).pan(VALID_CARD_PAN).cvv(VALID_CARD_CVV).build())
+                .build();
+    }
+
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("outbox-audit");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.olexijko.paymentgw.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.service.audit.AuditLog;
+import com.olexijko.paymentgw.service.audit.AuditLogReader;
+import com.olexijko.paymentgw.service.audit.AuditOverflowPolicy;
+import com.olexijko.paymentgw.service.audit.AuditSenderProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import static com.olexijko.paymentgw.PayloadFactory.VALID_AMOUNT;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CURRENCY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditSenderTest {
+    private static final int PAYMENTS_COUNT = 1_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AuditSenderProperties properties = new AuditSenderProperties();
+
+    @TempDir
+    Path outputDirectory;
+
+    @BeforeEach
+    void setUpProperties() {
+        properties.setDirectory(outputDirectory.resolve("audit").toString());
+        properties.setOverflowDirectory(outputDirectory.resolve("audit-overflow").toString());
+        properties.setBufferSize(4096);
+        properties.getFlush().setMaxRecords(100);
+        properties.getFlush().setMaxBytes(2048);
+        properties.getFlush().setMaxDelay(Duration.ofMillis(10));
+    }
+
+    @Test
+    void sendPayment_AppendsEveryPaymentToAuditLog_WhenSenderIsStopped() throws Exception {
+        final AuditSender auditSender = new AuditSender(objectMapper, meterRegistry, properties);
+        auditSender.start();
+
+        for (int i = 0; i < PAYMENTS_COUNT; i++) {
+            auditSender.sendPayment(buildPaymentDto(i));
+        }
+        auditSender.stop();
+
+        final List<PaymentDto> payments = readPayments(Path.of(properties.getDirectory()));
+        assertEquals(PAYMENTS_COUNT, payments.size());
+        for (int i = 0; i < PAYMENTS_COUNT; i++) {
+            assertEquals(String.valueOf(i), payments.get(i).getInvoice());
+        }
+    }
+
+    @Test
+    void sendPayment_DropsAndCountsPayments_WhenQueueIsFullAndPolicyIsDrop() {
+        properties.getQueue().setCapacity(2);
+        properties.getQueue().setOverflowPolicy(AuditOverflowPolicy.DROP);
+        final AuditSender auditSender = new AuditSender(objectMapper, meterRegistry, properties);
+
+        for (int i = 0; i < 5; i++) {
+            auditSender.sendPayment(buildPaymentDto(i));
+        }
+
+        assertEquals(2, meterRegistry.get("audit.sender.queue.depth").gauge().value());
+        assertEquals(3, meterRegistry.get("audit.sender.dropped").counter().count());
+    }
+
+    @Test
+    void sendPayment_DropsPaymentAfterTimeout_WhenQueueIsFullAndPolicyIsBlock() {
+        properties.getQueue().setCapacity(1);
+        properties.getQueue().setOverflowPolicy(AuditOverflowPolicy.BLOCK);
+        properties.getQueue().setBlockTimeout(Duration.ofMillis(10));
+        final AuditSender auditSender = new AuditSender(objectMapper, meterRegistry, properties);
+
+        auditSender.sendPayment(buildPaymentDto(1));
+        auditSender.sendPayment(buildPaymentDto(2));
+
+        assertEquals(1, meterRegistry.get("audit.sender.dropped").counter().count());
+    }
+
+    @Test
+    void trySendPayment_LeavesPaymentToCaller_WhenQueueIsFull() {
+        properties.getQueue().setCapacity(1);
+        properties.getQueue().setOverflowPolicy(AuditOverflowPolicy.BLOCK);
+        final AuditSender auditSender = new AuditSender(objectMapper, meterRegistry, properties);
+
+        assertTrue(auditSender.trySendPayment(buildPaymentDto(1)));
+        assertFalse(auditSender.trySendPayment(buildPaymentDto(2)));
+
+        assertEquals(0, meterRegistry.get("audit.sender.dropped").counter().count());
+    }
+
+    @Test
+    void writePayments_CompletesOncePaymentsAreInAuditLog_WhenSenderIsRunning() throws Exception {
+        properties.getFlush().setMaxDelay(Duration.ofHours(1));
+        final AuditSender auditSender = new AuditSender(objectMapper, meterRegistry, properties);
+        auditSender.start();
+
+        auditSender.writePayments(List.of(buildPaymentDto(1), buildPaymentDto(2))).get(10, TimeUnit.SECONDS);
+        final List<PaymentDto> payments = readPayments(Path.of(properties.getDirectory()));
+        auditSender.stop();
+
+        assertEquals(2, payments.size());
+        assertEquals("1", payments.get(0).getInvoice());
+        assertEquals("2", payments.get(1).getInvoice());
+    }
+
+    @Test
+    void sendPayment_WritesLaterPaymentsToReopenedAuditLog_WhenFlushFails() throws Exception {
+        properties.setRetryBackoff(Duration.ofMillis(10));
+        final AtomicInteger openedLogsCount = new AtomicInteger();
+        final AuditSender auditSender = new AuditSender(objectMapper, meterRegistry, properties) {
+            @Override
+            AuditLog openAuditLog() throws IOException {
+                final AuditLog auditLog = super.openAuditLog();
+                if (openedLogsCount.getAndIncrement() > 0) {
+                    return auditLog;
+                }
+                final AuditLog failingAuditLog = Mockito.spy(auditLog);
+                Mockito.doThrow(new IOException("No space left on device")).when(failingAuditLog).flush();
+                return failingAuditLog;
+            }
+        };
+        auditSender.start();
+
+        auditSender.sendPayment(buildPaymentDto(1));
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (openedLogsCount.get() < 2) {
+            assertTrue(System.nanoTime() < deadline, "Audit log was not reopened in time");
+            Thread.sleep(10);
+        }
+        auditSender.sendPayment(buildPaymentDto(2));
+        auditSender.sendPayment(buildPaymentDto(3));
+        auditSender.stop();
+
+        final List<PaymentDto> payments = readPayments(Path.of(properties.getDirectory()));
+        assertEquals(2, payments.size());
+        assertEquals("2", payments.get(0).getInvoice());
+        assertEquals("3", payments.get(1).getInvoice());
+        assertEquals(1, meterRegistry.get("audit.sender.lost").counter().count());
+    }
+
+    private static PaymentDto buildPaymentDto(int invoice) {
+        return PaymentDto.builder().invoice(String.valueOf(invoice)).amount(VALID_AMOUNT).currency(VALID_CURRENCY).build();
+    }
+
+    private List<PaymentDto> readPayments(Path directory) throws IOException {
+        final List<PaymentDto> payments = new ArrayList<>();
+        try (AuditLogReader auditLogReader = AuditLogReader.open(directory, objectMapper)) {
+            auditLogReader.replayAll(record -> payments.add(auditLogReader.decode(record)));
+        }
+        return payments;
+    }
+}
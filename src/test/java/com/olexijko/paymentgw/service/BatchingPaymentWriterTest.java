@@ -0,0 +1,152 @@
+package com.olexijko.paymentgw.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import com.olexijko.paymentgw.entity.Card;
+import com.olexijko.paymentgw.entity.Cardholder;
+import com.olexijko.paymentgw.entity.Payment;
+import com.olexijko.paymentgw.repository.AuditOutboxRepository;
+import com.olexijko.paymentgw.repository.PaymentStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchingPaymentWriterTest {
+    private static final int MAX_BATCH_SIZE = 3;
+    private static final long MAX_WAIT_MILLIS = 2_000;
+
+    private final PaymentStore paymentStoreMock = mock(PaymentStore.class);
+    private final BatchingPaymentWriter batchingPaymentWriter = batchingPaymentWriter(Duration.ofSeconds(10));
+    private final ExecutorService callers = Executors.newFixedThreadPool(MAX_BATCH_SIZE);
+
+    @AfterEach
+    void stopWriter() throws InterruptedException {
+        callers.shutdownNow();
+        batchingPaymentWriter.stop();
+    }
+
+    @Test
+    void write_FlushesConcurrentPaymentsInSingleBatch_WhenBatchSizeIsReached() throws Exception {
+        batchingPaymentWriter.start();
+        final List<Payment> payments = List.of(buildPayment("1"), buildPayment("2"), buildPayment("3"));
+
+        final List<Future<Payment>> results = List.of(
+                callers.submit(() -> batchingPaymentWriter.write(payments.get(0))),
+                callers.submit(() -> batchingPaymentWriter.write(payments.get(1))),
+                callers.submit(() -> batchingPaymentWriter.write(payments.get(2))));
+
+        for (int i = 0; i < payments.size(); i++) {
+            assertSame(payments.get(i), results.get(i).get());
+        }
+        verify(paymentStoreMock).saveAll(ArgumentMatchers.argThat(batch -> ((List<?>) batch).size() == MAX_BATCH_SIZE));
+    }
+
+    @Test
+    void write_ReplaysWritesOneByOne_WhenBatchViolatesConstraint() throws Exception {
+        batchingPaymentWriter.start();
+        final Payment newPayment = buildPayment("1");
+        final Payment duplicatePayment = buildPayment("2");
+        final Payment anotherNewPayment = buildPayment("3");
+        final DataIntegrityViolationException violation = new DataIntegrityViolationException("duplicate key");
+        when(paymentStoreMock.saveAll(ArgumentMatchers.any())).thenThrow(violation);
+        when(paymentStoreMock.save(ArgumentMatchers.any())).then(invocationOnMock -> {
+            if (invocationOnMock.getArgument(0) == duplicatePayment) {
+                throw violation;
+            }
+            return invocationOnMock.getArgument(0);
+        });
+
+        final Future<Payment> newPaymentResult = callers.submit(() -> batchingPaymentWriter.write(newPayment));
+        final Future<Payment> duplicatePaymentResult = callers.submit(() -> batchingPaymentWriter.write(duplicatePayment));
+        final Future<Payment> anotherNewPaymentResult = callers.submit(() -> batchingPaymentWriter.write(anotherNewPayment));
+
+        assertSame(newPayment, newPaymentResult.get());
+        assertSame(anotherNewPayment, anotherNewPaymentResult.get());
+        final ExecutionException duplicateFailure = assertThrows(ExecutionException.class, duplicatePaymentResult::get);
+        assertTrue(duplicateFailure.getCause() instanceof DataIntegrityViolationException);
+        assertNull(newPayment.getCard().getId());
+        verify(paymentStoreMock, times(MAX_BATCH_SIZE)).save(ArgumentMatchers.any());
+    }
+
+    @Test
+    void write_ThrowsIllegalStateException_WhenWriterIsStopped() throws InterruptedException {
+        batchingPaymentWriter.start();
+        batchingPaymentWriter.stop();
+
+        assertThrows(IllegalStateException.class, () -> batchingPaymentWriter.write(buildPayment("1")));
+    }
+
+    @Test
+    void write_ThrowsIllegalStateException_WhenPaymentIsNotWrittenInTime() {
+        final BatchingPaymentWriter notStartedWriter = batchingPaymentWriter(Duration.ofMillis(100));
+
+        final IllegalStateException exception =
+                assertThrows(IllegalStateException.class, () -> notStartedWriter.write(buildPayment("1")));
+
+        assertTrue(exception.getCause() instanceof TimeoutException);
+    }
+
+    @Test
+    void writeAll_FailsPaymentWithTimeout_WhenQueueStaysFull() {
+        final BatchingPaymentWriter notStartedWriter = batchingPaymentWriter(Duration.ofMillis(100), 1);
+
+        final List<CompletableFuture<Payment>> results = notStartedWriter.writeAll(List.of(buildPayment("1"), buildPayment("2")));
+
+        final ExecutionException queueFullFailure = assertThrows(ExecutionException.class, results.get(1)::get);
+        assertTrue(queueFullFailure.getCause() instanceof TimeoutException);
+        final ExecutionException queuedFailure = assertThrows(ExecutionException.class, results.get(0)::get);
+        assertTrue(queuedFailure.getCause() instanceof TimeoutException);
+    }
+
+    @Test
+    void write_ThrowsIllegalStateException_WhenFlusherFailedWithError() throws Exception {
+        when(paymentStoreMock.saveAll(ArgumentMatchers.any())).thenThrow(new AssertionError("Flusher failed"));
+        batchingPaymentWriter.start();
+
+        final List<CompletableFuture<Payment>> results =
+                batchingPaymentWriter.writeAll(List.of(buildPayment("1"), buildPayment("2"), buildPayment("3")));
+
+        for (CompletableFuture<Payment> result : results) {
+            final ExecutionException failure = assertThrows(ExecutionException.class, result::get);
+            assertTrue(failure.getCause() instanceof IllegalStateException);
+            assertTrue(failure.getCause().getCause() instanceof AssertionError);
+        }
+        assertThrows(IllegalStateException.class, () -> batchingPaymentWriter.write(buildPayment("4")));
+    }
+
+    private BatchingPaymentWriter batchingPaymentWriter(Duration writeTimeout) {
+        return batchingPaymentWriter(writeTimeout, 100);
+    }
+
+    private BatchingPaymentWriter batchingPaymentWriter(Duration writeTimeout, int queueCapacity) {
+        return new BatchingPaymentWriter(paymentStoreMock, new AuditOutbox(mock(AuditOutboxRepository.class), false),
+                mock(PlatformTransactionManager.class), MAX_BATCH_SIZE, MAX_WAIT_MILLIS, queueCapacity, writeTimeout);
+    }
+
+    private static Payment buildPayment(String invoice) {
+        return Payment.builder()
+                .id(Long.valueOf(invoice))
+                .invoice(invoice)
+                .card(Card.builder().id(Long.valueOf(invoice)).build())
+                .cardholder(Cardholder.builder().id(Long.valueOf(invoice)).build())
+                .build();
+    }
+}
@@ -1,10 +1,21 @@
 package com.olexijko.paymentgw.service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import com.olexijko.paymentgw.dto.CardDto;
 import com.olexijko.paymentgw.dto.CardholderDto;
 import com.olexijko.paymentgw.dto.PaymentDto;
+import com.olexijko.paymentgw.dto.PaymentLookupResultDto;
 import com.olexijko.paymentgw.dto.PaymentProcessingResultDto;
 import com.olexijko.paymentgw.entity.Card;
 import com.olexijko.paymentgw.entity.Cardholder;
@@ -12,10 +23,16 @@ import com.olexijko.paymentgw.entity.Payment;
 import com.olexijko.paymentgw.exception.DuplicatePaymentException;
 import com.olexijko.paymentgw.exception.PaymentNotFoundException;
 import com.olexijko.paymentgw.mapper.PaymentMapper;
-import com.olexijko.paymentgw.repository.PaymentRepository;
+import com.olexijko.paymentgw.repository.AuditOutboxRepository;
+import com.olexijko.paymentgw.repository.PaymentStore;
+import com.olexijko.paymentgw.repository.PaymentView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import static com.olexijko.paymentgw.PayloadFactory.SANITISED_CARDHOLDER_NAME;
 import static com.olexijko.paymentgw.PayloadFactory.SANITISED_CARD_PAN;
@@ -31,32 +48,39 @@ import static com.olexijko.paymentgw.PayloadFactory.VALID_INVOICE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 class PaymentServiceTest {
-    private final PaymentRepository paymentRepositoryMock = mock(PaymentRepository.class);
+    private static final int CONCURRENT_LOOKUPS_COUNT = 4;
+
+    private final PaymentStore paymentStoreMock = mock(PaymentStore.class);
     private final AuditSender auditSenderMock = mock(AuditSender.class);
-    private final Encryptor encryptor = new Encryptor();
+    private final Encryptor encryptor = new Base64Encryptor();
+    private final PaymentCache paymentCache = new PaymentCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PaymentMetrics paymentMetrics = new PaymentMetrics(meterRegistry);
+    private final InvoiceFilter invoiceFilter = new InvoiceFilter(paymentStoreMock, new SimpleMeterRegistry(), true, 100, 0.01);
+
+    private final AuditOutbox disabledAuditOutbox = new AuditOutbox(mock(AuditOutboxRepository.class), false);
 
-    private final PaymentService paymentService =
-            new PaymentService(paymentRepositoryMock, new PaymentMapper(encryptor), auditSenderMock);
+    private final PaymentService paymentService = new PaymentService(paymentStoreMock,
+            new DirectPaymentWriter(paymentStoreMock, disabledAuditOutbox, mock(PlatformTransactionManager.class)),
+            new PaymentMapper(encryptor), paymentCache, invoiceFilter, auditSenderMock, disabledAuditOutbox, paymentMetrics, true);
+    private final PaymentService lookupFirstPaymentService = new PaymentService(paymentStoreMock,
+            new DirectPaymentWriter(paymentStoreMock, disabledAuditOutbox, mock(PlatformTransactionManager.class)),
+            new PaymentMapper(encryptor), paymentCache, invoiceFilter, auditSenderMock, disabledAuditOutbox, paymentMetrics, false);
 
     @Test
     void processPayment_ReturnsSuccess_WhenPaymentInvoiceIsNew() {
-        final PaymentDto inputPaymentDto = PaymentDto.builder()
-                .invoice(VALID_INVOICE)
-                .amount(VALID_AMOUNT)
-                .currency(VALID_CURRENCY)
-                .cardholder(CardholderDto.builder().email(VALID_CARDHOLDER_EMAIL).name(VALID_CARDHOLDER_NAME).build())
-                .card(CardDto.builder().expiry(VALID_CARD_EXPIRY_DATE).pan(VALID_CARD_PAN).cvv(VALID_CARD_CVV).build())
-                .build();
-        when(paymentRepositoryMock.findByInvoice(inputPaymentDto.getInvoice())).thenReturn(Optional.empty());
-        when(paymentRepositoryMock.save(ArgumentMatchers.any())).then(invocationOnMock -> invocationOnMock.getArgument(0));
+        final PaymentDto inputPaymentDto = buildValidPaymentDto();
+        when(paymentStoreMock.save(ArgumentMatchers.any())).then(invocationOnMock -> invocationOnMock.getArgument(0));
 
         final PaymentProcessingResultDto paymentProcessingResult = paymentService.processPayment(inputPaymentDto);
 
@@ -64,35 +88,101 @@ class PaymentServiceTest {
         assertTrue(paymentProcessingResult.isApproved());
         assertNull(paymentProcessingResult.getErrors());
 
-        verify(paymentRepositoryMock).findByInvoice(inputPaymentDto.getInvoice());
-
         final ArgumentCaptor<Payment> savePaymentCapture = ArgumentCaptor.forClass(Payment.class);
-        verify(paymentRepositoryMock).save(savePaymentCapture.capture());
+        verify(paymentStoreMock).save(savePaymentCapture.capture());
         validatePaymentToSave(savePaymentCapture.getValue(), inputPaymentDto);
 
         final ArgumentCaptor<PaymentDto> sendPaymentToAuditCapture = ArgumentCaptor.forClass(PaymentDto.class);
         verify(auditSenderMock).sendPayment(sendPaymentToAuditCapture.capture());
         validateSentToAuditPaymentDto(sendPaymentToAuditCapture.getValue(), inputPaymentDto);
+        assertTrue(paymentCache.get(inputPaymentDto.getInvoice()).isPresent());
+        assertEquals(1, outcomeCount("approved"));
+        assertEquals(1, meterRegistry.get("payment.stage").tags("stage", "save").timer().count());
 
-        verifyNoMoreInteractions(paymentRepositoryMock);
+        verifyNoMoreInteractions(paymentStoreMock);
         verifyNoMoreInteractions(auditSenderMock);
     }
 
     @Test
-    void processPayment_ThrowsDuplicatePaymentException_WhenPaymentInvoiceAlreadyProcessed() {
-        final PaymentDto inputPaymentDto = PaymentDto.builder()
-                .invoice(VALID_INVOICE)
-                .amount(VALID_AMOUNT)
-                .currency(VALID_CURRENCY)
-                .cardholder(CardholderDto.builder().email(VALID_CARDHOLDER_EMAIL).name(VALID_CARDHOLDER_NAME).build())
-                .card(CardDto.builder().expiry(VALID_CARD_EXPIRY_DATE).pan(VALID_CARD_PAN).cvv(VALID_CARD_CVV).build())
-                .build();
-        when(paymentRepositoryMock.findByInvoice(inputPaymentDto.getInvoice())).thenReturn(Optional.of(new Payment()));
+    void processPayment_ThrowsDuplicatePaymentException_WhenInvoiceUniqueConstraintIsViolated() {
+        final PaymentDto inputPaymentDto = buildValidPaymentDto();
+        when(paymentStoreMock.save(ArgumentMatchers.any())).thenThrow(new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", null, Payment.INVOICE_UNIQUE_CONSTRAINT)));
 
         assertThrows(DuplicatePaymentException.class, () -> paymentService.processPayment(inputPaymentDto));
 
-        verify(paymentRepositoryMock).findByInvoice(inputPaymentDto.getInvoice());
-        verifyNoMoreInteractions(paymentRepositoryMock);
+        assertEquals(1, outcomeCount("duplicate"));
+        assertEquals(0, outcomeCount("approved"));
+        verify(paymentStoreMock).save(ArgumentMatchers.any());
+        verifyNoMoreInteractions(paymentStoreMock);
+        verifyNoMoreInteractions(auditSenderMock);
+    }
+
+    @Test
+    void processPayment_RethrowsDataIntegrityViolationException_WhenOtherConstraintIsViolated() {
+        final PaymentDto inputPaymentDto = buildValidPaymentDto();
+        when(paymentStoreMock.save(ArgumentMatchers.any())).thenThrow(new DataIntegrityViolationException("not null",
+                new ConstraintViolationException("not null", null, "payment_currency_not_null")));
+
+        assertThrows(DataIntegrityViolationException.class, () -> paymentService.processPayment(inputPaymentDto));
+
+        verifyNoMoreInteractions(auditSenderMock);
+    }
+
+    @Test
+    void processPayment_ReturnsSuccess_WhenLookupFirstModeAndPaymentInvoiceIsNew() {
+        final PaymentDto inputPaymentDto = buildValidPaymentDto();
+        when(paymentStoreMock.findByInvoice(inputPaymentDto.getInvoice())).thenReturn(Optional.empty());
+        when(paymentStoreMock.save(ArgumentMatchers.any())).then(invocationOnMock -> invocationOnMock.getArgument(0));
+
+        final PaymentProcessingResultDto paymentProcessingResult = lookupFirstPaymentService.processPayment(inputPaymentDto);
+
+        assertTrue(paymentProcessingResult.isApproved());
+        verify(paymentStoreMock).findByInvoice(inputPaymentDto.getInvoice());
+        verify(paymentStoreMock).save(ArgumentMatchers.any());
+        verify(auditSenderMock).sendPayment(ArgumentMatchers.any());
+        verifyNoMoreInteractions(paymentStoreMock);
+        verifyNoMoreInteractions(auditSenderMock);
+    }
+
+    @Test
+    void processPayment_ThrowsDuplicatePaymentException_WhenLookupFirstModeAndPaymentInvoiceAlreadyProcessed() {
+        final PaymentDto inputPaymentDto = buildValidPaymentDto();
+        when(paymentStoreMock.findByInvoice(inputPaymentDto.getInvoice())).thenReturn(Optional.of(new Payment()));
+
+        assertThrows(DuplicatePaymentException.class, () -> lookupFirstPaymentService.processPayment(inputPaymentDto));
+
+        verify(paymentStoreMock).findByInvoice(inputPaymentDto.getInvoice());
+        verifyNoMoreInteractions(paymentStoreMock);
+        verifyNoMoreInteractions(auditSenderMock);
+    }
+
+    @Test
+    void processPayments_ReturnsResultPerPayment_WhenBatchContainsAlreadyProcessedInvoice() {
+        final List<PaymentDto> inputPaymentDtos = List.of(buildValidPaymentDto(), buildValidPaymentDto(), buildValidPaymentDto());
+        inputPaymentDtos.get(0).setInvoice("1");
+        inputPaymentDtos.get(1).setInvoice("2");
+        inputPaymentDtos.get(2).setInvoice("3");
+        final DataIntegrityViolationException violation = new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", null, Payment.INVOICE_UNIQUE_CONSTRAINT));
+        when(paymentStoreMock.saveAll(ArgumentMatchers.any())).thenThrow(violation);
+        when(paymentStoreMock.save(ArgumentMatchers.any())).then(invocationOnMock -> {
+            if ("2".equals(invocationOnMock.<Payment>getArgument(0).getInvoice())) {
+                throw violation;
+            }
+            return invocationOnMock.getArgument(0);
+        });
+
+        final List<PaymentProcessingResultDto> results = paymentService.processPayments(inputPaymentDtos);
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isApproved());
+        assertEquals(Map.of(PaymentProcessingResultDto.GENERIC_ERROR_KEY, "Payment with invoice '2' was previously processed"),
+                results.get(1).getErrors());
+        assertTrue(results.get(2).isApproved());
+        assertEquals(2, outcomeCount("approved"));
+        assertEquals(1, outcomeCount("duplicate"));
+        verify(auditSenderMock, times(2)).sendPayment(ArgumentMatchers.any());
         verifyNoMoreInteractions(auditSenderMock);
     }
 
@@ -106,22 +196,185 @@ class PaymentServiceTest {
                 .card(Card.builder().expiryDate(encryptor.encrypt(VALID_CARD_EXPIRY_DATE)).pan(encryptor.encrypt(VALID_CARD_PAN)).build())
                 .cardholder(Cardholder.builder().name(encryptor.encrypt(VALID_CARDHOLDER_NAME)).email(VALID_CARDHOLDER_EMAIL).build())
                 .build();
-        when(paymentRepositoryMock.findByInvoice(invoice)).thenReturn(Optional.of(paymentFromRepository));
+        when(paymentStoreMock.findViewByInvoice(invoice)).thenReturn(Optional.of(toView(paymentFromRepository)));
 
         final PaymentDto foundPaymentDto = paymentService.findPaymentByInvoice(invoice);
 
         validateFoundPayment(foundPaymentDto, paymentFromRepository);
-        verify(paymentRepositoryMock).findByInvoice(invoice);
+        verify(paymentStoreMock).findViewByInvoice(invoice);
+    }
+
+    @Test
+    void findPaymentByInvoice_ReturnsCachedRecord_WhenInvoiceWasPreviouslyFound() {
+        final String invoice = VALID_INVOICE;
+        final Payment paymentFromRepository = Payment.builder()
+                .invoice(invoice)
+                .amount(Integer.valueOf(VALID_AMOUNT))
+                .currency(VALID_CURRENCY)
+                .card(Card.builder().expiryDate(encryptor.encrypt(VALID_CARD_EXPIRY_DATE)).pan(encryptor.encrypt(VALID_CARD_PAN)).build())
+                .cardholder(Cardholder.builder().name(encryptor.encrypt(VALID_CARDHOLDER_NAME)).email(VALID_CARDHOLDER_EMAIL).build())
+                .build();
+        when(paymentStoreMock.findViewByInvoice(invoice)).thenReturn(Optional.of(toView(paymentFromRepository)));
+
+        final PaymentDto firstFoundPaymentDto = paymentService.findPaymentByInvoice(invoice);
+        final PaymentDto secondFoundPaymentDto = paymentService.findPaymentByInvoice(invoice);
+
+        validateFoundPayment(secondFoundPaymentDto, paymentFromRepository);
+        assertEquals(firstFoundPaymentDto, secondFoundPaymentDto);
+        verify(paymentStoreMock).findViewByInvoice(invoice);
+        verifyNoMoreInteractions(paymentStoreMock);
+    }
+
+    @Test
+    void findPaymentByInvoice_ReturnsCachedRecord_WhenPaymentWasProcessed() {
+        final PaymentDto inputPaymentDto = buildValidPaymentDto();
+        when(paymentStoreMock.save(ArgumentMatchers.any())).then(invocationOnMock -> invocationOnMock.getArgument(0));
+        paymentService.processPayment(inputPaymentDto);
+
+        final PaymentDto foundPaymentDto = paymentService.findPaymentByInvoice(inputPaymentDto.getInvoice());
+
+        assertEquals(SANITISED_CARD_PAN, foundPaymentDto.getCard().getPan());
+        verify(paymentStoreMock).save(ArgumentMatchers.any());
+        verifyNoMoreInteractions(paymentStoreMock);
+    }
+
+    @Test
+    void findPaymentByInvoice_LoadsPaymentOnce_WhenInvoiceIsLookedUpConcurrently() throws Exception {
+        final Payment paymentFromRepository = Payment.builder()
+                .invoice(VALID_INVOICE)
+                .amount(Integer.valueOf(VALID_AMOUNT))
+                .currency(VALID_CURRENCY)
+                .card(Card.builder().expiryDate(encryptor.encrypt(VALID_CARD_EXPIRY_DATE)).pan(encryptor.encrypt(VALID_CARD_PAN)).build())
+                .cardholder(Cardholder.builder().name(encryptor.encrypt(VALID_CARDHOLDER_NAME)).email(VALID_CARDHOLDER_EMAIL).build())
+                .build();
+        final CountDownLatch loadReleased = new CountDownLatch(1);
+        when(paymentStoreMock.findViewByInvoice(VALID_INVOICE)).then(invocationOnMock -> {
+            assertTrue(loadReleased.await(10, TimeUnit.SECONDS));
+            return Optional.of(toView(paymentFromRepository));
+        });
+        final ExecutorService callers = Executors.newFixedThreadPool(CONCURRENT_LOOKUPS_COUNT);
+
+        try {
+            final List<Future<PaymentDto>> foundPaymentDtos = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_LOOKUPS_COUNT; i++) {
+                foundPaymentDtos.add(callers.submit(() -> paymentService.findPaymentByInvoice(VALID_INVOICE)));
+            }
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (loadCount("coalesced") < CONCURRENT_LOOKUPS_COUNT - 1 && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            loadReleased.countDown();
+
+            for (Future<PaymentDto> foundPaymentDto : foundPaymentDtos) {
+                validateFoundPayment(foundPaymentDto.get(10, TimeUnit.SECONDS), paymentFromRepository);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        verify(paymentStoreMock).findViewByInvoice(VALID_INVOICE);
+        assertEquals(1, loadCount("leader"));
+        assertEquals(CONCURRENT_LOOKUPS_COUNT - 1, loadCount("coalesced"));
     }
 
     @Test
     void findPaymentByInvoice_ReturnsFoundRecord_WhenInvoiceIsNotExisting() {
         final String invoice = VALID_INVOICE;
 
-        when(paymentRepositoryMock.findByInvoice(invoice)).thenReturn(Optional.empty());
+        when(paymentStoreMock.findViewByInvoice(invoice)).thenReturn(Optional.empty());
 
         assertThrows(PaymentNotFoundException.class, () -> paymentService.findPaymentByInvoice(invoice));
-        verify(paymentRepositoryMock).findByInvoice(invoice);
+        verify(paymentStoreMock).findViewByInvoice(invoice);
+    }
+
+    @Test
+    void findPaymentByInvoice_ThrowsPaymentNotFoundExceptionWithoutLookup_WhenInvoiceFilterHasNoInvoice() {
+        when(paymentStoreMock.streamAllInvoices()).thenReturn(Stream.of("54321"));
+        invoiceFilter.warmUp();
+
+        assertThrows(PaymentNotFoundException.class, () -> paymentService.findPaymentByInvoice(VALID_INVOICE));
+        verify(paymentStoreMock).streamAllInvoices();
+        verifyNoMoreInteractions(paymentStoreMock);
+    }
+
+    @Test
+    void findPaymentsByInvoices_ReturnsFoundAndMissingInvoices_WhenResolvedByCacheFilterAndSingleQuery() {
+        final PaymentDto cachedPaymentDto = buildValidPaymentDto();
+        cachedPaymentDto.setInvoice("1");
+        paymentCache.put(cachedPaymentDto);
+        when(paymentStoreMock.streamAllInvoices()).thenReturn(Stream.of("2", "3"));
+        invoiceFilter.warmUp();
+        final Payment paymentFromRepository = Payment.builder()
+                .invoice("2")
+                .amount(Integer.valueOf(VALID_AMOUNT))
+                .currency(VALID_CURRENCY)
+                .card(Card.builder().expiryDate(encryptor.encrypt(VALID_CARD_EXPIRY_DATE)).pan(encryptor.encrypt(VALID_CARD_PAN)).build())
+                .cardholder(Cardholder.builder().name(encryptor.encrypt(VALID_CARDHOLDER_NAME)).email(VALID_CARDHOLDER_EMAIL).build())
+                .build();
+        when(paymentStoreMock.findViewsByInvoiceIn(List.of("2", "3"))).thenReturn(List.of(toView(paymentFromRepository)));
+
+        final PaymentLookupResultDto lookupResult = paymentService.findPaymentsByInvoices(List.of("1", "2", "3", "4", "2"));
+
+        assertEquals(List.of("1", "2"), List.copyOf(lookupResult.getPayments().keySet()));
+        assertSame(cachedPaymentDto, lookupResult.getPayments().get("1"));
+        validateFoundPayment(lookupResult.getPayments().get("2"), paymentFromRepository);
+        assertEquals(List.of("4", "3"), lookupResult.getMissing());
+        assertTrue(paymentCache.get("2").isPresent());
+        verify(paymentStoreMock).streamAllInvoices();
+        verify(paymentStoreMock).findViewsByInvoiceIn(List.of("2", "3"));
+        verifyNoMoreInteractions(paymentStoreMock);
+    }
+
+    @Test
+    void processPayment_SkipsLookup_WhenLookupFirstModeAndInvoiceFilterHasNoInvoice() {
+        final PaymentDto inputPaymentDto = buildValidPaymentDto();
+        when(paymentStoreMock.streamAllInvoices()).thenReturn(Stream.empty());
+        when(paymentStoreMock.save(ArgumentMatchers.any())).then(invocationOnMock -> invocationOnMock.getArgument(0));
+        invoiceFilter.warmUp();
+
+        final PaymentProcessingResultDto paymentProcessingResult = lookupFirstPaymentService.processPayment(inputPaymentDto);
+
+        assertTrue(paymentProcessingResult.isApproved());
+        assertTrue(invoiceFilter.mightContain(inputPaymentDto.getInvoice()));
+        verify(paymentStoreMock).streamAllInvoices();
+        verify(paymentStoreMock).save(ArgumentMatchers.any());
+        verifyNoMoreInteractions(paymentStoreMock);
+    }
+
+    @Test
+    void mightContain_ReturnsTrueWithoutAllocatingFilter_WhenInvoiceFilterIsDisabled() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final InvoiceFilter disabledInvoiceFilter = new InvoiceFilter(paymentStoreMock, meterRegistry, false, 10_000_000, 0.01);
+
+        disabledInvoiceFilter.warmUp();
+        disabledInvoiceFilter.add(VALID_INVOICE);
+
+        assertTrue(disabledInvoiceFilter.mightContain("54321"));
+        assertTrue(meterRegistry.getMeters().isEmpty());
+        verifyNoMoreInteractions(paymentStoreMock);
+    }
+
+    private PaymentDto buildValidPaymentDto() {
+        return PaymentDto.builder()
+                .invoice(VALID_INVOICE)
+                .amount(VALID_AMOUNT)
+                .currency(VALID_CURRENCY)
+                .cardholder(CardholderDto.builder().email(VALID_CARDHOLDER_EMAIL).name(VALID_CARDHOLDER_NAME).build())
+                .card(CardDto.builder().expiry(VALID_CARD_EXPIRY_DATE).pan(VALID_CARD_PAN).cvv(VALID_CARD_CVV).build())
+                .build();
+    }
+
+    private double loadCount(String role) {
+        return meterRegistry.get("payment.lookup.load").tags("role", role).counter().count();
+    }
+
+    private double outcomeCount(String outcome) {
+        return meterRegistry.get("payment.outcome").tags("outcome", outcome, "currency", VALID_CURRENCY).counter().count();
+    }
+
+    private static PaymentView toView(Payment payment) {
+        return new PaymentView(payment.getInvoice(), payment.getAmount(), payment.getCurrency(),
+                payment.getCardholder().getName(), payment.getCardholder().getEmail(),
+                payment.getCard().getPan(), payment.getCard().getExpiryDate());
     }
 
     private void validateFoundPayment(PaymentDto foundPaymentDto, Payment paymentFromRepository) {
@@ -0,0 +1,71 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static com.olexijko.paymentgw.PayloadFactory.VALID_AMOUNT;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CURRENCY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditLogReaderTest {
+    private static final int RECORDS_COUNT = 5_000;
+    private static final long FIRST_TIMESTAMP = 1_600_000_000_000L;
+    private static final GroupCommitPolicy GROUP_COMMIT_POLICY = GroupCommitPolicy.builder()
+            .maxRecords(100)
+            .maxBytes(8192)
+            .maxDelay(Duration.ofMillis(10))
+            .fsync(false)
+            .build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void writeAuditLog() throws IOException {
+        try (AuditLog auditLog = AuditLog.open(directory, 16384, GROUP_COMMIT_POLICY, 64 * 1024, Duration.ofHours(1))) {
+            for (int i = 0; i < RECORDS_COUNT; i++) {
+                final PaymentDto paymentDto = PaymentDto.builder().invoice("invoice-" + i).amount(VALID_AMOUNT).currency(VALID_CURRENCY).build();
+                auditLog.append(FIRST_TIMESTAMP + i, AuditFrame.FORMAT_JSON, objectMapper.writeValueAsBytes(paymentDto));
+            }
+        }
+    }
+
+    @Test
+    void replay_ReturnsOnlyRecordsWithinRange_InWriteOrder() throws IOException {
+        final List<String> invoices = new ArrayList<>();
+        try (AuditLogReader auditLogReader = AuditLogReader.open(directory, objectMapper)) {
+            auditLogReader.replay(Instant.ofEpochMilli(FIRST_TIMESTAMP + 1_500), Instant.ofEpochMilli(FIRST_TIMESTAMP + 3_500),
+                    record -> invoices.add(auditLogReader.decode(record).getInvoice()));
+
+            assertEquals(RECORDS_COUNT, auditLogReader.recordsCount());
+        }
+
+        assertEquals(2_000, invoices.size());
+        assertEquals("invoice-1500", invoices.get(0));
+        assertEquals("invoice-3499", invoices.get(invoices.size() - 1));
+    }
+
+    @Test
+    void findByInvoice_ReturnsMatchingPayments_WhenInvoiceIsInAnySegment() throws IOException {
+        try (AuditLogReader auditLogReader = AuditLogReader.open(directory, objectMapper)) {
+            final List<PaymentDto> foundPayments = auditLogReader.findByInvoice("invoice-4321");
+
+            assertEquals(List.of("invoice-4321"), foundPayments.stream().map(PaymentDto::getInvoice).collect(Collectors.toList()));
+            assertTrue(auditLogReader.findByInvoice("unknown").isEmpty());
+        }
+    }
+}
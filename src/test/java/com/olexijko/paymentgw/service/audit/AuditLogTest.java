@@ -0,0 +1,118 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditLogTest {
+    private static final GroupCommitPolicy GROUP_COMMIT_POLICY = GroupCommitPolicy.builder()
+            .maxRecords(10)
+            .maxBytes(1024)
+            .maxDelay(Duration.ofMillis(10))
+            .fsync(false)
+            .build();
+    private static final long MAX_SEGMENT_BYTES = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void append_RollsSegment_WhenSegmentSizeLimitIsReached() throws IOException {
+        try (AuditLog auditLog = AuditLog.open(directory, 256, GROUP_COMMIT_POLICY, 100, Duration.ofHours(1))) {
+            for (int i = 0; i < 10; i++) {
+                auditLog.append(i, AuditFrame.FORMAT_JSON, ("record-" + i).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        final List<Path> segments = AuditSegments.list(directory);
+        assertEquals(3, segments.size());
+        for (Path segment : segments) {
+            assertTrue(Files.size(segment) <= 100);
+        }
+        assertEquals(10, readRecords(directory).size());
+    }
+
+    @Test
+    void append_WritesRecordDirectly_WhenRecordDoesNotFitIntoBuffer() throws IOException {
+        final byte[] largePayload = new byte[1000];
+        try (AuditLog auditLog = AuditLog.open(directory, 64, GROUP_COMMIT_POLICY, MAX_SEGMENT_BYTES, Duration.ofHours(1))) {
+            auditLog.append(1, AuditFrame.FORMAT_JSON, "first".getBytes(StandardCharsets.UTF_8));
+            auditLog.append(2, AuditFrame.FORMAT_JSON, target -> target.put(largePayload));
+            auditLog.append(3, AuditFrame.FORMAT_JSON, "third".getBytes(StandardCharsets.UTF_8));
+        }
+
+        final List<String> records = readRecords(directory);
+        assertEquals(3, records.size());
+        assertEquals("first", records.get(0));
+        assertEquals(largePayload.length, records.get(1).length());
+        assertEquals("third", records.get(2));
+    }
+
+    @Test
+    void open_TruncatesTornTailAndContinuesInNewSegment_WhenLastRecordIsIncomplete() throws IOException {
+        try (AuditLog auditLog = AuditLog.open(directory, 256, GROUP_COMMIT_POLICY, MAX_SEGMENT_BYTES, Duration.ofHours(1))) {
+            auditLog.append(1, AuditFrame.FORMAT_JSON, "first".getBytes(StandardCharsets.UTF_8));
+            auditLog.append(2, AuditFrame.FORMAT_JSON, "second".getBytes(StandardCharsets.UTF_8));
+        }
+        final Path firstSegment = AuditSegments.list(directory).get(0);
+        final long validSize = Files.size(firstSegment);
+        try (FileChannel channel = FileChannel.open(firstSegment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            final byte[] payload = "third".getBytes(StandardCharsets.UTF_8);
+            final ByteBuffer tornFrame = ByteBuffer.allocate(AuditFrame.HEADER_SIZE + payload.length);
+            AuditFrame.write(tornFrame, 3, AuditFrame.FORMAT_JSON, payload);
+            tornFrame.flip().limit(AuditFrame.HEADER_SIZE + 2);
+            channel.write(tornFrame);
+        }
+
+        try (AuditLog auditLog = AuditLog.open(directory, 256, GROUP_COMMIT_POLICY, MAX_SEGMENT_BYTES, Duration.ofHours(1))) {
+            auditLog.append(4, AuditFrame.FORMAT_JSON, "fourth".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(validSize, Files.size(firstSegment));
+        assertEquals(2, AuditSegments.list(directory).size());
+        assertEquals(List.of("first", "second", "fourth"), readRecords(directory));
+    }
+
+    @Test
+    void recover_TruncatesSegment_WhenRecordChecksumDoesNotMatch() throws IOException {
+        try (AuditLog auditLog = AuditLog.open(directory, 256, GROUP_COMMIT_POLICY, MAX_SEGMENT_BYTES, Duration.ofHours(1))) {
+            auditLog.append(1, AuditFrame.FORMAT_JSON, "first".getBytes(StandardCharsets.UTF_8));
+            auditLog.append(2, AuditFrame.FORMAT_JSON, "second".getBytes(StandardCharsets.UTF_8));
+        }
+        final Path segment = AuditSegments.list(directory).get(0);
+        final long firstFrameSize = AuditFrame.HEADER_SIZE + "first".length();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), Files.size(segment) - 1);
+        }
+
+        assertEquals(firstFrameSize, AuditLog.recover(segment));
+        assertEquals(firstFrameSize, Files.size(segment));
+    }
+
+    private static List<String> readRecords(Path directory) throws IOException {
+        final List<String> records = new ArrayList<>();
+        for (Path segment : AuditSegments.list(directory)) {
+            final ByteBuffer segmentContent = ByteBuffer.wrap(Files.readAllBytes(segment));
+            int position = 0;
+            int frameSize;
+            while ((frameSize = AuditFrame.validFrameSize(segmentContent, position)) > 0) {
+                records.add(StandardCharsets.UTF_8.decode(AuditFrame.payload(segmentContent, position)).toString());
+                position += frameSize;
+            }
+        }
+        return records;
+    }
+}
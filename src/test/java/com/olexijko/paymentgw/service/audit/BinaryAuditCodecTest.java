@@ -0,0 +1,83 @@
+package com.olexijko.paymentgw.service.audit;
+
+import java.nio.ByteBuffer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.olexijko.paymentgw.dto.CardDto;
+import com.olexijko.paymentgw.dto.CardholderDto;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import org.junit.jupiter.api.Test;
+
+import static com.olexijko.paymentgw.PayloadFactory.SANITISED_CARDHOLDER_NAME;
+import static com.olexijko.paymentgw.PayloadFactory.SANITISED_CARD_EXPIRY_DATE;
+import static com.olexijko.paymentgw.PayloadFactory.SANITISED_CARD_PAN;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_AMOUNT;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_EMAIL;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CURRENCY;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_INVOICE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryAuditCodecTest {
+    private final BinaryAuditCodec binaryAuditCodec = new BinaryAuditCodec();
+    private final JsonAuditCodec jsonAuditCodec = new JsonAuditCodec(new ObjectMapper());
+
+    @Test
+    void decode_ReturnsEncodedPayment_WhenPaymentIsComplete() {
+        final PaymentDto paymentDto = buildSanitisedPaymentDto(VALID_AMOUNT, VALID_CURRENCY);
+
+        final ByteBuffer payload = encode(binaryAuditCodec, paymentDto);
+
+        assertPaymentEquals(paymentDto, binaryAuditCodec.decode(payload));
+        assertEquals(VALID_INVOICE, binaryAuditCodec.readInvoice(payload));
+        assertTrue(payload.remaining() * 2 < encode(jsonAuditCodec, paymentDto).remaining());
+    }
+
+    @Test
+    void decode_KeepsValuesAsWritten_WhenAmountHasLeadingZerosAndCurrencyIsNotInDictionary() {
+        final PaymentDto paymentDto = buildSanitisedPaymentDto("00123", "XAU");
+        paymentDto.getCardholder().setName("Дмитро Коваль");
+        paymentDto.getCard().setPan(null);
+
+        final PaymentDto decodedPaymentDto = binaryAuditCodec.decode(encode(binaryAuditCodec, paymentDto));
+
+        assertPaymentEquals(paymentDto, decodedPaymentDto);
+        assertNull(decodedPaymentDto.getCard().getPan());
+    }
+
+    @Test
+    void readInvoice_ReturnsNull_WhenPayloadIsTruncated() {
+        final ByteBuffer payload = encode(binaryAuditCodec, buildSanitisedPaymentDto(VALID_AMOUNT, VALID_CURRENCY));
+        payload.limit(3);
+
+        assertNull(binaryAuditCodec.readInvoice(payload));
+    }
+
+    private static ByteBuffer encode(AuditCodec codec, PaymentDto paymentDto) {
+        final ByteBuffer payload = ByteBuffer.allocate(1024);
+        codec.encode(paymentDto, payload);
+        return payload.flip();
+    }
+
+    private static PaymentDto buildSanitisedPaymentDto(String amount, String currency) {
+        return PaymentDto.builder()
+                .invoice(VALID_INVOICE)
+                .amount(amount)
+                .currency(currency)
+                .cardholder(CardholderDto.builder().name(SANITISED_CARDHOLDER_NAME).email(VALID_CARDHOLDER_EMAIL).build())
+                .card(CardDto.builder().pan(SANITISED_CARD_PAN).expiry(SANITISED_CARD_EXPIRY_DATE).build())
+                .build();
+    }
+
+    private static void assertPaymentEquals(PaymentDto expected, PaymentDto actual) {
+        assertEquals(expected.getInvoice(), actual.getInvoice());
+        assertEquals(expected.getAmount(), actual.getAmount());
+        assertEquals(expected.getCurrency(), actual.getCurrency());
+        assertEquals(expected.getCardholder().getName(), actual.getCardholder().getName());
+        assertEquals(expected.getCardholder().getEmail(), actual.getCardholder().getEmail());
+        assertEquals(expected.getCard().getPan(), actual.getCard().getPan());
+        assertEquals(expected.getCard().getExpiry(), actual.getCard().getExpiry());
+        assertNull(actual.getCard().getCvv());
+    }
+}
@@ -0,0 +1,41 @@
+package com.olexijko.paymentgw.util;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class Base64ArraysTest {
+
+    @Test
+    void encodeAndDecode_MatchJdkBase64_ForEveryTailLength() {
+        final Random random = new Random(42);
+        final byte[] encoded = new byte[128];
+        final byte[] decoded = new byte[128];
+        for (int length = 0; length < 64; length++) {
+            final byte[] source = new byte[length];
+            random.nextBytes(source);
+            final byte[] expectedEncoded = Base64.getEncoder().encode(source);
+
+            final int encodedLength = Base64Arrays.encode(Arrays.copyOf(source, 96), length, encoded);
+            final int decodedLength = Base64Arrays.decode(encoded, encodedLength, decoded);
+
+            assertArrayEquals(expectedEncoded, Arrays.copyOf(encoded, encodedLength));
+            assertEquals(Base64Arrays.encodedLength(length), encodedLength);
+            assertArrayEquals(source, Arrays.copyOf(decoded, decodedLength));
+        }
+    }
+
+    @Test
+    void decode_ThrowsIllegalArgumentException_WhenInputIsNotBase64() {
+        final byte[] target = new byte[16];
+
+        assertThrows(IllegalArgumentException.class, () -> Base64Arrays.decode("abc".getBytes(), 3, target));
+        assertThrows(IllegalArgumentException.class, () -> Base64Arrays.decode("ab$d".getBytes(), 4, target));
+    }
+}
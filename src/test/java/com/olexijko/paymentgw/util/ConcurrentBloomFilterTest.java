@@ -0,0 +1,49 @@
+package com.olexijko.paymentgw.util;
+
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentBloomFilterTest {
+    private static final int EXPECTED_INSERTIONS = 10_000;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    @Test
+    void mightContain_ReturnsTrue_ForEveryConcurrentlyAddedValue() {
+        final ConcurrentBloomFilter bloomFilter = ConcurrentBloomFilter.create(EXPECTED_INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+
+        IntStream.range(0, EXPECTED_INSERTIONS).parallel().forEach(i -> bloomFilter.put("invoice-" + i));
+
+        assertTrue(IntStream.range(0, EXPECTED_INSERTIONS).allMatch(i -> bloomFilter.mightContain("invoice-" + i)));
+    }
+
+    @Test
+    void mightContain_KeepsFalsePositiveRateNearConfiguredProbability_WhenFilterIsFull() {
+        final ConcurrentBloomFilter bloomFilter = ConcurrentBloomFilter.create(EXPECTED_INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+        IntStream.range(0, EXPECTED_INSERTIONS).forEach(i -> bloomFilter.put("invoice-" + i));
+
+        final long falsePositives = IntStream.range(0, EXPECTED_INSERTIONS)
+                .filter(i -> bloomFilter.mightContain("unknown-" + i))
+                .count();
+
+        assertTrue(falsePositives < EXPECTED_INSERTIONS * FALSE_POSITIVE_PROBABILITY * 2);
+        assertTrue(bloomFilter.expectedFalsePositiveProbability() < FALSE_POSITIVE_PROBABILITY * 2);
+    }
+
+    @Test
+    void put_ReturnsFalse_WhenValueWasAlreadyAdded() {
+        final ConcurrentBloomFilter bloomFilter = ConcurrentBloomFilter.create(EXPECTED_INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+
+        assertTrue(bloomFilter.put("invoice"));
+        assertFalse(bloomFilter.put("invoice"));
+    }
+
+    @Test
+    void create_ThrowsIllegalArgumentException_WhenProbabilityIsOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> ConcurrentBloomFilter.create(EXPECTED_INSERTIONS, 1));
+    }
+}
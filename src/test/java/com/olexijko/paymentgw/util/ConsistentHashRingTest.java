@@ -0,0 +1,55 @@
+package com.olexijko.paymentgw.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+    private static final int KEYS_COUNT = 30_000;
+    private static final int POINTS_PER_NODE = 128;
+
+    @Test
+    void nodeFor_SpreadsKeysEvenly_WhenNodesHaveEqualPointCounts() {
+        final ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("shard-0", "shard-1", "shard-2"),
+                Function.identity(), POINTS_PER_NODE);
+
+        final Map<String, Integer> keysPerNode = new HashMap<>();
+        IntStream.range(0, KEYS_COUNT).forEach(i -> keysPerNode.merge(ring.nodeFor("invoice-" + i), 1, Integer::sum));
+
+        assertEquals(3, keysPerNode.size());
+        keysPerNode.values().forEach(count -> assertTrue(count > KEYS_COUNT / 3 * 0.7 && count < KEYS_COUNT / 3 * 1.3));
+    }
+
+    @Test
+    void nodeFor_MovesKeysOnlyToAddedNode_WhenNodeIsAdded() {
+        final ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("shard-0", "shard-1", "shard-2"),
+                Function.identity(), POINTS_PER_NODE);
+        final ConsistentHashRing<String> grownRing = new ConsistentHashRing<>(
+                List.of("shard-0", "shard-1", "shard-2", "shard-3"), Function.identity(), POINTS_PER_NODE);
+
+        int movedKeysCount = 0;
+        for (int i = 0; i < KEYS_COUNT; i++) {
+            final String key = "invoice-" + i;
+            if (!ring.nodeFor(key).equals(grownRing.nodeFor(key))) {
+                assertEquals("shard-3", grownRing.nodeFor(key));
+                movedKeysCount++;
+            }
+        }
+
+        assertTrue(movedKeysCount > KEYS_COUNT / 4 * 0.7 && movedKeysCount < KEYS_COUNT / 4 * 1.3);
+    }
+
+    @Test
+    void create_ThrowsIllegalArgumentException_WhenRingHasNoNodes() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ConsistentHashRing<>(List.<String>of(), Function.identity(), POINTS_PER_NODE));
+    }
+}
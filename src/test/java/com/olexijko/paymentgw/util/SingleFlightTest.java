@@ -0,0 +1,98 @@
+package com.olexijko.paymentgw.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+    private static final int CALLERS_COUNT = 8;
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS_COUNT);
+
+    @AfterEach
+    void stopCallers() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void execute_RunsLoaderOnce_WhenCalledConcurrentlyForSameKey() throws Exception {
+        final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        final AtomicInteger loadsCount = new AtomicInteger();
+        final AtomicInteger coalescedCount = new AtomicInteger();
+        final CountDownLatch loadReleased = new CountDownLatch(1);
+
+        final List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS_COUNT; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> singleFlight.execute("invoice", () -> {
+                loadsCount.incrementAndGet();
+                awaitQuietly(loadReleased);
+                return "payment";
+            }, coalescedCount::incrementAndGet), callers));
+        }
+        awaitCount(coalescedCount, CALLERS_COUNT - 1);
+        loadReleased.countDown();
+
+        for (CompletableFuture<String> result : results) {
+            assertEquals("payment", result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loadsCount.get());
+        assertEquals(0, singleFlight.inFlightCount());
+        assertEquals("payment", singleFlight.execute("invoice", () -> "payment", () -> { }));
+    }
+
+    @Test
+    void execute_RethrowsLeaderException_WhenCoalescedLoadFails() throws Exception {
+        final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        final AtomicInteger coalescedCount = new AtomicInteger();
+        final CountDownLatch loadStarted = new CountDownLatch(1);
+        final CountDownLatch loadReleased = new CountDownLatch(1);
+        final IllegalStateException failure = new IllegalStateException("not found");
+
+        final CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("invoice", () -> {
+            loadStarted.countDown();
+            awaitQuietly(loadReleased);
+            throw failure;
+        }, coalescedCount::incrementAndGet), callers);
+        final CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> {
+            awaitQuietly(loadStarted);
+            return singleFlight.execute("invoice", () -> "loaded again", coalescedCount::incrementAndGet);
+        }, callers);
+        awaitCount(coalescedCount, 1);
+        loadReleased.countDown();
+
+        assertSame(failure, assertThrows(ExecutionException.class, () -> leader.get(10, TimeUnit.SECONDS)).getCause());
+        assertSame(failure, assertThrows(ExecutionException.class, () -> follower.get(10, TimeUnit.SECONDS)).getCause());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    private static void awaitCount(AtomicInteger count, int expected) {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (count.get() < expected) {
+            assertTrue(System.nanoTime() < deadline, "Callers did not coalesce in time");
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.olexijko.paymentgw.validator;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiryDateIsNotExpiredTest {
+    private static final ZoneId ZONE = ZoneOffset.ofHours(2);
+
+    @Test
+    void isValid_ComparesWithCurrentMonth_WhenExpiryIsWellFormed() {
+        final ExpiryDateIsNotExpired validator = new ExpiryDateIsNotExpired(new MutableClock(at(2021, 6, 15, 12)));
+
+        assertTrue(validator.isValid("0621", null));
+        assertTrue(validator.isValid("0122", null));
+        assertTrue(validator.isValid("0199", null));
+        assertFalse(validator.isValid("0521", null));
+        assertFalse(validator.isValid("1220", null));
+    }
+
+    @Test
+    void isValid_ReturnsTrue_WhenExpiryIsNotUnderstandable() {
+        final ExpiryDateIsNotExpired validator = new ExpiryDateIsNotExpired(new MutableClock(at(2021, 6, 15, 12)));
+
+        assertTrue(validator.isValid(null, null));
+        assertTrue(validator.isValid("", null));
+        assertTrue(validator.isValid("1320", null));
+        assertTrue(validator.isValid("0020", null));
+        assertTrue(validator.isValid("01/20", null));
+        assertTrue(validator.isValid("0a20", null));
+        assertTrue(validator.isValid("01-0", null));
+    }
+
+    @Test
+    void isValid_RejectsPreviousMonth_AfterMidnightOfNewMonth() {
+        final MutableClock clock = new MutableClock(at(2021, 6, 30, 23));
+        final ExpiryDateIsNotExpired validator = new ExpiryDateIsNotExpired(clock);
+        assertTrue(validator.isValid("0621", null));
+
+        clock.instant = at(2021, 7, 1, 0);
+
+        assertFalse(validator.isValid("0621", null));
+        assertTrue(validator.isValid("0721", null));
+    }
+
+    private static Instant at(int year, int month, int day, int hour) {
+        return LocalDateTime.of(year, month, day, hour, 0).atZone(ZONE).toInstant();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
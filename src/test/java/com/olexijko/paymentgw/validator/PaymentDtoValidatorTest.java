@@ -0,0 +1,125 @@
+package com.olexijko.paymentgw.validator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.validation.Validation;
+import javax.validation.Validator;
+
+import com.olexijko.paymentgw.dto.CardDto;
+import com.olexijko.paymentgw.dto.CardholderDto;
+import com.olexijko.paymentgw.dto.PaymentDto;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+import static com.olexijko.paymentgw.PayloadFactory.CARD_PAN_INVALID_LUHN_CHECK;
+import static com.olexijko.paymentgw.PayloadFactory.EXPIRED_CARD_EXPIRY_DATE;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_AMOUNT;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_EMAIL;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARDHOLDER_NAME;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_CVV;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_EXPIRY_DATE;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CARD_PAN;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_CURRENCY;
+import static com.olexijko.paymentgw.PayloadFactory.VALID_INVOICE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentDtoValidatorTest {
+    private static final javax.validation.ValidatorFactory VALIDATOR_FACTORY = Validation.buildDefaultValidatorFactory();
+    private static final Validator BEAN_VALIDATOR = VALIDATOR_FACTORY.getValidator();
+
+    private final SpringValidatorAdapter referenceValidator = new SpringValidatorAdapter(BEAN_VALIDATOR);
+    private final PaymentDtoValidator paymentDtoValidator = new PaymentDtoValidator(BEAN_VALIDATOR);
+
+    @AfterAll
+    static void closeValidatorFactory() {
+        VALIDATOR_FACTORY.close();
+    }
+
+    @Test
+    void validate_ReportsNoErrors_WhenPaymentIsValid() {
+        final Errors errors = validate(paymentDtoValidator, validPayment());
+
+        assertTrue(errors.getAllErrors().isEmpty());
+    }
+
+    @Test
+    void validate_ReportsSameErrorsAsBeanValidation_ForEveryInvalidField() {
+        final List<Consumer<PaymentDto>> mutations = List.of(
+                payment -> payment.setInvoice(" "),
+                payment -> payment.setAmount(null),
+                payment -> payment.setAmount(""),
+                payment -> payment.setAmount("100"),
+                payment -> payment.setAmount("-5"),
+                payment -> payment.setAmount("12.5"),
+                payment -> payment.setCurrency(null),
+                payment -> payment.setCardholder(null),
+                payment -> payment.setCard(null),
+                payment -> payment.getCardholder().setName("\t"),
+                payment -> payment.getCardholder().setEmail(null),
+                payment -> payment.getCardholder().setEmail("invalid.email"),
+                payment -> payment.getCardholder().setEmail("first..last@domain.com"),
+                payment -> payment.getCardholder().setEmail("first@-domain.com"),
+                payment -> payment.getCardholder().setEmail("first@domain.com."),
+                payment -> payment.getCardholder().setEmail("first last@domain.com"),
+                payment -> payment.getCardholder().setEmail("\"first last\"@domain.com"),
+                payment -> payment.getCardholder().setEmail("first.o'last+tag@sub.do-main.com"),
+                payment -> payment.getCardholder().setEmail("first@[127.0.0.1]"),
+                payment -> payment.getCardholder().setEmail("jürgen@domain.de"),
+                payment -> payment.getCard().setPan(null),
+                payment -> payment.getCard().setPan("4532 0112 8377 7270"),
+                payment -> payment.getCard().setPan("45320112837772"),
+                payment -> payment.getCard().setPan(CARD_PAN_INVALID_LUHN_CHECK),
+                payment -> payment.getCard().setExpiry(null),
+                payment -> payment.getCard().setExpiry("1321"),
+                payment -> payment.getCard().setExpiry("0021"),
+                payment -> payment.getCard().setExpiry("12/21"),
+                payment -> payment.getCard().setExpiry(EXPIRED_CARD_EXPIRY_DATE),
+                payment -> payment.getCard().setCvv(""));
+
+        for (Consumer<PaymentDto> mutation : mutations) {
+            final PaymentDto payment = validPayment();
+            mutation.accept(payment);
+
+            final Map<String, Set<String>> expectedMessages = errorMessages(validate(referenceValidator, payment));
+            final Map<String, Set<String>> actualMessages = errorMessages(validate(paymentDtoValidator, payment));
+
+            assertEquals(expectedMessages.keySet(), actualMessages.keySet());
+            actualMessages.forEach((field, messages) -> {
+                assertEquals(1, messages.size());
+                assertTrue(expectedMessages.get(field).containsAll(messages));
+            });
+        }
+    }
+
+    private static Errors validate(org.springframework.validation.Validator validator, PaymentDto payment) {
+        final Errors errors = new BeanPropertyBindingResult(payment, "paymentDto");
+        validator.validate(payment, errors);
+        return errors;
+    }
+
+    /**
+     * Bean Validation may report several violations of one field, the fast path reports the first of them.
+     */
+    private static Map<String, Set<String>> errorMessages(Errors errors) {
+        return errors.getFieldErrors().stream().collect(Collectors.groupingBy(FieldError::getField,
+                Collectors.mapping(FieldError::getDefaultMessage, Collectors.toSet())));
+    }
+
+    private static PaymentDto validPayment() {
+        return PaymentDto.builder()
+                .invoice(VALID_INVOICE)
+                .amount(VALID_AMOUNT)
+                .currency(VALID_CURRENCY)
+                .cardholder(CardholderDto.builder().name(VALID_CARDHOLDER_NAME).email(VALID_CARDHOLDER_EMAIL).build())
+                .card(CardDto.builder().pan(VALID_CARD_PAN).expiry(VALID_CARD_EXPIRY_DATE).cvv(VALID_CARD_CVV).build())
+                .build();
+    }
+}